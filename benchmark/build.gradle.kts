@@ -0,0 +1,42 @@
+plugins {
+    alias(libs.plugins.kotlin.jvm)
+    alias(libs.plugins.jmh)
+}
+
+java {
+    toolchain {
+        languageVersion.set(JavaLanguageVersion.of(17))
+    }
+}
+
+kotlin {
+    jvmToolchain(17)
+}
+
+dependencies {
+    jmhImplementation(project(":maplibre-navigation-core"))
+}
+
+sourceSets {
+    named("jmh") {
+        // Replay the same fixtures as the unit tests of the core module
+        resources.srcDir(rootProject.file("maplibre-navigation-core/src/androidUnitTest/resources"))
+    }
+}
+
+// Run with `./gradlew :benchmark:jmh -Pbenchmark`, results are written to `benchmark/build/results/jmh`
+jmh {
+    jmhVersion.set(libs.versions.jmh)
+    benchmarkMode.set(listOf("thrpt", "sample"))
+    timeUnit.set("us")
+    profilers.set(listOf("gc"))
+    warmupIterations.set(3)
+    iterations.set(5)
+    fork.set(1)
+    resultFormat.set("JSON")
+    includes.set(
+        (project.properties["jmhIncludes"] as String?)
+            ?.let(::listOf)
+            ?: emptyList()
+    )
+}
@@ -0,0 +1,86 @@
+package org.maplibre.navigation.benchmark
+
+import org.maplibre.navigation.core.location.Location
+import org.maplibre.navigation.core.location.replay.ReplayRouteLocationConverter
+import org.maplibre.navigation.core.models.DirectionsResponse
+import org.maplibre.navigation.core.models.DirectionsRoute
+import org.maplibre.navigation.core.models.RouteOptions
+
+/**
+ * Loads the fixtures of the core unit tests from the benchmark classpath.
+ */
+internal object BenchmarkFixtures {
+
+    /**
+     * Route used to replay GPX traces against. The traces are not recorded along this route, so
+     * they exercise the off-route path of the pipeline.
+     */
+    const val GPX_ROUTE_FIXTURE = "directions_v5.json"
+
+    private const val REPLAY_SPEED_KM_PER_HOUR = 50
+    private const val REPLAY_DELAY_SECONDS = 1
+
+    /**
+     * Loads the first route of a directions response fixture. Route options are added, like in
+     * the core unit tests, so the default milestones can be used.
+     */
+    fun loadRoute(fixtureName: String): DirectionsRoute {
+        val route = DirectionsResponse.fromJson(readFixture(fixtureName)).routes.first()
+        return route.copy(
+            routeOptions = RouteOptions(
+                baseUrl = "api://",
+                user = "user",
+                profile = "profile",
+                accessToken = "benchmark",
+                requestUuid = "uuid",
+                geometries = "polyline6",
+                voiceInstructions = true,
+                bannerInstructions = true,
+                coordinates = emptyList(),
+                alternatives = null,
+                language = null,
+                radiuses = null,
+                bearings = null,
+                continueStraight = null,
+                roundaboutExits = null,
+                overview = null,
+                steps = null,
+                annotations = null,
+                exclude = null,
+                voiceUnits = null,
+                approaches = null,
+                waypointIndices = null,
+                waypointNames = null,
+                waypointTargets = null,
+                walkingOptions = null,
+                snappingClosures = null,
+            )
+        )
+    }
+
+    /**
+     * Creates one location per second along all steps of the route, like the replay location engine.
+     */
+    fun replayLocations(route: DirectionsRoute): List<Location> {
+        val converter = ReplayRouteLocationConverter(route, REPLAY_SPEED_KM_PER_HOUR, REPLAY_DELAY_SECONDS)
+        converter.initializeTime()
+
+        val stepCount = route.legs.sumOf { leg -> leg.steps.size }
+        return (0 until stepCount).flatMap { converter.toLocations() }
+    }
+
+    /**
+     * Reads all track points of a GPX fixture.
+     */
+    fun gpxLocations(fixtureName: String): List<Location> {
+        return openFixture(fixtureName).use(GpxParser::parse)
+    }
+
+    private fun readFixture(fixtureName: String): String {
+        return openFixture(fixtureName).bufferedReader().use { reader -> reader.readText() }
+    }
+
+    private fun openFixture(fixtureName: String) =
+        BenchmarkFixtures::class.java.classLoader.getResourceAsStream(fixtureName)
+            ?: throw IllegalArgumentException("Fixture $fixtureName not found.")
+}
@@ -0,0 +1,49 @@
+package org.maplibre.navigation.benchmark
+
+import org.maplibre.navigation.core.location.Location
+import org.w3c.dom.Element
+import java.io.InputStream
+import java.time.Instant
+import javax.xml.parsers.DocumentBuilderFactory
+
+/**
+ * Minimal GPX reader, that converts all track points of a GPX file into [Location]s.
+ */
+internal object GpxParser {
+
+    private const val TRACK_POINT = "trkpt"
+    private const val ELEVATION = "ele"
+    private const val TIME = "time"
+    private const val PROVIDER_NAME = "GpxReplay"
+
+    /**
+     * Reads all track points of all tracks and segments, in file order.
+     *
+     * @param inputStream GPX file content
+     * @return locations of the track points
+     */
+    fun parse(inputStream: InputStream): List<Location> {
+        val document = DocumentBuilderFactory.newInstance()
+            .apply { isNamespaceAware = true }
+            .newDocumentBuilder()
+            .parse(inputStream)
+
+        val trackPoints = document.getElementsByTagNameNS("*", TRACK_POINT)
+        return (0 until trackPoints.length).map { index ->
+            val trackPoint = trackPoints.item(index) as Element
+            Location(
+                latitude = trackPoint.getAttribute("lat").toDouble(),
+                longitude = trackPoint.getAttribute("lon").toDouble(),
+                altitude = trackPoint.childText(ELEVATION)?.toDouble(),
+                time = trackPoint.childText(TIME)?.let { time -> Instant.parse(time).toEpochMilli() },
+                accuracyMeters = 3f,
+                provider = PROVIDER_NAME
+            )
+        }
+    }
+
+    private fun Element.childText(name: String): String? {
+        val children = getElementsByTagNameNS("*", name)
+        return if (children.length > 0) children.item(0).textContent.trim() else null
+    }
+}
@@ -0,0 +1,80 @@
+package org.maplibre.navigation.benchmark
+
+import org.maplibre.navigation.core.location.Location
+import org.maplibre.navigation.core.models.DirectionsRoute
+import org.maplibre.navigation.core.navigation.trace.NavigationTraceProcessor
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.Level
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.infra.Blackhole
+
+/**
+ * Measures the processing of a single location update by the core navigation pipeline, using the
+ * [NavigationTraceProcessor] which runs the same steps as the navigation engine synchronously.
+ *
+ * Every invocation processes the next location of the replayed trace. Route fixtures are replayed
+ * along their steps, with one location per second at 50 km/h. When the end of a route is reached,
+ * navigation starts again from the beginning with a new processor, so the decoding of the route is
+ * part of the measurement once per lap. GPX traces are replayed in a loop against
+ * [BenchmarkFixtures.GPX_ROUTE_FIXTURE], without restarting.
+ *
+ * Run with `./gradlew :benchmark:jmh -Pbenchmark`. Throughput, latency percentiles (sample mode)
+ * and the allocated bytes per location update (`gc.alloc.rate.norm`) are reported.
+ */
+@State(Scope.Thread)
+open class NavigationPipelineBenchmark {
+
+    @Param(
+        "directions_v5.json",
+        "directions_two_leg_route.json",
+        "directions_three_leg_single_step_route.json",
+        "long_step.json",
+        "test.gpx"
+    )
+    lateinit var trace: String
+
+    private lateinit var route: DirectionsRoute
+    private lateinit var locations: List<Location>
+    private lateinit var processor: NavigationTraceProcessor
+    private var restartOnLap = true
+    private var locationIndex = 0
+
+    @Setup(Level.Trial)
+    fun loadTrace() {
+        if (trace.endsWith(GPX_EXTENSION)) {
+            route = BenchmarkFixtures.loadRoute(BenchmarkFixtures.GPX_ROUTE_FIXTURE)
+            locations = BenchmarkFixtures.gpxLocations(trace)
+            restartOnLap = false
+        } else {
+            route = BenchmarkFixtures.loadRoute(trace)
+            locations = BenchmarkFixtures.replayLocations(route)
+            restartOnLap = true
+        }
+        check(locations.isNotEmpty()) { "Trace $trace contains no locations." }
+    }
+
+    @Setup(Level.Iteration)
+    fun startNavigation() {
+        processor = NavigationTraceProcessor(route)
+        locationIndex = 0
+    }
+
+    @Benchmark
+    fun processLocationUpdate(blackhole: Blackhole) {
+        if (locationIndex == locations.size) {
+            if (restartOnLap) {
+                processor = NavigationTraceProcessor(route)
+            }
+            locationIndex = 0
+        }
+
+        blackhole.consume(processor.process(locations[locationIndex++]))
+    }
+
+    private companion object {
+        const val GPX_EXTENSION = ".gpx"
+    }
+}
@@ -9,7 +9,6 @@ import org.maplibre.navigation.core.models.LegStep;
 import org.maplibre.navigation.core.models.ManeuverModifier;
 import org.maplibre.navigation.core.models.RouteLeg;
 import org.maplibre.navigation.core.models.StepManeuver;
-import org.maplibre.navigation.core.routeprogress.RouteLegProgress;
 import org.maplibre.navigation.core.routeprogress.RouteProgress;
 import org.maplibre.navigation.android.navigation.ui.v5.utils.DistanceFormatter;
 import org.maplibre.navigation.core.utils.RouteUtils;
@@ -138,12 +137,7 @@ class InstructionListPresenter {
     if (instructions.isEmpty()) {
       return false;
     }
-    RouteLegProgress legProgress = routeProgress.getCurrentLegProgress();
-    LegStep currentStep = legProgress.getCurrentStep();
-    double stepDistanceRemaining = legProgress.getCurrentStepProgress().getDistanceRemaining();
-    BannerInstructions currentBannerInstructions = routeUtils.findCurrentBannerInstructions(
-      currentStep, stepDistanceRemaining
-    );
+    BannerInstructions currentBannerInstructions = routeUtils.findCurrentBannerInstructions(routeProgress);
     if (!instructions.contains(currentBannerInstructions)) {
       return false;
     }
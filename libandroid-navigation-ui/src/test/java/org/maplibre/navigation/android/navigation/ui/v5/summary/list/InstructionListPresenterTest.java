@@ -188,7 +188,7 @@ public class InstructionListPresenterTest extends BaseTest {
   private RouteUtils mockRouteUtils(RouteProgress routeProgress) {
     BannerInstructions instructions = routeProgress.getCurrentLegProgress().getCurrentStep().getBannerInstructions().get(FIRST);
     RouteUtils routeUtils = mock(RouteUtils.class);
-    when(routeUtils.findCurrentBannerInstructions(any(LegStep.class), anyDouble())).thenReturn(instructions);
+    when(routeUtils.findCurrentBannerInstructions(any(RouteProgress.class))).thenReturn(instructions);
     return routeUtils;
   }
 
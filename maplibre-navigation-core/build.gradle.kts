@@ -26,6 +26,12 @@ kotlin {
         publishLibraryVariants("release")
     }
 
+    // Plain JVM target, only for the JMH benchmarks to run without an Android device. It is not
+    // published and only enabled together with the benchmark module by `-Pbenchmark`.
+    if (providers.gradleProperty("benchmark").isPresent) {
+        jvm()
+    }
+
     val xcf = XCFrameworkConfig(project)
     listOf(iosX64(), iosArm64(), iosSimulatorArm64()).forEach { iosTarget ->
         iosTarget.binaries.framework {
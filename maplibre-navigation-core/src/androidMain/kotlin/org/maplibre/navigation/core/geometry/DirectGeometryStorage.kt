@@ -0,0 +1,18 @@
+package org.maplibre.navigation.core.geometry
+
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+
+/**
+ * Keeps the geometry in direct buffers, outside of the heap. Only available on Android.
+ */
+object DirectGeometryStorage : GeometryStorage {
+
+    override val cachesStepPoints: Boolean
+        get() = false
+
+    override fun createBuffer(size: Int): GeometryBuffer {
+        val byteBuffer = ByteBuffer.allocateDirect(size * Double.SIZE_BYTES)
+        return DoubleBufferGeometryBuffer(byteBuffer.order(ByteOrder.nativeOrder()).asDoubleBuffer())
+    }
+}
@@ -0,0 +1,18 @@
+package org.maplibre.navigation.core.geometry
+
+import java.nio.DoubleBuffer
+
+/**
+ * [GeometryBuffer] on a [DoubleBuffer], only accessed with absolute indices so it can be read
+ * from multiple threads. Used by [MappedFileGeometryStorage] and [DirectGeometryStorage].
+ */
+internal class DoubleBufferGeometryBuffer(private val values: DoubleBuffer) : GeometryBuffer {
+    override val size: Int
+        get() = values.capacity()
+
+    override fun get(index: Int): Double = values.get(index)
+
+    override fun set(index: Int, value: Double) {
+        values.put(index, value)
+    }
+}
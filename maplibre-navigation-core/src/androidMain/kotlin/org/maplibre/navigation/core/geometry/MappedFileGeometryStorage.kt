@@ -0,0 +1,44 @@
+package org.maplibre.navigation.core.geometry
+
+import java.io.File
+import java.io.RandomAccessFile
+import java.nio.ByteOrder
+import java.nio.channels.FileChannel
+
+/**
+ * Keeps the geometry in memory-mapped files in the given directory, usually the cache directory
+ * of the app. Only available on Android.
+ *
+ * The pages of the files are loaded by the operating system when a step is navigated and can be
+ * dropped again under memory pressure, so neither the heap nor the resident memory grows with the
+ * route length. Every file is deleted directly after mapping. Its content stays accessible until
+ * the [RouteGeometry] is garbage collected.
+ *
+ * @param directory directory to create the files in
+ */
+class MappedFileGeometryStorage(private val directory: File) : GeometryStorage {
+
+    override val cachesStepPoints: Boolean
+        get() = false
+
+    override fun createBuffer(size: Int): GeometryBuffer {
+        val file = File.createTempFile(FILE_PREFIX, FILE_SUFFIX, directory)
+        try {
+            return RandomAccessFile(file, "rw").use { randomAccessFile ->
+                val byteBuffer = randomAccessFile.channel.map(
+                    FileChannel.MapMode.READ_WRITE,
+                    0,
+                    size.toLong() * Double.SIZE_BYTES
+                )
+                DoubleBufferGeometryBuffer(byteBuffer.order(ByteOrder.nativeOrder()).asDoubleBuffer())
+            }
+        } finally {
+            file.delete()
+        }
+    }
+
+    private companion object {
+        const val FILE_PREFIX = "route-geometry"
+        const val FILE_SUFFIX = ".bin"
+    }
+}
@@ -0,0 +1,14 @@
+package org.maplibre.navigation.core.metrics
+
+import java.util.concurrent.locks.ReentrantLock
+
+/**
+ * Creates a new lock on a [ReentrantLock].
+ */
+internal actual fun createStageLock(): StageLock = object : StageLock {
+    private val lock = ReentrantLock()
+
+    override fun lock() = lock.lock()
+
+    override fun unlock() = lock.unlock()
+}
@@ -0,0 +1,65 @@
+package org.maplibre.navigation.core.geometry
+
+import org.maplibre.geojson.model.Point
+import org.maplibre.geojson.turf.TurfMeasurement
+import org.maplibre.geojson.turf.TurfUnit
+import org.maplibre.navigation.core.BaseTest
+import kotlin.math.abs
+import kotlin.test.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertNull
+import kotlin.test.assertTrue
+
+class LocalGeometryTest : BaseTest() {
+
+    @Test
+    fun haversineDistance_matchesTurf() {
+        val from = Point(-122.416686, 37.783425)
+        val to = Point(-122.403697, 37.790452)
+
+        assertEquals(
+            TurfMeasurement.distance(from, to, TurfUnit.METERS),
+            LocalGeometry.haversineDistance(from.longitude, from.latitude, to.longitude, to.latitude),
+            1E-6
+        )
+    }
+
+    @Test
+    fun distance_withinErrorBoundOfTurf() {
+        for (latitude in listOf(-70.0, -45.0, 0.0, 37.78, 60.0, 70.0)) {
+            val from = Point(13.4, latitude)
+            for (offset in listOf(0.0001, 0.001, 0.01, 0.05)) {
+                val to = Point(13.4 + offset, latitude - offset / 2)
+                val expected = TurfMeasurement.distance(from, to, TurfUnit.METERS)
+
+                val distance = LocalGeometry.distance(from.longitude, from.latitude, to.longitude, to.latitude)
+
+                assertTrue(abs(distance - expected) <= expected * 1E-6, "$distance != $expected")
+            }
+        }
+    }
+
+    @Test
+    fun bearing_withinErrorBoundOfTurf() {
+        val from = Point(-122.416686, 37.783425)
+        val to = Point(-122.410686, 37.786425)
+
+        val bearing = LocalGeometry.bearing(from.longitude, from.latitude, to.longitude, to.latitude)
+
+        assertEquals(TurfMeasurement.bearing(from, to), bearing!!, 0.02)
+    }
+
+    @Test
+    fun bearing_nullForEqualPositions() {
+        assertNull(LocalGeometry.bearing(13.4, 52.5, 13.4, 52.5))
+    }
+
+    @Test
+    fun segmentFraction_clampedToSegment() {
+        val scale = LocalGeometry.longitudeScale(52.5)
+
+        assertEquals(0.0, LocalGeometry.segmentFraction(13.3, 52.5, 13.4, 52.5, 13.5, 52.5, scale), DELTA)
+        assertEquals(0.5, LocalGeometry.segmentFraction(13.45, 52.6, 13.4, 52.5, 13.5, 52.5, scale), DELTA)
+        assertEquals(1.0, LocalGeometry.segmentFraction(13.6, 52.5, 13.4, 52.5, 13.5, 52.5, scale), DELTA)
+    }
+}
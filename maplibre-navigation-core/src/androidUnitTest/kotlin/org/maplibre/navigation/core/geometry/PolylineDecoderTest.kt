@@ -0,0 +1,74 @@
+package org.maplibre.navigation.core.geometry
+
+import org.maplibre.geojson.utils.PolylineUtils
+import org.maplibre.navigation.core.BaseTest
+import org.maplibre.navigation.core.utils.Constants
+import kotlin.test.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertFailsWith
+
+class PolylineDecoderTest : BaseTest() {
+
+    @Test
+    fun decode_matchesPolylineUtilsForRouteAndSteps() {
+        val route = buildTestDirectionsRoute()
+        val geometries = listOf(route.geometry) + route.legs.flatMap { leg -> leg.steps.map { step -> step.geometry } }
+
+        for (geometry in geometries) {
+            val expected = PolylineUtils.decode(geometry, Constants.PRECISION_6)
+
+            val coordinates = PolylineDecoder.decode(geometry, Constants.PRECISION_6)
+
+            assertEquals(expected.size, PolylineDecoder.coordinateCount(geometry))
+            assertEquals(expected.size * 2, coordinates.size)
+            expected.forEachIndexed { index, point ->
+                assertEquals(point.longitude, coordinates[index * 2])
+                assertEquals(point.latitude, coordinates[index * 2 + 1])
+            }
+        }
+    }
+
+    @Test
+    fun decode_matchesPolylineUtilsForPrecision5() {
+        val expected = PolylineUtils.decode(PRECISION_5_POLYLINE, Constants.PRECISION_5)
+
+        val points = PolylineDecoder.decodePoints(PRECISION_5_POLYLINE, Constants.PRECISION_5)
+
+        assertEquals(expected, points)
+    }
+
+    @Test
+    fun decode_subRangeIsWrittenAtOffset() {
+        val all = PolylineDecoder.decode(PRECISION_5_POLYLINE, Constants.PRECISION_5)
+        val coordinates = DoubleArray(6)
+
+        val written = PolylineDecoder.decode(
+            PRECISION_5_POLYLINE,
+            Constants.PRECISION_5,
+            coordinates,
+            offset = 1,
+            fromCoordinate = 1,
+            toCoordinate = 3
+        )
+
+        assertEquals(2, written)
+        assertEquals(all.copyOfRange(2, 6).toList(), coordinates.copyOfRange(2, 6).toList())
+    }
+
+    @Test
+    fun decode_emptyPolylineHasNoCoordinates() {
+        assertEquals(0, PolylineDecoder.coordinateCount(""))
+        assertEquals(0, PolylineDecoder.decode("", Constants.PRECISION_6).size)
+    }
+
+    @Test
+    fun decode_arrayTooSmallThrows() {
+        assertFailsWith<IllegalArgumentException> {
+            PolylineDecoder.decode(PRECISION_5_POLYLINE, Constants.PRECISION_5, DoubleArray(4))
+        }
+    }
+
+    companion object {
+        private const val PRECISION_5_POLYLINE = "_p~iF~ps|U_ulLnnqC_mqNvxq`@"
+    }
+}
@@ -0,0 +1,226 @@
+package org.maplibre.navigation.core.geometry
+
+import org.maplibre.geojson.turf.TurfMeasurement
+import org.maplibre.geojson.turf.TurfUnit
+import org.maplibre.geojson.utils.PolylineUtils
+import org.maplibre.navigation.core.BaseTest
+import org.maplibre.navigation.core.navigation.NavigationHelper
+import org.maplibre.navigation.core.utils.Constants
+import kotlin.io.path.createTempDirectory
+import kotlin.test.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertFalse
+import kotlin.test.assertNotSame
+import kotlin.test.assertSame
+import kotlin.test.assertTrue
+
+class RouteGeometryTest : BaseTest() {
+
+    @Test
+    fun fromRoute_decodesEveryStepOfEveryLeg() {
+        val route = buildTestDirectionsRoute(MULTI_LEG_ROUTE_FIXTURE)
+
+        val routeGeometry = RouteGeometry.fromRoute(route)
+
+        assertEquals(route.legs.size, routeGeometry.legCount)
+        route.legs.forEachIndexed { legIndex, leg ->
+            assertEquals(leg.steps.size, routeGeometry.stepCount(legIndex))
+            leg.steps.forEachIndexed { stepIndex, step ->
+                val decodedPoints = PolylineUtils.decode(step.geometry, Constants.PRECISION_6)
+                assertEquals(decodedPoints, routeGeometry.stepPoints(legIndex, stepIndex))
+                assertEquals(decodedPoints.size, routeGeometry.stepVertexCount(legIndex, stepIndex))
+            }
+        }
+    }
+
+    @Test
+    fun stepLength_matchesTurfLength() {
+        val route = buildTestDirectionsRoute(MULTI_LEG_ROUTE_FIXTURE)
+
+        val routeGeometry = RouteGeometry.fromRoute(route)
+
+        route.legs.forEachIndexed { legIndex, leg ->
+            leg.steps.forEachIndexed { stepIndex, step ->
+                val decodedPoints = PolylineUtils.decode(step.geometry, Constants.PRECISION_6)
+                assertEquals(
+                    TurfMeasurement.length(decodedPoints, TurfUnit.METERS),
+                    routeGeometry.stepLength(legIndex, stepIndex),
+                    1E-6
+                )
+            }
+        }
+    }
+
+    @Test
+    fun distanceAlongRoute_isIncreasingFromZero() {
+        val route = buildTestDirectionsRoute()
+
+        val routeGeometry = RouteGeometry.fromRoute(route)
+
+        assertEquals(0.0, routeGeometry.distanceAlongRoute(0), DELTA)
+        for (vertexIndex in 1 until routeGeometry.vertexCount) {
+            assertTrue(routeGeometry.distanceAlongRoute(vertexIndex) >= routeGeometry.distanceAlongRoute(vertexIndex - 1))
+        }
+        assertEquals(routeGeometry.distanceAlongRoute(routeGeometry.vertexCount - 1), routeGeometry.length, DELTA)
+    }
+
+    @Test
+    fun stepPoints_areCachedPerStep() {
+        val route = buildTestDirectionsRoute()
+
+        val routeGeometry = RouteGeometry.fromRoute(route)
+
+        assertSame(routeGeometry.stepPoints(0, 1), routeGeometry.stepPoints(0, 1))
+    }
+
+    @Test
+    fun hasStep_falseForInvalidIndices() {
+        val route = buildTestDirectionsRoute()
+
+        val routeGeometry = RouteGeometry.fromRoute(route)
+
+        assertTrue(routeGeometry.hasStep(0, 0))
+        assertFalse(routeGeometry.hasStep(0, route.legs[0].steps.size))
+        assertFalse(routeGeometry.hasStep(route.legs.size, 0))
+        assertFalse(routeGeometry.hasStep(-1, 0))
+    }
+
+    @Test
+    fun legAndRouteDistanceRemaining_matchNavigationHelper() {
+        val route = buildTestDirectionsRoute(MULTI_LEG_ROUTE_FIXTURE)
+
+        val routeGeometry = RouteGeometry.fromRoute(route)
+
+        route.legs.forEachIndexed { legIndex, leg ->
+            leg.steps.indices.forEach { stepIndex ->
+                val legDistanceRemaining = routeGeometry.legDistanceRemaining(10.0, legIndex, stepIndex)
+                assertEquals(
+                    NavigationHelper.legDistanceRemaining(10.0, legIndex, stepIndex, route),
+                    legDistanceRemaining,
+                    1E-6
+                )
+                assertEquals(
+                    NavigationHelper.routeDistanceRemaining(legDistanceRemaining, legIndex, route),
+                    routeGeometry.routeDistanceRemaining(legDistanceRemaining, legIndex),
+                    1E-6
+                )
+            }
+        }
+    }
+
+    @Test
+    fun stepDistanceRemaining_zeroAtEndOfStep() {
+        val route = buildTestDirectionsRoute()
+        val routeGeometry = RouteGeometry.fromRoute(route)
+        val stepPoints = routeGeometry.stepPoints(0, 1)
+        val location = buildDefaultLocationUpdate(stepPoints.last().longitude, stepPoints.last().latitude)
+
+        val stepDistanceRemaining = NavigationHelper.stepDistanceRemaining(
+            location, 0, 1, routeGeometry, SegmentCursor(), SegmentProjection()
+        )
+
+        assertEquals(0.0, stepDistanceRemaining)
+    }
+
+    @Test
+    fun stepDistanceRemaining_matchesTurfOnStep() {
+        val route = buildTestDirectionsRoute()
+        val routeGeometry = RouteGeometry.fromRoute(route)
+        val stepPoints = routeGeometry.stepPoints(0, 1)
+        val location = buildDefaultLocationUpdate(stepPoints[1].longitude, stepPoints[1].latitude)
+
+        val stepDistanceRemaining = NavigationHelper.stepDistanceRemaining(
+            location, 0, 1, routeGeometry, SegmentCursor(), SegmentProjection()
+        )
+
+        assertEquals(
+            TurfMeasurement.length(stepPoints.drop(1), TurfUnit.METERS),
+            stepDistanceRemaining,
+            LARGE_DELTA
+        )
+    }
+
+    @Test
+    fun stepDistanceRemaining_fullStepWhenFarAway() {
+        val route = buildTestDirectionsRoute()
+        val routeGeometry = RouteGeometry.fromRoute(route)
+
+        val stepDistanceRemaining = NavigationHelper.stepDistanceRemaining(
+            buildDefaultLocationUpdate(0.0, 0.0), 0, 1, routeGeometry, SegmentCursor(), SegmentProjection()
+        )
+
+        assertEquals(routeGeometry.stepLength(0, 1), stepDistanceRemaining, DELTA)
+    }
+
+    @Test
+    fun fromRoute_directStorageMatchesHeapStorage() {
+        val route = buildTestDirectionsRoute(MULTI_LEG_ROUTE_FIXTURE)
+
+        assertSameGeometry(RouteGeometry.fromRoute(route), RouteGeometry.fromRoute(route, DirectGeometryStorage))
+    }
+
+    @Test
+    fun fromRoute_mappedFileStorageMatchesHeapStorage() {
+        val route = buildTestDirectionsRoute(MULTI_LEG_ROUTE_FIXTURE)
+        val directory = createTempDirectory().toFile()
+
+        val routeGeometry = RouteGeometry.fromRoute(route, MappedFileGeometryStorage(directory))
+
+        assertSameGeometry(RouteGeometry.fromRoute(route), routeGeometry)
+        assertTrue(directory.listFiles().isNullOrEmpty())
+        directory.delete()
+    }
+
+    @Test
+    fun stepPoints_notCachedWithStorageOutsideOfHeap() {
+        val route = buildTestDirectionsRoute()
+
+        val routeGeometry = RouteGeometry.fromRoute(route, DirectGeometryStorage)
+
+        assertNotSame(routeGeometry.stepPoints(0, 1), routeGeometry.stepPoints(0, 1))
+        assertEquals(routeGeometry.stepPoints(0, 1), routeGeometry.stepPoints(0, 1))
+    }
+
+    @Test
+    fun fromRoute_reusesUnchangedStepsOfPreviousGeometry() {
+        val previousRoute = buildTestDirectionsRoute()
+        val previous = RouteGeometry.fromRoute(previousRoute)
+        val previousStepPoints = previous.stepPoints(0, 1)
+        val firstStep = previousRoute.legs[0].steps[0]
+        val reroutedFirstStep = firstStep.copy(
+            geometry = PolylineUtils.encode(
+                PolylineUtils.decode(firstStep.geometry, Constants.PRECISION_6).drop(1),
+                Constants.PRECISION_6
+            )
+        )
+        val leg = previousRoute.legs[0]
+        val reroute = previousRoute.copy(
+            legs = listOf(leg.copy(steps = listOf(reroutedFirstStep) + leg.steps.drop(1))) + previousRoute.legs.drop(1)
+        )
+
+        val expected = RouteGeometry.fromRoute(reroute)
+        val routeGeometry = RouteGeometry.fromRoute(reroute, previous = previous)
+
+        assertSame(previousStepPoints, routeGeometry.stepPoints(0, 1))
+        assertEquals(expected.vertexCount, routeGeometry.vertexCount)
+        for (vertexIndex in 0 until expected.vertexCount) {
+            assertEquals(expected.longitude(vertexIndex), routeGeometry.longitude(vertexIndex))
+            assertEquals(expected.latitude(vertexIndex), routeGeometry.latitude(vertexIndex))
+            assertEquals(expected.distanceAlongRoute(vertexIndex), routeGeometry.distanceAlongRoute(vertexIndex), 1E-6)
+        }
+    }
+
+    private fun assertSameGeometry(expected: RouteGeometry, actual: RouteGeometry) {
+        assertEquals(expected.vertexCount, actual.vertexCount)
+        assertEquals(expected.length, actual.length)
+        for (vertexIndex in 0 until expected.vertexCount) {
+            assertEquals(expected.longitude(vertexIndex), actual.longitude(vertexIndex))
+            assertEquals(expected.latitude(vertexIndex), actual.latitude(vertexIndex))
+            assertEquals(expected.distanceAlongRoute(vertexIndex), actual.distanceAlongRoute(vertexIndex))
+        }
+    }
+
+    companion object {
+        private const val MULTI_LEG_ROUTE_FIXTURE = "directions_two_leg_route.json"
+    }
+}
@@ -0,0 +1,87 @@
+package org.maplibre.navigation.core.geometry
+
+import org.maplibre.navigation.core.BaseTest
+import kotlin.test.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertFalse
+import kotlin.test.assertTrue
+
+class RouteSegmentIndexTest : BaseTest() {
+
+    @Test
+    fun nearest_matchesFullSearchOverWholeRoute() {
+        val routeGeometry = RouteGeometry.fromRoute(buildTestDirectionsRoute(MULTI_LEG_ROUTE_FIXTURE))
+        val indexProjection = SegmentProjection()
+        val fullProjection = SegmentProjection()
+
+        for (vertexIndex in 0 until routeGeometry.vertexCount) {
+            val longitude = routeGeometry.longitude(vertexIndex) + 0.0001
+            val latitude = routeGeometry.latitude(vertexIndex) - 0.0001
+
+            routeGeometry.segmentIndex.nearest(longitude, latitude, 100.0, indexProjection)
+            routeGeometry.project(0, routeGeometry.vertexCount, longitude, latitude, fullProjection)
+
+            assertEquals(fullProjection.distance, indexProjection.distance, DELTA)
+        }
+    }
+
+    @Test
+    fun nearest_invalidWhenOutsideOfMaxDistance() {
+        val routeGeometry = RouteGeometry.fromRoute(buildTestDirectionsRoute())
+        val projection = SegmentProjection()
+
+        routeGeometry.segmentIndex.nearest(
+            routeGeometry.longitude(0) + 0.01,
+            routeGeometry.latitude(0),
+            50.0,
+            projection
+        )
+
+        assertFalse(projection.isValid)
+    }
+
+    @Test
+    fun nearest_onlyConsidersSegmentsOfRange() {
+        val routeGeometry = RouteGeometry.fromRoute(buildTestDirectionsRoute(MULTI_LEG_ROUTE_FIXTURE))
+        val fromSegment = routeGeometry.vertexCount / 2
+        val toSegment = fromSegment + 10
+        val indexProjection = SegmentProjection()
+        val rangeProjection = SegmentProjection()
+
+        for (vertexIndex in 0 until routeGeometry.vertexCount) {
+            val longitude = routeGeometry.longitude(vertexIndex) + 0.0001
+            val latitude = routeGeometry.latitude(vertexIndex) - 0.0001
+
+            routeGeometry.segmentIndex.nearest(longitude, latitude, 100.0, fromSegment, toSegment, indexProjection)
+            routeGeometry.project(fromSegment, toSegment + 1, longitude, latitude, rangeProjection)
+
+            if (indexProjection.isValid) {
+                assertTrue(indexProjection.segmentIndex in fromSegment until toSegment)
+                assertEquals(rangeProjection.distance, indexProjection.distance, DELTA)
+            } else {
+                assertTrue(rangeProjection.distance > 100.0)
+            }
+        }
+    }
+
+    @Test
+    fun legAndStepIndexOf_matchStepStartVertices() {
+        val route = buildTestDirectionsRoute(MULTI_LEG_ROUTE_FIXTURE)
+        val routeGeometry = RouteGeometry.fromRoute(route)
+
+        route.legs.forEachIndexed { legIndex, leg ->
+            leg.steps.indices
+                .filter { stepIndex -> routeGeometry.stepVertexCount(legIndex, stepIndex) > 0 }
+                .forEach { stepIndex ->
+                    val startVertex = routeGeometry.stepStartVertex(legIndex, stepIndex)
+
+                    assertEquals(legIndex, routeGeometry.legIndexOf(startVertex))
+                    assertEquals(stepIndex, routeGeometry.stepIndexOf(startVertex))
+                }
+        }
+    }
+
+    companion object {
+        private const val MULTI_LEG_ROUTE_FIXTURE = "directions_two_leg_route.json"
+    }
+}
@@ -0,0 +1,74 @@
+package org.maplibre.navigation.core.geometry
+
+import org.maplibre.navigation.core.BaseTest
+import kotlin.test.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertFailsWith
+import kotlin.test.assertFalse
+
+class SegmentCursorTest : BaseTest() {
+
+    @Test
+    fun project_matchesFullSearchWhileMovingAlongRoute() {
+        val routeGeometry = RouteGeometry.fromRoute(buildTestDirectionsRoute())
+        val cursor = SegmentCursor(windowSize = 2)
+        val cursorProjection = SegmentProjection()
+        val fullProjection = SegmentProjection()
+
+        for (vertexIndex in 0 until routeGeometry.vertexCount) {
+            val longitude = routeGeometry.longitude(vertexIndex) + 0.00001
+            val latitude = routeGeometry.latitude(vertexIndex) + 0.00001
+
+            cursor.project(routeGeometry, 0, routeGeometry.vertexCount, longitude, latitude, cursorProjection)
+            routeGeometry.project(0, routeGeometry.vertexCount, longitude, latitude, fullProjection)
+
+            assertEquals(fullProjection.distanceAlongRoute, cursorProjection.distanceAlongRoute, DELTA)
+            assertEquals(fullProjection.distance, cursorProjection.distance, DELTA)
+        }
+    }
+
+    @Test
+    fun project_recoversAfterJumpOutsideOfWindow() {
+        val routeGeometry = RouteGeometry.fromRoute(buildTestDirectionsRoute())
+        val cursor = SegmentCursor(windowSize = 1)
+        val projection = SegmentProjection()
+        val lastVertex = routeGeometry.vertexCount - 1
+
+        cursor.project(
+            routeGeometry,
+            0,
+            routeGeometry.vertexCount,
+            routeGeometry.longitude(0),
+            routeGeometry.latitude(0),
+            projection
+        )
+        cursor.project(
+            routeGeometry,
+            0,
+            routeGeometry.vertexCount,
+            routeGeometry.longitude(lastVertex),
+            routeGeometry.latitude(lastVertex),
+            projection
+        )
+
+        assertEquals(routeGeometry.length, projection.distanceAlongRoute, DELTA)
+        assertEquals(0.0, projection.distance, DELTA)
+    }
+
+    @Test
+    fun project_invalidForEmptyRange() {
+        val routeGeometry = RouteGeometry.fromRoute(buildTestDirectionsRoute())
+        val projection = SegmentProjection()
+
+        SegmentCursor().project(routeGeometry, 3, 3, 0.0, 0.0, projection)
+
+        assertFalse(projection.isValid)
+    }
+
+    @Test
+    fun windowSize_mustBePositive() {
+        assertFailsWith<IllegalArgumentException> {
+            SegmentCursor(windowSize = 0)
+        }
+    }
+}
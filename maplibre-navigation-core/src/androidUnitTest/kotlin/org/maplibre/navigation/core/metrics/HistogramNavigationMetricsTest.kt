@@ -0,0 +1,104 @@
+package org.maplibre.navigation.core.metrics
+
+import org.maplibre.navigation.core.BaseTest
+import kotlin.concurrent.thread
+import kotlin.test.Test
+import kotlin.test.assertEquals
+import kotlin.time.Duration
+import kotlin.time.Duration.Companion.microseconds
+import kotlin.time.Duration.Companion.milliseconds
+import kotlin.time.Duration.Companion.seconds
+
+class HistogramNavigationMetricsTest : BaseTest() {
+
+    @Test
+    fun snapshot_countsDurationsPerStage() {
+        val metrics = HistogramNavigationMetrics()
+
+        metrics.onStageCompleted(NavigationStage.SNAP, 3.microseconds)
+        metrics.onStageCompleted(NavigationStage.SNAP, 5.microseconds)
+        metrics.onStageCompleted(NavigationStage.OFF_ROUTE, 200.milliseconds)
+
+        val snap = metrics.snapshot(NavigationStage.SNAP)
+        assertEquals(2L, snap.count)
+        assertEquals(8.microseconds, snap.total)
+        assertEquals(5.microseconds, snap.max)
+        assertEquals(4.microseconds, snap.mean)
+        assertEquals(1L, snap.bucketCounts[2])
+        assertEquals(1L, snap.bucketCounts[3])
+        assertEquals(1L, metrics.snapshot(NavigationStage.OFF_ROUTE).count)
+        assertEquals(0L, metrics.snapshot(NavigationStage.MILESTONES).count)
+    }
+
+    @Test
+    fun percentile_returnsBucketBoundCappedByMax() {
+        val metrics = HistogramNavigationMetrics()
+        repeat(99) { metrics.onStageCompleted(NavigationStage.ROUTE_PROGRESS, 10.microseconds) }
+        metrics.onStageCompleted(NavigationStage.ROUTE_PROGRESS, 200.milliseconds)
+
+        val histogram = metrics.snapshot(NavigationStage.ROUTE_PROGRESS)
+
+        assertEquals(16.microseconds, histogram.percentile(50.0))
+        assertEquals(16.microseconds, histogram.percentile(99.0))
+        assertEquals(200.milliseconds, histogram.percentile(100.0))
+    }
+
+    @Test
+    fun onStageCompleted_longDurationsCountedInLastBucket() {
+        val metrics = HistogramNavigationMetrics()
+
+        metrics.onStageCompleted(NavigationStage.DISPATCH, 5.seconds)
+
+        val histogram = metrics.snapshot(NavigationStage.DISPATCH)
+        assertEquals(1L, histogram.bucketCounts.last())
+        assertEquals(5.seconds, histogram.percentile(99.0))
+    }
+
+    @Test
+    fun onLocationsSkipped_countsDroppedAndCoalescedLocations() {
+        val metrics = HistogramNavigationMetrics()
+
+        metrics.onLocationsDropped(3)
+        metrics.onLocationsDropped(2)
+        metrics.onLocationsCoalesced(4)
+
+        assertEquals(5L, metrics.droppedLocations)
+        assertEquals(4L, metrics.coalescedLocations)
+    }
+
+    @Test
+    fun onStageCompleted_countsDurationsRecordedFromMultipleThreads() {
+        val metrics = HistogramNavigationMetrics()
+        val threads = List(THREAD_COUNT) {
+            thread {
+                repeat(RECORDS_PER_THREAD) {
+                    metrics.onStageCompleted(NavigationStage.DISPATCH, 3.microseconds)
+                    metrics.snapshot(NavigationStage.DISPATCH)
+                }
+            }
+        }
+        threads.forEach(Thread::join)
+
+        val histogram = metrics.snapshot(NavigationStage.DISPATCH)
+        assertEquals(THREAD_COUNT * RECORDS_PER_THREAD.toLong(), histogram.count)
+        assertEquals(THREAD_COUNT * RECORDS_PER_THREAD.toLong(), histogram.bucketCounts.sum())
+        assertEquals((THREAD_COUNT * RECORDS_PER_THREAD * 3).microseconds, histogram.total)
+    }
+
+    @Test
+    fun reset_removesRecordedDurations() {
+        val metrics = HistogramNavigationMetrics()
+        metrics.onStageCompleted(NavigationStage.VALIDATION, 1.microseconds)
+
+        metrics.reset()
+
+        val histogram = metrics.snapshot(NavigationStage.VALIDATION)
+        assertEquals(0L, histogram.count)
+        assertEquals(Duration.ZERO, histogram.percentile(50.0))
+    }
+
+    companion object {
+        private const val THREAD_COUNT = 4
+        private const val RECORDS_PER_THREAD = 10_000
+    }
+}
@@ -0,0 +1,66 @@
+package org.maplibre.navigation.core.milestone
+
+import org.maplibre.navigation.core.BaseTest
+import org.maplibre.navigation.core.models.LegStep
+import org.maplibre.navigation.core.utils.RouteInstructionIndex
+import org.maplibre.navigation.core.utils.RouteUtils
+import kotlin.test.Test
+import kotlin.test.assertNull
+import kotlin.test.assertSame
+
+class InstructionScheduleTest : BaseTest() {
+
+    private val routeUtils = RouteUtils()
+
+    @Test
+    fun current_matchesVoiceInstructionSearchAlongRoute() {
+        val route = buildTestDirectionsRoute(MULTI_LEG_ROUTE_FIXTURE)
+        val schedule = InstructionSchedule(route, RouteInstructionIndex(route).voiceInstructions)
+
+        route.legs.forEachIndexed { legIndex, leg ->
+            leg.steps.forEachIndexed { stepIndex, step ->
+                for (stepDistanceRemaining in distancesAlongStep(step)) {
+                    val expected = routeUtils.findCurrentVoiceInstructions(step, stepDistanceRemaining)
+
+                    assertSame(expected, schedule.current(legIndex, stepIndex, stepDistanceRemaining))
+                }
+            }
+        }
+    }
+
+    @Test
+    fun current_matchesBannerInstructionSearchWhenMovingBackwards() {
+        val route = buildTestDirectionsRoute(MULTI_LEG_ROUTE_FIXTURE)
+        val schedule = InstructionSchedule(route, RouteInstructionIndex(route).bannerInstructions)
+
+        route.legs.forEachIndexed { legIndex, leg ->
+            leg.steps.forEachIndexed { stepIndex, step ->
+                for (stepDistanceRemaining in distancesAlongStep(step).reversed()) {
+                    val expected = routeUtils.findCurrentBannerInstructions(step, stepDistanceRemaining)
+
+                    assertSame(expected, schedule.current(legIndex, stepIndex, stepDistanceRemaining))
+                }
+            }
+        }
+    }
+
+    @Test
+    fun current_nullForStepWithoutInstructions() {
+        val route = buildTestDirectionsRoute().let { route ->
+            route.copy(legs = route.legs.map { leg ->
+                leg.copy(steps = leg.steps.map { step -> step.copy(voiceInstructions = null) })
+            })
+        }
+        val schedule = InstructionSchedule(route, RouteInstructionIndex(route).voiceInstructions)
+
+        assertNull(schedule.current(0, 0, 10.0))
+    }
+
+    private fun distancesAlongStep(step: LegStep): List<Double> {
+        return (0..20).map { index -> step.distance * (20 - index) / 20.0 } + listOf(step.distance + 100.0, 0.0)
+    }
+
+    companion object {
+        private const val MULTI_LEG_ROUTE_FIXTURE = "directions_two_leg_route.json"
+    }
+}
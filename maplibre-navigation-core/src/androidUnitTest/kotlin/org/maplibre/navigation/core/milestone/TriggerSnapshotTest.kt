@@ -0,0 +1,118 @@
+package org.maplibre.navigation.core.milestone
+
+import org.maplibre.navigation.core.BaseTest
+import org.maplibre.navigation.core.models.DirectionsResponse
+import org.maplibre.navigation.core.routeprogress.RouteProgress
+import kotlin.test.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertFailsWith
+import kotlin.test.assertSame
+import kotlin.test.assertTrue
+
+class TriggerSnapshotTest : BaseTest() {
+
+    @Test
+    fun snapshotStatements_matchSparseArrayEvaluation() {
+        val previousRouteProgress = buildTriggerRouteProgress(stepIndex = 0)
+        val routeProgress = buildTriggerRouteProgress(stepIndex = 1)
+        val statementObjects = TriggerProperty.getSparseArray(previousRouteProgress, routeProgress)
+        val keys = statementObjects.keys
+        val values = listOf<Any>(
+            0, 1, 2, 100, 100.0, 2.5,
+            routeProgress.currentLegProgress.currentStep.distance,
+            routeProgress.currentLegProgress.currentStep.distance.toInt(),
+            TriggerProperty.TRUE_VALUE, TriggerProperty.FALSE_VALUE, TriggerProperty.TRUE_VALUE.toDouble()
+        )
+        val builders = listOf<(Int, Any) -> Trigger.Statement>(
+            Trigger::eq, Trigger::neq, Trigger::gt, Trigger::gte, Trigger::lt, Trigger::lte
+        )
+
+        for (key in keys) {
+            for (value in values) {
+                for (builder in builders) {
+                    val statement = builder(key, value)
+
+                    assertEquals(
+                        statement.isOccurring(statementObjects),
+                        statement.isOccurring(previousRouteProgress, routeProgress),
+                        "key $key, value $value"
+                    )
+                }
+            }
+        }
+    }
+
+    @Test
+    fun compoundStatements_matchSparseArrayEvaluation() {
+        val routeProgress = buildTriggerRouteProgress(stepIndex = 1)
+        val statementObjects = TriggerProperty.getSparseArray(routeProgress, routeProgress)
+        val statements = listOf(
+            Trigger.all(
+                Trigger.gt(TriggerProperty.STEP_DISTANCE_TOTAL_METERS, 100.0),
+                Trigger.eq(TriggerProperty.STEP_INDEX, 1)
+            ),
+            Trigger.any(
+                Trigger.eq(TriggerProperty.NEW_STEP, TriggerProperty.TRUE_VALUE),
+                Trigger.lt(TriggerProperty.STEP_DURATION_REMAINING_SECONDS, 1.0)
+            ),
+            Trigger.none(
+                Trigger.eq(TriggerProperty.FIRST_LEG, TriggerProperty.TRUE_VALUE),
+                Trigger.eq(TriggerProperty.LAST_STEP, TriggerProperty.TRUE_VALUE)
+            )
+        )
+
+        for (statement in statements) {
+            assertEquals(
+                statement.isOccurring(statementObjects),
+                statement.isOccurring(routeProgress, routeProgress)
+            )
+        }
+    }
+
+    @Test
+    fun missingProperty_failsLikeSparseArrayEvaluation() {
+        val routeProgress = buildTriggerRouteProgress(stepIndex = 1)
+        val statement = Trigger.eq(TriggerProperty.NEW_STEP, TriggerProperty.TRUE_VALUE)
+
+        assertFailsWith<NoSuchElementException> {
+            statement.isOccurring(null, routeProgress)
+        }
+    }
+
+    @Test
+    fun customStatement_evaluatedWithSparseArray() {
+        val routeProgress = buildTriggerRouteProgress(stepIndex = 1)
+        val customStatement = object : Trigger.Statement() {
+            override fun isOccurring(statementObjects: HashMap<Int, Array<Number>>): Boolean {
+                return statementObjects.getValue(TriggerProperty.STEP_INDEX)[0] == 1
+            }
+        }
+
+        assertTrue(Trigger.all(customStatement).isOccurring(routeProgress, routeProgress))
+    }
+
+    @Test
+    fun triggerSnapshot_createdOncePerRouteProgress() {
+        val routeProgress = buildTriggerRouteProgress(stepIndex = 1)
+
+        assertSame(routeProgress.triggerSnapshot, routeProgress.triggerSnapshot)
+    }
+
+    private fun buildTriggerRouteProgress(stepIndex: Int): RouteProgress {
+        val body = loadJsonFixture(ROUTE_FIXTURE)
+        val response = DirectionsResponse.fromJson(body)
+        val route = response.routes[0]
+        return buildTestRouteProgress(
+            route,
+            route.legs[0].steps[stepIndex].distance,
+            route.legs[0].distance,
+            route.distance,
+            stepIndex,
+            0
+        )
+    }
+
+    companion object {
+        private const val ROUTE_FIXTURE = "directions_v5_precision_6.json"
+    }
+}
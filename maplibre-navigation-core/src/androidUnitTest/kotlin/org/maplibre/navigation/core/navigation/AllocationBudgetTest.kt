@@ -0,0 +1,341 @@
+package org.maplibre.navigation.core.navigation
+
+import kotlinx.coroutines.CompletableDeferred
+import kotlinx.coroutines.DelicateCoroutinesApi
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.flow
+import kotlinx.coroutines.newSingleThreadContext
+import kotlinx.coroutines.runBlocking
+import kotlinx.coroutines.test.resetMain
+import kotlinx.coroutines.test.setMain
+import kotlinx.coroutines.withTimeout
+import org.junit.Assume.assumeTrue
+import org.maplibre.navigation.core.BaseTest
+import org.maplibre.navigation.core.location.Location
+import org.maplibre.navigation.core.location.engine.LocationEngine
+import org.maplibre.navigation.core.location.replay.ReplayRouteLocationConverter
+import org.maplibre.navigation.core.metrics.NavigationMetrics
+import org.maplibre.navigation.core.metrics.NavigationStage
+import org.maplibre.navigation.core.models.DirectionsRoute
+import org.maplibre.navigation.core.offroute.OffRouteDetector
+import org.maplibre.navigation.core.snap.SnapToRoute
+import org.maplibre.navigation.core.utils.RouteUtils
+import java.lang.management.ManagementFactory
+import kotlin.test.AfterTest
+import kotlin.test.BeforeTest
+import kotlin.test.Test
+import kotlin.test.assertTrue
+import kotlin.time.Duration
+
+/**
+ * Guards the bytes allocated per location update by the stages of the navigation pipeline.
+ *
+ * Every fixture route is replayed with one location per second, once on the route and once with
+ * the locations moved away from it. The first replay warms up class loading and the per-route
+ * caches, the second one is measured with the allocation counter of the current thread. The first
+ * location update of a replay sets up the route and is not measured. Like the
+ * [org.maplibre.navigation.core.navigation.trace.NavigationTraceProcessor], the upcoming step is
+ * prepared after every location update.
+ *
+ * Every stage of a location update has a budget for the mean and for the maximum bytes of a single
+ * location update. The mean fails if a stage starts to allocate on every location update again,
+ * the maximum fails if a single update allocates in proportion to the route, like decoding a step
+ * on a step change. The preparation of the upcoming step decodes a step and measures its
+ * intersections, so it has a budget per step instead, measured on the first location update of
+ * every step, which prepares the upcoming step.
+ *
+ * In [MapLibreNavigationOptions.lowAllocationMode], a whole location update processed by the
+ * navigation engine has a budget as well, to guard that it stays bounded after the route was set
+ * up. The upcoming step is prepared in the background there, so location updates which enter a
+ * step are not measured, in case the preparation had not finished yet.
+ */
+@OptIn(ExperimentalCoroutinesApi::class, DelicateCoroutinesApi::class)
+class AllocationBudgetTest : BaseTest() {
+
+    private val threadMXBean = ManagementFactory.getThreadMXBean() as com.sun.management.ThreadMXBean
+    private val mainThreadSurrogate = newSingleThreadContext("UI thread")
+
+    @BeforeTest
+    fun setUp() {
+        assumeTrue(threadMXBean.isThreadAllocatedMemorySupported)
+        threadMXBean.isThreadAllocatedMemoryEnabled = true
+        Dispatchers.setMain(mainThreadSurrogate)
+    }
+
+    @AfterTest
+    fun tearDown() {
+        Dispatchers.resetMain()
+        mainThreadSurrogate.close()
+    }
+
+    @Test
+    fun replayAlongRoute_staysWithinAllocationBudgets() {
+        for (fixture in ROUTE_FIXTURES) {
+            val route = buildTestDirectionsRoute(fixture)
+            val locations = replayLocations(route)
+
+            assertWithinBudgets(fixture, route, locations)
+        }
+    }
+
+    @Test
+    fun replayOffRoute_staysWithinAllocationBudgets() {
+        for (fixture in ROUTE_FIXTURES) {
+            val route = buildTestDirectionsRoute(fixture)
+            val locations = replayLocations(route).map { location ->
+                location.copy(latitude = location.latitude + OFF_ROUTE_LATITUDE_OFFSET)
+            }
+
+            assertWithinBudgets("$fixture (off-route)", route, locations)
+        }
+    }
+
+    @Test
+    fun navigationEngineInLowAllocationMode_staysWithinAllocationBudget() {
+        for (fixture in ROUTE_FIXTURES) {
+            val route = buildTestDirectionsRoute(fixture)
+            val locations = replayLocations(route)
+
+            replayThroughEngine(route, locations)
+            val allocations = replayThroughEngine(route, locations)
+
+            assertTrue(allocations.count > 0, "$fixture: no location update was measured")
+            assertWithinBudget(fixture, "processLocationUpdate", allocations.result(), LOW_ALLOCATION_ENGINE_BUDGET)
+        }
+    }
+
+    private fun assertWithinBudgets(name: String, route: DirectionsRoute, locations: List<Location>) {
+        replay(route, locations)
+        val allocations = replay(route, locations)
+
+        assertWithinBudget(name, "buildNewRouteProgress", allocations.routeProgress, ROUTE_PROGRESS_BUDGET)
+        assertWithinBudget(name, "isUserOffRoute", allocations.offRoute, OFF_ROUTE_BUDGET)
+        assertWithinBudget(name, "getSnappedLocation", allocations.snap, SNAP_BUDGET)
+        assertWithinBudget(
+            name,
+            "prepareUpcomingStep",
+            allocations.prepareUpcomingStep,
+            PREPARE_UPCOMING_STEP_BUDGET,
+            unit = "step"
+        )
+    }
+
+    private fun assertWithinBudget(
+        name: String,
+        stage: String,
+        allocations: StageAllocations,
+        budget: Budget,
+        unit: String = "fix"
+    ) {
+        assertTrue(
+            allocations.mean <= budget.meanBytes,
+            "$name: $stage allocates ${allocations.mean} bytes per $unit on average, budget is ${budget.meanBytes}"
+        )
+        assertTrue(
+            allocations.max <= budget.maxBytes,
+            "$name: $stage allocates up to ${allocations.max} bytes on a single $unit, budget is ${budget.maxBytes}"
+        )
+    }
+
+    /**
+     * Processes all locations like the [org.maplibre.navigation.core.navigation.trace.NavigationTraceProcessor],
+     * with new instances of every stage, and measures each stage separately.
+     */
+    private fun replay(route: DirectionsRoute, locations: List<Location>): Allocations {
+        val options = MapLibreNavigationOptions()
+        val routeProcessor = NavigationRouteProcessor(RouteUtils())
+        val offRouteDetector = OffRouteDetector(routeProcessor)
+        val snapEngine = SnapToRoute()
+
+        val routeProgressBytes = StageAllocations.Recorder()
+        val offRouteBytes = StageAllocations.Recorder()
+        val snapBytes = StageAllocations.Recorder()
+        val prepareUpcomingStepBytes = StageAllocations.Recorder()
+        var preparedLegIndex = -1
+        var preparedStepIndex = -1
+        for ((index, location) in locations.withIndex()) {
+            var start = threadMXBean.currentThreadAllocatedBytes
+            val routeProgress = routeProcessor.buildNewRouteProgress(route, options, offRouteDetector, location)
+            val routeProgressAllocated = threadMXBean.currentThreadAllocatedBytes - start
+
+            start = threadMXBean.currentThreadAllocatedBytes
+            val userOffRoute = offRouteDetector.isUserOffRoute(location, routeProgress, options)
+            val offRouteAllocated = threadMXBean.currentThreadAllocatedBytes - start
+            routeProcessor.checkIncreaseIndex(route, offRouteDetector)
+
+            if (!userOffRoute) {
+                start = threadMXBean.currentThreadAllocatedBytes
+                snapEngine.getSnappedLocation(location, routeProgress)
+                val snapAllocated = threadMXBean.currentThreadAllocatedBytes - start
+                if (index > 0) {
+                    snapBytes.record(snapAllocated)
+                }
+            }
+            routeProcessor.routeProgress = routeProgress
+            start = threadMXBean.currentThreadAllocatedBytes
+            routeProcessor.prepareUpcomingStep()
+            val prepareUpcomingStepAllocated = threadMXBean.currentThreadAllocatedBytes - start
+            if (routeProgress.legIndex != preparedLegIndex || routeProgress.stepIndex != preparedStepIndex) {
+                preparedLegIndex = routeProgress.legIndex
+                preparedStepIndex = routeProgress.stepIndex
+                prepareUpcomingStepBytes.record(prepareUpcomingStepAllocated)
+            }
+
+            if (index > 0) {
+                routeProgressBytes.record(routeProgressAllocated)
+                offRouteBytes.record(offRouteAllocated)
+            }
+        }
+
+        return Allocations(
+            routeProgress = routeProgressBytes.result(),
+            offRoute = offRouteBytes.result(),
+            snap = snapBytes.result(),
+            prepareUpcomingStep = prepareUpcomingStepBytes.result()
+        )
+    }
+
+    /**
+     * Replays all locations through a navigation session in low allocation mode and measures every
+     * location update on the thread processing it, from its validation to its dispatch.
+     */
+    private fun replayThroughEngine(
+        route: DirectionsRoute,
+        locations: List<Location>
+    ): StageAllocations.Recorder {
+        val locationEngine = ReplayLocationEngine(locations)
+        val navigation = MapLibreNavigation(
+            options = MapLibreNavigationOptions(lowAllocationMode = true),
+            locationEngine = locationEngine
+        )
+        val metrics = LocationUpdateAllocationMetrics(navigation.stateHolder)
+        navigation.metrics = metrics
+
+        navigation.startNavigation(route)
+        runBlocking {
+            withTimeout(REPLAY_TIMEOUT_MILLISECONDS) { locationEngine.replayed.await() }
+        }
+        navigation.onDestroy()
+
+        return metrics.locationUpdateBytes
+    }
+
+    private fun replayLocations(route: DirectionsRoute): List<Location> {
+        val converter = ReplayRouteLocationConverter(route, 50, 1)
+        converter.initializeTime()
+
+        val stepCount = route.legs.sumOf { leg -> leg.steps.size }
+        return (0 until stepCount).flatMap { converter.toLocations() }
+    }
+
+    /**
+     * Bytes allocated per location update by each stage, and per step by the preparation of the
+     * upcoming step.
+     */
+    private data class Allocations(
+        val routeProgress: StageAllocations,
+        val offRoute: StageAllocations,
+        val snap: StageAllocations,
+        val prepareUpcomingStep: StageAllocations
+    )
+
+    /**
+     * Mean and maximum bytes allocated by a stage for a single location update.
+     */
+    private data class StageAllocations(
+        val mean: Long,
+        val max: Long
+    ) {
+        class Recorder {
+            private var total = 0L
+            private var max = 0L
+            var count = 0
+                private set
+
+            fun record(bytes: Long) {
+                total += bytes
+                max = maxOf(max, bytes)
+                count++
+            }
+
+            fun result(): StageAllocations {
+                return StageAllocations(
+                    mean = if (count > 0) total / count else 0L,
+                    max = max
+                )
+            }
+        }
+    }
+
+    /**
+     * Starts navigation at the first location and emits all following locations.
+     */
+    private class ReplayLocationEngine(private val locations: List<Location>) : LocationEngine {
+        val replayed = CompletableDeferred<Unit>()
+
+        override fun listenToLocation(request: LocationEngine.Request): Flow<Location> = flow {
+            for (location in locations.drop(1)) {
+                emit(location)
+            }
+            replayed.complete(Unit)
+        }
+
+        override suspend fun getLastLocation(): Location = locations.first()
+    }
+
+    /**
+     * Measures the bytes allocated by every location update on the thread processing it, between
+     * its validation and the end of the update. The first location update sets up the route and
+     * location updates entering a step are skipped.
+     */
+    private inner class LocationUpdateAllocationMetrics(
+        private val stateHolder: NavigationStateHolder
+    ) : NavigationMetrics {
+        val locationUpdateBytes = StageAllocations.Recorder()
+        private var start = 0L
+        private var legIndex = -1
+        private var stepIndex = -1
+
+        override fun onStageCompleted(stage: NavigationStage, duration: Duration) {
+            when (stage) {
+                NavigationStage.VALIDATION -> start = threadMXBean.currentThreadAllocatedBytes
+                NavigationStage.LOCATION_UPDATE -> {
+                    val allocated = threadMXBean.currentThreadAllocatedBytes - start
+                    val routeProgress = stateHolder.state.value?.routeProgress ?: return
+                    if (routeProgress.legIndex == legIndex && routeProgress.stepIndex == stepIndex) {
+                        locationUpdateBytes.record(allocated)
+                    }
+                    legIndex = routeProgress.legIndex
+                    stepIndex = routeProgress.stepIndex
+                }
+                // Dispatched on the main thread and prepared in the background
+                else -> Unit
+            }
+        }
+    }
+
+    private data class Budget(
+        val meanBytes: Long,
+        val maxBytes: Long
+    )
+
+    companion object {
+        private val ROUTE_FIXTURES = listOf(
+            "directions_v5.json",
+            "directions_two_leg_route.json",
+            "directions_three_leg_single_step_route.json",
+            "long_step.json"
+        )
+
+        private const val OFF_ROUTE_LATITUDE_OFFSET = 0.01
+        private const val REPLAY_TIMEOUT_MILLISECONDS = 30_000L
+
+        private val ROUTE_PROGRESS_BUDGET = Budget(meanBytes = 4 * 1024L, maxBytes = 16 * 1024L)
+        private val OFF_ROUTE_BUDGET = Budget(meanBytes = 2 * 1024L, maxBytes = 8 * 1024L)
+        private val SNAP_BUDGET = Budget(meanBytes = 1024L, maxBytes = 4 * 1024L)
+        private val PREPARE_UPCOMING_STEP_BUDGET = Budget(meanBytes = 32 * 1024L, maxBytes = 128 * 1024L)
+        private val LOW_ALLOCATION_ENGINE_BUDGET = Budget(meanBytes = 8 * 1024L, maxBytes = 32 * 1024L)
+    }
+}
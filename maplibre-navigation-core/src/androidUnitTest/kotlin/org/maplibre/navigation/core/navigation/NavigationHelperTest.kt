@@ -5,6 +5,8 @@ import io.mockk.mockk
 import org.maplibre.geojson.model.Point
 import org.maplibre.geojson.utils.PolylineUtils
 import org.maplibre.navigation.core.BaseTest
+import org.maplibre.navigation.core.geometry.RouteGeometry
+import org.maplibre.navigation.core.milestone.Milestone
 import org.maplibre.navigation.core.milestone.StepMilestone
 import org.maplibre.navigation.core.milestone.Trigger.eq
 import org.maplibre.navigation.core.milestone.TriggerProperty
@@ -35,6 +37,7 @@ import kotlin.test.assertTrue
 import kotlin.test.assertFalse
 import kotlin.test.assertEquals
 import kotlin.test.assertNotSame
+import kotlin.test.assertSame
 
 class NavigationHelperTest : BaseTest() {
     @Test
@@ -102,6 +105,22 @@ class NavigationHelperTest : BaseTest() {
         assertNotSame(1002, triggeredMilestones[0].identifier)
     }
 
+    @Test
+    fun checkMilestones_collectsTriggeredMilestonesIntoGivenList() {
+        val routeProgress = buildMultiLegRouteProgress()
+        val triggered = StepMilestone(identifier = 1001, trigger = eq(TriggerProperty.STEP_INDEX, 0))
+        val milestones = listOf(
+            triggered,
+            StepMilestone(identifier = 1002, trigger = eq(TriggerProperty.STEP_INDEX, 4))
+        )
+        val triggeredMilestones = mutableListOf<Milestone>(milestones[1])
+
+        val result = checkMilestones(routeProgress, routeProgress, milestones, triggeredMilestones)
+
+        assertSame(triggeredMilestones, result)
+        assertEquals(listOf<Milestone>(triggered), triggeredMilestones)
+    }
+
     @Test
     @Throws(Exception::class)
     fun offRouteDetectionDisabled_isOffRouteReturnsFalse() {
@@ -234,6 +253,55 @@ class NavigationHelperTest : BaseTest() {
         assertTrue(currentStepIntersections.size == intersectionDistances.size)
     }
 
+    @Test
+    @Throws(Exception::class)
+    fun createIntersectionDistanceList_routeGeometryMatchesStepPoints() {
+        val route = buildMultiLegRoute()
+        val routeGeometry = RouteGeometry.fromRoute(route)
+
+        route.legs.forEachIndexed { legIndex, leg ->
+            leg.steps.forEachIndexed { stepIndex, step ->
+                val intersections = createIntersectionsList(step, leg.steps.getOrNull(stepIndex + 1))
+                val expected = createDistancesToIntersections(
+                    PolylineUtils.decode(step.geometry, Constants.PRECISION_6), intersections
+                )
+
+                val intersectionDistances = createDistancesToIntersections(
+                    routeGeometry, legIndex, stepIndex, intersections
+                )
+
+                assertEquals(expected.size, intersectionDistances.size)
+                expected.values.forEachIndexed { index, distance ->
+                    assertEquals(distance, intersectionDistances[index], 1E-6)
+                }
+            }
+        }
+    }
+
+    @Test
+    @Throws(Exception::class)
+    fun createIntersectionDistanceList_routeGeometryMeasuresIntersectionsBetweenVertices() {
+        val route = buildMultiLegRoute()
+        val routeGeometry = RouteGeometry.fromRoute(route)
+        val stepPoints = routeGeometry.stepPoints(0, 0)
+        val intersections = stepPoints.zipWithNext { start, end ->
+            StepIntersection(
+                location = Point(
+                    (start.longitude + end.longitude) / 2,
+                    (start.latitude + end.latitude) / 2
+                )
+            )
+        }
+        val expected = createDistancesToIntersections(stepPoints, intersections)
+
+        val intersectionDistances = createDistancesToIntersections(routeGeometry, 0, 0, intersections)
+
+        assertEquals(intersections.size, intersectionDistances.size)
+        intersections.forEachIndexed { index, intersection ->
+            assertEquals(expected.getValue(intersection), intersectionDistances[index], 0.01)
+        }
+    }
+
     @Test
     @Throws(Exception::class)
     fun createIntersectionDistanceList_emptyStepPointsReturnsEmptyList() {
@@ -13,6 +13,7 @@ import kotlin.test.assertTrue
 import kotlin.test.assertNotNull
 import kotlin.test.assertEquals
 import kotlin.test.assertNotEquals
+import kotlin.test.assertNull
 
 class NavigationRouteProcessorTest : BaseTest() {
     private var routeProcessor: NavigationRouteProcessor? = null
@@ -167,6 +168,64 @@ class NavigationRouteProcessorTest : BaseTest() {
         assertTrue(progress.currentLegProgress.stepIndex == stepSize - 1)
     }
 
+    @Test
+    fun prepareUpcomingStep_increasedIndexMatchesUnpreparedStep() {
+        val preparedProcessor = NavigationRouteProcessor(RouteUtils())
+        val location = buildDefaultLocationUpdate(-77.034043, 38.900205)
+        preparedProcessor.buildNewRouteProgress(navigation!!, location)
+        routeProcessor!!.buildNewRouteProgress(navigation!!, location)
+
+        preparedProcessor.prepareUpcomingStep()
+        preparedProcessor.onShouldIncreaseIndex()
+        preparedProcessor.checkIncreaseIndex(navigation!!)
+        routeProcessor!!.onShouldIncreaseIndex()
+        routeProcessor!!.checkIncreaseIndex(navigation!!)
+
+        val prepared = preparedProcessor.buildNewRouteProgress(navigation!!, location)
+        val expected = routeProcessor!!.buildNewRouteProgress(navigation!!, location)
+        assertEquals(expected.stepIndex, prepared.stepIndex)
+        assertEquals(expected.currentStepPoints, prepared.currentStepPoints)
+        assertEquals(expected.upcomingStepPoints, prepared.upcomingStepPoints)
+        assertEquals(
+            expected.currentLegProgress.currentStepProgress.intersections,
+            prepared.currentLegProgress.currentStepProgress.intersections
+        )
+        assertEquals(
+            expected.currentLegProgress.currentStepProgress.intersectionDistancesAlongStep,
+            prepared.currentLegProgress.currentStepProgress.intersectionDistancesAlongStep
+        )
+    }
+
+    @Test
+    fun upcomingStepPreparation_preparedOnOtherThreadMatchesUnpreparedStep() {
+        val preparedProcessor = NavigationRouteProcessor(RouteUtils())
+        val location = buildDefaultLocationUpdate(-77.034043, 38.900205)
+        preparedProcessor.buildNewRouteProgress(navigation!!, location)
+        routeProcessor!!.buildNewRouteProgress(navigation!!, location)
+
+        val preparation = assertNotNull(preparedProcessor.upcomingStepPreparation())
+        assertNull(preparedProcessor.upcomingStepPreparation())
+        var preparedStep: NavigationRouteProcessor.PreparedStep? = null
+        val thread = Thread { preparedStep = preparation() }
+        thread.start()
+        thread.join()
+        preparedProcessor.usePreparedStep(preparedStep!!)
+        preparedProcessor.onShouldIncreaseIndex()
+        preparedProcessor.checkIncreaseIndex(navigation!!)
+        routeProcessor!!.onShouldIncreaseIndex()
+        routeProcessor!!.checkIncreaseIndex(navigation!!)
+
+        val prepared = preparedProcessor.buildNewRouteProgress(navigation!!, location)
+        val expected = routeProcessor!!.buildNewRouteProgress(navigation!!, location)
+        assertEquals(expected.stepIndex, prepared.stepIndex)
+        assertEquals(expected.currentStepPoints, prepared.currentStepPoints)
+        assertEquals(expected.upcomingStepPoints, prepared.upcomingStepPoints)
+        assertEquals(
+            expected.currentLegProgress.currentStepProgress.intersectionDistancesAlongStep,
+            prepared.currentLegProgress.currentStepProgress.intersectionDistancesAlongStep
+        )
+    }
+
     @Test
     @Throws(IOException::class)
     fun onNewRoute_testStepProgressSetCorrectly() {
@@ -259,4 +318,26 @@ class NavigationRouteProcessorTest : BaseTest() {
 
         assertTrue(firstProgressIndex != secondProgressIndex)
     }
+
+    @Test
+    @Throws(Exception::class)
+    fun onLocationUpdate_locationProjectionIsShared() {
+        val firstProgress =
+            routeProcessor!!.buildNewRouteProgress(navigation!!, mockk(relaxed = true))
+        val coordinates = createCoordinatesFromCurrentStep(firstProgress)
+        val rawLocation = buildDefaultLocationUpdate(
+            (coordinates[0].longitude + coordinates[1].longitude) / 2 + 0.00001,
+            (coordinates[0].latitude + coordinates[1].latitude) / 2
+        )
+
+        val progress = routeProcessor!!.buildNewRouteProgress(navigation!!, rawLocation)
+        val snappedLocation = buildSnappedLocation(
+            navigation!!, true, rawLocation, progress, false
+        )
+
+        val locationProjection = assertNotNull(progress.locationProjection)
+        assertTrue(locationProjection.isProjectionOf(rawLocation, progress.legIndex, progress.stepIndex))
+        assertEquals(locationProjection.latitude, snappedLocation.latitude, DELTA)
+        assertEquals(locationProjection.longitude, snappedLocation.longitude, DELTA)
+    }
 }
@@ -0,0 +1,54 @@
+package org.maplibre.navigation.core.navigation
+
+import io.mockk.mockk
+import kotlinx.coroutines.flow.toList
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.test.UnconfinedTestDispatcher
+import kotlinx.coroutines.test.runTest
+import org.maplibre.navigation.core.BaseTest
+import org.maplibre.navigation.core.milestone.Milestone
+import org.maplibre.navigation.core.milestone.TriggeredMilestone
+import kotlin.test.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertNull
+
+class NavigationStateHolderTest : BaseTest() {
+
+    @Test
+    fun publishState_keepsOnlyLatestState() {
+        val stateHolder = NavigationStateHolder()
+        val firstState = NavigationState(buildDefaultLocationUpdate(13.4, 52.5), mockk(), false)
+        val secondState = NavigationState(buildDefaultLocationUpdate(13.5, 52.5), mockk(), true)
+
+        stateHolder.publishState(firstState)
+        stateHolder.publishState(secondState)
+
+        assertEquals(secondState, stateHolder.state.value)
+    }
+
+    @Test
+    fun reset_clearsState() {
+        val stateHolder = NavigationStateHolder()
+        stateHolder.publishState(NavigationState(buildDefaultLocationUpdate(13.4, 52.5), mockk(), false))
+
+        stateHolder.reset()
+
+        assertNull(stateHolder.state.value)
+    }
+
+    @Test
+    fun publishTriggeredMilestone_allMilestonesDeliveredInOrder() = runTest {
+        val stateHolder = NavigationStateHolder()
+        val milestone = mockk<Milestone>()
+        val triggeredMilestones = mutableListOf<TriggeredMilestone>()
+        val collectJob = launch(UnconfinedTestDispatcher(testScheduler)) {
+            stateHolder.triggeredMilestones.toList(triggeredMilestones)
+        }
+
+        stateHolder.publishTriggeredMilestone(TriggeredMilestone(milestone, "first"))
+        stateHolder.publishTriggeredMilestone(TriggeredMilestone(milestone, "second"))
+        collectJob.cancel()
+
+        assertEquals(listOf("first", "second"), triggeredMilestones.map { triggered -> triggered.instruction })
+    }
+}
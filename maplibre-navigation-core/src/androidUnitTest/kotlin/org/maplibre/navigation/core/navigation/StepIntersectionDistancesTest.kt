@@ -0,0 +1,47 @@
+package org.maplibre.navigation.core.navigation
+
+import org.maplibre.geojson.model.Point
+import org.maplibre.navigation.core.BaseTest
+import org.maplibre.navigation.core.models.StepIntersection
+import kotlin.test.Test
+import kotlin.test.assertSame
+
+class StepIntersectionDistancesTest : BaseTest() {
+
+    private val intersections = (0 until 6).map { index ->
+        StepIntersection(location = Point(13.4 + index * 0.001, 52.5))
+    }
+
+    @Test
+    fun findCurrentIntersection_ascendingDistancesMatchNavigationHelper() {
+        val measuredIntersections = intersections.zip(listOf(0.0, 20.0, 20.0, 45.0, 80.0, 120.0)).toMap()
+
+        assertSameAsNavigationHelper(measuredIntersections)
+    }
+
+    @Test
+    fun findCurrentIntersection_unorderedDistancesMatchNavigationHelper() {
+        val measuredIntersections = intersections.zip(listOf(0.0, 50.0, 20.0, 45.0, 130.0, 120.0)).toMap()
+
+        assertSameAsNavigationHelper(measuredIntersections)
+    }
+
+    @Test
+    fun findCurrentIntersection_noMeasuredIntersectionsReturnsFirst() {
+        val intersectionDistances = StepIntersectionDistances(emptyMap())
+
+        assertSame(intersections[0], intersectionDistances.findCurrentIntersection(intersections, 30.0))
+    }
+
+    private fun assertSameAsNavigationHelper(measuredIntersections: Map<StepIntersection, Double>) {
+        val intersectionDistances = StepIntersectionDistances(measuredIntersections)
+
+        for (distance in listOf(-1.0, 0.0, 10.0, 20.0, 30.0, 45.0, 60.0, 80.0, 100.0, 120.0, 125.0, 200.0)) {
+            assertSame(
+                NavigationHelper.findCurrentIntersection(intersections, measuredIntersections, distance),
+                intersectionDistances.findCurrentIntersection(intersections, distance),
+                "distance $distance"
+            )
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package org.maplibre.navigation.core.navigation.engine
+
+import org.maplibre.navigation.core.BaseTest
+import org.maplibre.navigation.core.location.Location
+import org.maplibre.navigation.core.navigation.MapLibreNavigationOptions.LocationIngestionPolicy
+import kotlin.test.Test
+import kotlin.test.assertEquals
+
+class LocationIngestionTest : BaseTest() {
+
+    @Test
+    fun select_processAllKeepsAllLocations() {
+        val queued = locationsAt(0, 100, 200)
+
+        val selected = LocationIngestion.select(queued, LocationIngestionPolicy.PROCESS_ALL, WINDOW)
+
+        assertEquals(queued, selected)
+    }
+
+    @Test
+    fun select_latestOnlyKeepsLastLocation() {
+        val queued = locationsAt(0, 100, 200)
+
+        val selected = LocationIngestion.select(queued, LocationIngestionPolicy.LATEST_ONLY, WINDOW)
+
+        assertEquals(listOf(queued.last()), selected)
+    }
+
+    @Test
+    fun select_timeWindowKeepsLatestLocationOfEveryWindow() {
+        val queued = locationsAt(0, 400, 900, 1000, 1500, 2500)
+
+        val selected = LocationIngestion.select(queued, LocationIngestionPolicy.TIME_WINDOW, WINDOW)
+
+        assertEquals(listOf(900L, 1500L, 2500L), selected.map { location -> location.time })
+    }
+
+    @Test
+    fun select_timeWindowKeepsLocationsWithoutTime() {
+        val queued = listOf(
+            Location(latitude = 1.0, longitude = 1.0),
+            Location(latitude = 2.0, longitude = 2.0)
+        )
+
+        val selected = LocationIngestion.select(queued, LocationIngestionPolicy.TIME_WINDOW, WINDOW)
+
+        assertEquals(queued, selected)
+    }
+
+    private fun locationsAt(vararg times: Long): List<Location> {
+        return times.map { time -> Location(latitude = 52.5, longitude = 13.4, time = time) }
+    }
+
+    companion object {
+        private const val WINDOW = 1000L
+    }
+}
@@ -0,0 +1,111 @@
+package org.maplibre.navigation.core.navigation.engine
+
+import kotlinx.coroutines.test.runTest
+import org.maplibre.navigation.core.BaseTest
+import org.maplibre.navigation.core.location.Location
+import org.maplibre.navigation.core.location.replay.ReplayRouteLocationConverter
+import org.maplibre.navigation.core.models.DirectionsRoute
+import org.maplibre.navigation.core.navigation.trace.NavigationTraceProcessor
+import kotlin.test.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertFailsWith
+import kotlin.test.assertSame
+
+class MultiSessionNavigationEngineTest : BaseTest() {
+
+    @Test
+    fun process_batchMatchesSingleTraceProcessing() = runTest {
+        val route = buildTestDirectionsRoute()
+        val locations = replayLocations(route)
+        val engine = MultiSessionNavigationEngine()
+        engine.registerRoute(ROUTE_ID, route)
+        engine.startSession(FIRST_SESSION_ID, ROUTE_ID)
+        engine.startSession(SECOND_SESSION_ID, ROUTE_ID)
+
+        val updates = engine.process(
+            locations.flatMap { location ->
+                listOf(
+                    SessionLocation(FIRST_SESSION_ID, location),
+                    SessionLocation(SECOND_SESSION_ID, location)
+                )
+            }
+        )
+
+        val expected = NavigationTraceProcessor(route).process(locations)
+            .map { update -> update.routeProgress.distanceRemaining }
+        assertEquals(expected, updates.filterIndexed { index, _ -> index % 2 == 0 }
+            .map { update -> update!!.routeProgress.distanceRemaining })
+        assertEquals(expected, updates.filterIndexed { index, _ -> index % 2 == 1 }
+            .map { update -> update!!.routeProgress.distanceRemaining })
+    }
+
+    @Test
+    fun process_singleFixesMatchSingleTraceProcessing() = runTest {
+        val route = buildTestDirectionsRoute()
+        val locations = replayLocations(route)
+        val engine = MultiSessionNavigationEngine()
+        engine.registerRoute(ROUTE_ID, route)
+        engine.startSession(FIRST_SESSION_ID, ROUTE_ID)
+
+        val updates = locations.map { location -> engine.process(FIRST_SESSION_ID, location) }
+
+        val expected = NavigationTraceProcessor(route).process(locations)
+        assertEquals(
+            expected.map { update -> update.routeProgress.distanceRemaining },
+            updates.map { update -> update!!.routeProgress.distanceRemaining }
+        )
+        assertEquals(
+            expected.map { update -> update.milestones.map { it.milestone.identifier } },
+            updates.map { update -> update!!.milestones.map { it.milestone.identifier } }
+        )
+    }
+
+    @Test
+    fun process_sessionsShareRouteGeometry() = runTest {
+        val route = buildTestDirectionsRoute()
+        val location = replayLocations(route).first()
+        val engine = MultiSessionNavigationEngine()
+        engine.registerRoute(ROUTE_ID, route)
+        engine.startSession(FIRST_SESSION_ID, ROUTE_ID)
+        engine.startSession(SECOND_SESSION_ID, ROUTE_ID)
+
+        val firstUpdate = engine.process(FIRST_SESSION_ID, location)!!
+        val secondUpdate = engine.process(SECOND_SESSION_ID, location)!!
+
+        assertSame(firstUpdate.routeProgress.routeGeometry, secondUpdate.routeProgress.routeGeometry)
+    }
+
+    @Test
+    fun process_stoppedSessionFails() = runTest {
+        val route = buildTestDirectionsRoute()
+        val engine = MultiSessionNavigationEngine()
+        engine.registerRoute(ROUTE_ID, route)
+        engine.startSession(FIRST_SESSION_ID, ROUTE_ID)
+        engine.stopSession(FIRST_SESSION_ID)
+
+        assertFailsWith<IllegalArgumentException> {
+            engine.process(FIRST_SESSION_ID, replayLocations(route).first())
+        }
+    }
+
+    @Test
+    fun startSession_unknownRouteFails() = runTest {
+        val engine = MultiSessionNavigationEngine()
+
+        assertFailsWith<IllegalArgumentException> {
+            engine.startSession(FIRST_SESSION_ID, ROUTE_ID)
+        }
+    }
+
+    private fun replayLocations(route: DirectionsRoute): List<Location> {
+        val converter = ReplayRouteLocationConverter(route, 50, 1)
+        converter.initializeTime()
+        return converter.toLocations()
+    }
+
+    companion object {
+        private const val ROUTE_ID = "route"
+        private const val FIRST_SESSION_ID = "first"
+        private const val SECOND_SESSION_ID = "second"
+    }
+}
@@ -0,0 +1,92 @@
+package org.maplibre.navigation.core.navigation.trace
+
+import org.maplibre.navigation.core.BaseTest
+import org.maplibre.navigation.core.location.Location
+import org.maplibre.navigation.core.location.replay.ReplayRouteLocationConverter
+import org.maplibre.navigation.core.milestone.VoiceInstructionMilestone
+import org.maplibre.navigation.core.models.DirectionsRoute
+import kotlin.test.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertNull
+import kotlin.test.assertTrue
+
+class NavigationTraceProcessorTest : BaseTest() {
+
+    @Test
+    fun process_returnsProgressForEveryFixAlongRoute() {
+        val route = buildTestDirectionsRoute()
+        val locations = replayLocations(route)
+        val processor = NavigationTraceProcessor(route)
+
+        val updates = processor.process(locations)
+
+        assertEquals(locations.size, updates.size)
+        assertTrue(updates.last().routeProgress.distanceRemaining < updates.first().routeProgress.distanceRemaining)
+    }
+
+    @Test
+    fun process_returnsTriggeredMilestonesWithInstructions() {
+        val route = buildTestDirectionsRoute()
+        val processor = NavigationTraceProcessor(route)
+
+        val milestones = processor.process(replayLocations(route))
+            .flatMap { update -> update.milestones }
+
+        assertTrue(milestones.isNotEmpty())
+        assertTrue(
+            milestones
+                .filter { triggeredMilestone -> triggeredMilestone.milestone is VoiceInstructionMilestone }
+                .all { triggeredMilestone -> triggeredMilestone.instruction != null }
+        )
+    }
+
+    @Test
+    fun process_sequenceMatchesList() {
+        val route = buildTestDirectionsRoute()
+        val locations = replayLocations(route)
+
+        val listUpdates = NavigationTraceProcessor(route).process(locations)
+        val sequenceUpdates = NavigationTraceProcessor(route).process(locations.asSequence()).toList()
+
+        assertEquals(
+            listUpdates.map { update -> update.routeProgress.distanceRemaining },
+            sequenceUpdates.map { update -> update.routeProgress.distanceRemaining }
+        )
+    }
+
+    @Test
+    fun process_inaccurateFixIsRejected() {
+        val route = buildTestDirectionsRoute()
+        val locations = replayLocations(route)
+        val processor = NavigationTraceProcessor(route)
+        processor.process(locations.first())
+
+        val update = processor.process(locations[1].copy(accuracyMeters = 500f))
+
+        assertNull(update)
+    }
+
+    @Test
+    fun process_fixFarAwayIsOffRoute() {
+        val route = buildTestDirectionsRoute()
+        val locations = replayLocations(route)
+        val processor = NavigationTraceProcessor(route)
+        processor.process(locations.take(10))
+
+        val offRouteUpdates = (1..5).mapNotNull { index ->
+            val location = locations[10 + index]
+            processor.process(location.copy(latitude = location.latitude + 0.01))
+        }
+
+        val offRouteUpdate = offRouteUpdates.first { update -> update.userOffRoute }
+        assertEquals(offRouteUpdate.rawLocation, offRouteUpdate.location)
+    }
+
+    private fun replayLocations(route: DirectionsRoute): List<Location> {
+        val converter = ReplayRouteLocationConverter(route, 50, 1)
+        converter.initializeTime()
+
+        val stepCount = route.legs.sumOf { leg -> leg.steps.size }
+        return (0 until stepCount).flatMap { converter.toLocations() }
+    }
+}
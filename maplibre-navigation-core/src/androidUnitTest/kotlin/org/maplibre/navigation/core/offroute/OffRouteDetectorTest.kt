@@ -5,9 +5,14 @@ import io.mockk.mockk
 import io.mockk.verify
 import org.maplibre.geojson.model.LineString
 import org.maplibre.geojson.model.Point
+import org.maplibre.geojson.turf.TurfMeasurement
+import org.maplibre.geojson.turf.TurfUnit
+import org.maplibre.geojson.utils.PolylineUtils
 import org.maplibre.navigation.core.BaseTest
+import org.maplibre.navigation.core.geometry.RouteGeometry
 import org.maplibre.navigation.core.location.Location
 import org.maplibre.navigation.core.models.LegStep
+import org.maplibre.navigation.core.models.StepIntersection
 import org.maplibre.navigation.core.navigation.MapLibreNavigationOptions
 import org.maplibre.navigation.core.routeprogress.RouteProgress
 import org.maplibre.navigation.core.utils.Constants
@@ -484,6 +489,93 @@ class OffRouteDetectorTest : BaseTest() {
         assertFalse(isUserOffRouteThirdTry)
     }
 
+    @Test
+    fun isUserOffRoute_doesNotRejoinSameStreetFarAheadOnOutAndBackRoute() {
+        val routeProgress = buildOutAndBackRouteProgress()
+        val callback = mockk<OffRouteCallback>(relaxed = true)
+        val offRouteDetector = OffRouteDetector(callback)
+        offRouteDetector.isUserOffRoute(
+            buildDefaultLocationUpdate(START_LONGITUDE, START_LATITUDE),
+            routeProgress,
+            defaultOptions
+        )
+
+        // Off the way out, next to the way back about 2 km ahead along the route
+        val isUserOffRoute = offRouteDetector.isUserOffRoute(
+            buildDefaultLocationUpdate(START_LONGITUDE + 0.005, START_LATITUDE + 0.0006),
+            routeProgress,
+            defaultOptions
+        )
+
+        assertTrue(isUserOffRoute)
+        verify(exactly = 0) {
+            callback.onShouldUpdateToIndex(any(), any())
+        }
+    }
+
+    @Test
+    fun isUserOffRoute_rejoinsRouteAheadWithinWindowOnOutAndBackRoute() {
+        val routeProgress = buildOutAndBackRouteProgress()
+        val callback = mockk<OffRouteCallback>(relaxed = true)
+        val offRouteDetector = OffRouteDetector(callback)
+        offRouteDetector.isUserOffRoute(
+            buildDefaultLocationUpdate(START_LONGITUDE, START_LATITUDE),
+            routeProgress,
+            defaultOptions
+        )
+
+        // Off the way out, next to the way back about 400 m after the turn
+        val isUserOffRoute = offRouteDetector.isUserOffRoute(
+            buildDefaultLocationUpdate(START_LONGITUDE + 0.025, START_LATITUDE + 0.0006),
+            routeProgress,
+            defaultOptions
+        )
+
+        assertFalse(isUserOffRoute)
+        verify {
+            callback.onShouldUpdateToIndex(0, 2)
+        }
+    }
+
+    /**
+     * Route going 2.6 km east, turning and going back west on the other side of the same street,
+     * 45 m north of the way out. The progress is on the first step.
+     */
+    private fun buildOutAndBackRouteProgress(): RouteProgress {
+        val route = buildTestDirectionsRoute()
+        val leg = route.legs[0]
+        val start = Point(START_LONGITUDE, START_LATITUDE)
+        val turn = Point(START_LONGITUDE + 0.03, START_LATITUDE)
+        val turned = Point(START_LONGITUDE + 0.03, START_LATITUDE + 0.0004)
+        val end = Point(START_LONGITUDE, START_LATITUDE + 0.0004)
+        val stepGeometries = listOf(
+            listOf(start, Point(START_LONGITUDE + 0.015, START_LATITUDE), turn),
+            listOf(turn, turned),
+            listOf(turned, Point(START_LONGITUDE + 0.015, START_LATITUDE + 0.0004), end),
+            listOf(end, end)
+        )
+        val steps = stepGeometries.mapIndexed { index, points ->
+            leg.steps[index].copy(
+                geometry = PolylineUtils.encode(points, Constants.PRECISION_6),
+                distance = TurfMeasurement.length(points, TurfUnit.METERS),
+                intersections = listOf(StepIntersection(location = points.first()))
+            )
+        }
+        val outAndBackRoute = route.copy(
+            legs = listOf(leg.copy(steps = steps, distance = steps.sumOf { step -> step.distance })),
+            distance = steps.sumOf { step -> step.distance }
+        )
+
+        return buildTestRouteProgress(
+            outAndBackRoute,
+            steps[0].distance,
+            outAndBackRoute.distance,
+            outAndBackRoute.distance,
+            0,
+            0
+        ).copy(routeGeometry = RouteGeometry.fromRoute(outAndBackRoute))
+    }
+
     @Test
     fun isUserOffRoute_assertTrueWhenRouteDistanceRemainingIsZero() {
         val location = Location(provider = "test", latitude = 0.0, longitude = 0.0)
@@ -495,4 +587,9 @@ class OffRouteDetectorTest : BaseTest() {
 
         assertTrue(isOffRoute)
     }
+
+    companion object {
+        private const val START_LONGITUDE = -77.03
+        private const val START_LATITUDE = 38.9
+    }
 }
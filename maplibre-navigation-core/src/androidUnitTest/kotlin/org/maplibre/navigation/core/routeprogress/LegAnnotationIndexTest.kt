@@ -0,0 +1,58 @@
+package org.maplibre.navigation.core.routeprogress
+
+import org.maplibre.navigation.core.BaseTest
+import org.maplibre.navigation.core.models.DirectionsResponse
+import org.maplibre.navigation.core.models.RouteLeg
+import org.maplibre.navigation.core.navigation.NavigationHelper
+import kotlin.test.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertNull
+import kotlin.test.assertSame
+
+class LegAnnotationIndexTest : BaseTest() {
+
+    @Test
+    fun current_matchesCreateCurrentAnnotationWhileAdvancing() {
+        val leg = buildAnnotatedLeg()
+        val index = LegAnnotationIndex(leg)
+        var expected: CurrentLegAnnotation? = null
+        var actual: CurrentLegAnnotation? = null
+
+        for (step in 0..100) {
+            val legDistanceRemaining = leg.distance * (100 - step) / 100.0
+            expected = NavigationHelper.createCurrentAnnotation(expected, leg, legDistanceRemaining)
+            actual = index.current(actual, legDistanceRemaining)
+
+            assertEquals(expected!!.index, actual!!.index)
+            assertEquals(expected.distanceToAnnotation, actual.distanceToAnnotation, DELTA)
+            assertEquals(expected.distance, actual.distance, DELTA)
+            assertEquals(expected.congestion, actual.congestion)
+        }
+    }
+
+    @Test
+    fun current_reusesAnnotationOnSameSegment() {
+        val leg = buildAnnotatedLeg()
+        val index = LegAnnotationIndex(leg)
+        val annotation = index.current(null, leg.distance)
+
+        assertSame(annotation, index.current(annotation, leg.distance - 0.001))
+    }
+
+    @Test
+    fun current_nullWithoutDistanceAnnotations() {
+        val leg = buildAnnotatedLeg().copy(annotation = null)
+
+        assertNull(LegAnnotationIndex(leg).current(null, leg.distance))
+    }
+
+    private fun buildAnnotatedLeg(): RouteLeg {
+        val body = loadJsonFixture(ANNOTATED_DISTANCE_CONGESTION_ROUTE_FIXTURE)
+        return DirectionsResponse.fromJson(body).routes[0].legs[0]
+    }
+
+    companion object {
+        private const val ANNOTATED_DISTANCE_CONGESTION_ROUTE_FIXTURE =
+            "directions_distance_congestion_annotation.json"
+    }
+}
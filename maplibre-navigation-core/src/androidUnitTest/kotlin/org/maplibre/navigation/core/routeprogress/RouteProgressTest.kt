@@ -10,6 +10,7 @@ import kotlin.test.Test
 import kotlin.test.assertTrue
 import kotlin.test.assertNotNull
 import kotlin.test.assertEquals
+import kotlin.test.assertSame
 
 class RouteProgressTest : BaseTest() {
 
@@ -31,6 +32,18 @@ class RouteProgressTest : BaseTest() {
         assertEquals(route, beginningRouteProgress.directionsRoute)
     }
 
+    @Test
+    @Throws(Exception::class)
+    fun currentLegProgress_createdOncePerRouteProgress() {
+        val route = buildTestDirectionsRoute()
+        val beginningRouteProgress = buildBeginningOfLegRouteProgress(route)
+
+        val legProgress = beginningRouteProgress.currentLegProgress
+
+        assertSame(legProgress, beginningRouteProgress.currentLegProgress)
+        assertSame(legProgress.currentStepProgress, beginningRouteProgress.currentLegProgress.currentStepProgress)
+    }
+
     @Test
     @Throws(Exception::class)
     fun distanceRemaining_equalsRouteDistanceAtBeginning() {
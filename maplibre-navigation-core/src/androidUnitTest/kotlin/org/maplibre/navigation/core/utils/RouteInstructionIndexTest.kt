@@ -0,0 +1,72 @@
+package org.maplibre.navigation.core.utils
+
+import org.maplibre.navigation.core.BaseTest
+import kotlin.test.Test
+import kotlin.test.assertNotSame
+import kotlin.test.assertSame
+
+class RouteInstructionIndexTest : BaseTest() {
+
+    private val routeUtils = RouteUtils()
+
+    @Test
+    fun findCurrentInstructions_matchStepSearch() {
+        val route = buildTestDirectionsRoute(MULTI_LEG_ROUTE_FIXTURE)
+        val index = RouteInstructionIndex(route)
+
+        route.legs.forEachIndexed { legIndex, leg ->
+            leg.steps.forEachIndexed { stepIndex, step ->
+                val distances = (0..10).map { fraction -> step.distance * fraction / 10.0 } +
+                        listOf(step.distance + 100.0, Double.NaN)
+                for (stepDistanceRemaining in distances) {
+                    assertSame(
+                        routeUtils.findCurrentVoiceInstructions(step, stepDistanceRemaining),
+                        index.findCurrentVoiceInstructions(legIndex, stepIndex, stepDistanceRemaining)
+                    )
+                    assertSame(
+                        routeUtils.findCurrentBannerInstructions(step, stepDistanceRemaining),
+                        index.findCurrentBannerInstructions(legIndex, stepIndex, stepDistanceRemaining)
+                    )
+                }
+            }
+        }
+    }
+
+    @Test
+    fun instructionIndex_reusedUntilRouteChanges() {
+        val route = buildTestDirectionsRoute()
+        val otherRoute = buildTestDirectionsRoute(MULTI_LEG_ROUTE_FIXTURE)
+
+        val index = routeUtils.instructionIndex(route)
+
+        assertSame(index, routeUtils.instructionIndex(route))
+        assertNotSame(index, routeUtils.instructionIndex(otherRoute))
+    }
+
+    @Test
+    fun instructionIndex_givenIndexIsShared() {
+        val route = buildTestDirectionsRoute()
+        val index = RouteInstructionIndex(route)
+
+        assertSame(index, RouteUtils(index).instructionIndex(route))
+        assertSame(index, RouteUtils(index).instructionIndex(route))
+    }
+
+    @Test
+    fun findCurrentBannerInstructions_routeProgressMatchesStepSearch() {
+        val routeProgress = buildDefaultTestRouteProgress()
+        val legProgress = routeProgress.currentLegProgress
+
+        assertSame(
+            routeUtils.findCurrentBannerInstructions(
+                legProgress.currentStep,
+                legProgress.currentStepProgress.distanceRemaining
+            ),
+            routeUtils.findCurrentBannerInstructions(routeProgress)
+        )
+    }
+
+    companion object {
+        private const val MULTI_LEG_ROUTE_FIXTURE = "directions_two_leg_route.json"
+    }
+}
@@ -14,6 +14,7 @@ import kotlin.test.Test
 import kotlin.test.assertTrue
 import kotlin.test.assertFalse
 import kotlin.test.assertEquals
+import kotlin.test.assertNotEquals
 import kotlin.test.assertNull
 
 class RouteUtilsTest : BaseTest() {
@@ -52,6 +53,41 @@ class RouteUtilsTest : BaseTest() {
         assertTrue(isNewRoute)
     }
 
+    @Test
+    fun isNewRoute_returnsFalseForEqualRouteInstances() {
+        val defaultRouteProgress = buildDefaultTestRouteProgress()
+
+        val isNewRoute = routeUtils.isNewRoute(defaultRouteProgress, buildTestDirectionsRoute())
+
+        assertFalse(isNewRoute)
+    }
+
+    @Test
+    fun isNewRoute_returnsFalseForRefreshedRoute() {
+        val defaultRouteProgress = buildDefaultTestRouteProgress()
+        val route = defaultRouteProgress.directionsRoute
+        val refreshedRoute = route.copy(
+            duration = route.duration + 120.0,
+            routeOptions = route.routeOptions?.copy(requestUuid = "refreshed-uuid")
+        )
+
+        val isNewRoute = routeUtils.isNewRoute(defaultRouteProgress, refreshedRoute)
+
+        assertFalse(isNewRoute)
+    }
+
+    @Test
+    fun fingerprint_equalForEqualRoutes() {
+        assertEquals(buildTestDirectionsRoute().fingerprint, buildTestDirectionsRoute().fingerprint)
+    }
+
+    @Test
+    fun fingerprint_differsForDifferentGeometry() {
+        val route = buildTestDirectionsRoute()
+
+        assertNotEquals(route.fingerprint, route.copy(geometry = "vfejnqiv").fingerprint)
+    }
+
     @Test
     fun isArrivalEvent_returnsTrueWhenManeuverTypeIsArrival_andIsLastInstruction() {
         val route = buildTestDirectionsRoute()
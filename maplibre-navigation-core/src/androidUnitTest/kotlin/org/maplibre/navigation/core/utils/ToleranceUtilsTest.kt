@@ -3,6 +3,7 @@ package org.maplibre.navigation.core.utils
 import org.maplibre.geojson.model.LineString
 import org.maplibre.geojson.model.Point
 import org.maplibre.navigation.core.BaseTest
+import org.maplibre.navigation.core.geometry.LocationProjection
 import org.maplibre.navigation.core.navigation.MapLibreNavigationOptions
 import org.maplibre.geojson.turf.TurfMeasurement
 import org.maplibre.geojson.turf.TurfUnit
@@ -94,4 +95,32 @@ class ToleranceUtilsTest : BaseTest() {
 
         assertEquals(50.0, tolerance, DELTA)
     }
-}
\ No newline at end of file
+
+    @Test
+    fun dynamicRerouteDistanceTolerance_projectionCloseToIntersectionAlongStep() {
+        val routeProgress = buildDefaultTestRouteProgress()
+        val intersectionDistance = routeProgress.intersectionDistancesAlongStep!!.values.max()
+        val locationProjection = LocationProjection(
+            rawLongitude = 0.0,
+            rawLatitude = 0.0,
+            legIndex = 0,
+            stepIndex = 0,
+            segmentIndex = 0,
+            longitude = 0.0,
+            latitude = 0.0,
+            distanceAlongRoute = intersectionDistance - 10,
+            distanceAlongStep = intersectionDistance - 10,
+            distanceToStepEnd = 10.0,
+            distanceFromRoute = 0.0,
+            bearing = null
+        )
+
+        val tolerance = ToleranceUtils.dynamicOffRouteRadiusTolerance(
+            locationProjection,
+            routeProgress,
+            MapLibreNavigationOptions()
+        )
+
+        assertEquals(25.0, tolerance, DELTA)
+    }
+}
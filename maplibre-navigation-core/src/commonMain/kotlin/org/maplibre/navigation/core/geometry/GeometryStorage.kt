@@ -0,0 +1,65 @@
+package org.maplibre.navigation.core.geometry
+
+/**
+ * Storage backend for the primitive arrays of a decoded [RouteGeometry], like the packed
+ * coordinates and the distances along the route.
+ *
+ * By default, the arrays are kept on the heap with [HeapGeometryStorage]. For very long routes,
+ * an implementation can keep them outside of the heap, for example in a memory-mapped file,
+ * so the heap usage does not grow with the route length.
+ */
+interface GeometryStorage {
+
+    /**
+     * Whether the [RouteGeometry.stepPoints] of every step are cached once created. Storages
+     * keeping the geometry outside of the heap should return false, so the points of a step are
+     * only held by the caller while it is navigated.
+     */
+    val cachesStepPoints: Boolean
+        get() = true
+
+    /**
+     * Creates a new buffer of the given size, initialized with zeros.
+     *
+     * @param size number of values
+     * @return the new buffer
+     */
+    fun createBuffer(size: Int): GeometryBuffer
+}
+
+/**
+ * Fixed size buffer of double values, created by a [GeometryStorage].
+ *
+ * The buffer is written once while the [RouteGeometry] is created and only read afterward, also
+ * from multiple threads.
+ */
+interface GeometryBuffer {
+
+    /**
+     * Number of values in the buffer.
+     */
+    val size: Int
+
+    operator fun get(index: Int): Double
+
+    operator fun set(index: Int, value: Double)
+}
+
+/**
+ * Keeps the geometry in [DoubleArray]s on the heap.
+ */
+object HeapGeometryStorage : GeometryStorage {
+
+    override fun createBuffer(size: Int): GeometryBuffer = HeapGeometryBuffer(DoubleArray(size))
+
+    private class HeapGeometryBuffer(private val values: DoubleArray) : GeometryBuffer {
+        override val size: Int
+            get() = values.size
+
+        override fun get(index: Int): Double = values[index]
+
+        override fun set(index: Int, value: Double) {
+            values[index] = value
+        }
+    }
+}
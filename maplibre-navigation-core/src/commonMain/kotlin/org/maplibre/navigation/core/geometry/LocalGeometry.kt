@@ -0,0 +1,147 @@
+package org.maplibre.navigation.core.geometry
+
+import kotlin.jvm.JvmStatic
+import kotlin.math.PI
+import kotlin.math.atan2
+import kotlin.math.cos
+import kotlin.math.sin
+import kotlin.math.sqrt
+
+/**
+ * Geometry functions on primitive coordinates, used for the calculations done for every location
+ * update. No [org.maplibre.geojson.model.Point] objects are created.
+ *
+ * Besides the exact [haversineDistance], positions are compared in a plane flattened around the
+ * position (equirectangular projection), where longitude differences are scaled by the cosine of
+ * the latitude. Compared to the haversine formula and the great circle bearing used by Turf, the
+ * error of this local frame is
+ * - below a relative error of 1e-6 for [distance] (1 cm on 10 km) and
+ * - below 0.02 degrees for [bearing] on 1 km,
+ *
+ * for distances up to 10 km at latitudes between -70 and 70 degrees. Navigation only compares
+ * positions to nearby route segments, so the local frame is always used well within these bounds.
+ */
+object LocalGeometry {
+
+    /**
+     * Earth radius in meters, the same as used by Turf.
+     */
+    const val EARTH_RADIUS_METERS = 6373000.0
+
+    /**
+     * Length in meters of one degree latitude.
+     */
+    const val METERS_PER_DEGREE = EARTH_RADIUS_METERS * PI / 180.0
+
+    /**
+     * Factor to scale longitude differences at the given latitude, to make them comparable to
+     * latitude differences.
+     */
+    @JvmStatic
+    fun longitudeScale(latitude: Double): Double = cos(latitude * PI / 180.0)
+
+    /**
+     * Haversine distance in meters. Gives the same result as [org.maplibre.geojson.turf.TurfMeasurement.distance].
+     */
+    @JvmStatic
+    fun haversineDistance(
+        longitude1: Double,
+        latitude1: Double,
+        longitude2: Double,
+        latitude2: Double
+    ): Double {
+        val deltaLatitude = (latitude2 - latitude1) * PI / 180.0
+        val deltaLongitude = (longitude2 - longitude1) * PI / 180.0
+        val sinLatitude = sin(deltaLatitude / 2)
+        val sinLongitude = sin(deltaLongitude / 2)
+        val value = sinLatitude * sinLatitude +
+                sinLongitude * sinLongitude * cos(latitude1 * PI / 180.0) * cos(latitude2 * PI / 180.0)
+        return 2 * atan2(sqrt(value), sqrt(1 - value)) * EARTH_RADIUS_METERS
+    }
+
+    /**
+     * Distance in meters in the local frame around both positions.
+     */
+    @JvmStatic
+    fun distance(
+        longitude1: Double,
+        latitude1: Double,
+        longitude2: Double,
+        latitude2: Double
+    ): Double {
+        val x = (longitude2 - longitude1) * longitudeScale((latitude1 + latitude2) / 2)
+        val y = latitude2 - latitude1
+        return sqrt(x * x + y * y) * METERS_PER_DEGREE
+    }
+
+    /**
+     * Bearing in degrees (-180 to 180) from the first to the second position in the local frame
+     * around both positions, or null if both positions are equal.
+     */
+    @JvmStatic
+    fun bearing(
+        longitude1: Double,
+        latitude1: Double,
+        longitude2: Double,
+        latitude2: Double
+    ): Double? {
+        if (longitude1 == longitude2 && latitude1 == latitude2) {
+            return null
+        }
+
+        val x = (longitude2 - longitude1) * longitudeScale((latitude1 + latitude2) / 2)
+        val y = latitude2 - latitude1
+        return atan2(x, y) * 180.0 / PI
+    }
+
+    /**
+     * Position of the point on the segment closest to the given position, 0 at the segment start
+     * and 1 at the segment end.
+     *
+     * @param longitudeScale scale of longitude differences, see [longitudeScale]
+     */
+    @JvmStatic
+    fun segmentFraction(
+        longitude: Double,
+        latitude: Double,
+        startLongitude: Double,
+        startLatitude: Double,
+        endLongitude: Double,
+        endLatitude: Double,
+        longitudeScale: Double
+    ): Double {
+        val startX = (startLongitude - longitude) * longitudeScale
+        val startY = startLatitude - latitude
+        val deltaX = (endLongitude - startLongitude) * longitudeScale
+        val deltaY = endLatitude - startLatitude
+        val lengthSquared = deltaX * deltaX + deltaY * deltaY
+        return if (lengthSquared > 0.0) {
+            ((-startX * deltaX - startY * deltaY) / lengthSquared).coerceIn(0.0, 1.0)
+        } else {
+            0.0
+        }
+    }
+
+    /**
+     * Squared distance in degrees latitude between the given position and the point at the given
+     * fraction of the segment. Only meant for comparing distances, multiply the square root with
+     * [METERS_PER_DEGREE] to get meters.
+     *
+     * @param longitudeScale scale of longitude differences, see [longitudeScale]
+     */
+    @JvmStatic
+    fun segmentDistanceSquared(
+        longitude: Double,
+        latitude: Double,
+        startLongitude: Double,
+        startLatitude: Double,
+        endLongitude: Double,
+        endLatitude: Double,
+        fraction: Double,
+        longitudeScale: Double
+    ): Double {
+        val x = (startLongitude + fraction * (endLongitude - startLongitude) - longitude) * longitudeScale
+        val y = startLatitude + fraction * (endLatitude - startLatitude) - latitude
+        return x * x + y * y
+    }
+}
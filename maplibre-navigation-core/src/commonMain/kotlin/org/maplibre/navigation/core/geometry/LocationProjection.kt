@@ -0,0 +1,126 @@
+package org.maplibre.navigation.core.geometry
+
+import org.maplibre.navigation.core.location.Location
+
+/**
+ * Projection of a single location update onto the current step of the route.
+ *
+ * It is calculated once per location update by the route processor and attached to the
+ * [org.maplibre.navigation.core.routeprogress.RouteProgress], so the snap engine, the off-route
+ * engine and the tolerance checks can reuse it instead of projecting the location onto the step
+ * geometry again. Instances are immutable.
+ */
+data class LocationProjection(
+    /**
+     * Longitude of the raw location that was projected.
+     */
+    val rawLongitude: Double,
+
+    /**
+     * Latitude of the raw location that was projected.
+     */
+    val rawLatitude: Double,
+
+    /**
+     * Leg index of the step the location was projected onto.
+     */
+    val legIndex: Int,
+
+    /**
+     * Step index of the step the location was projected onto.
+     */
+    val stepIndex: Int,
+
+    /**
+     * Index of the first vertex of the matched segment in the [RouteGeometry].
+     */
+    val segmentIndex: Int,
+
+    /**
+     * Longitude of the snapped point.
+     */
+    val longitude: Double,
+
+    /**
+     * Latitude of the snapped point.
+     */
+    val latitude: Double,
+
+    /**
+     * Distance in meters from the start of the route to the snapped point, along the route geometry.
+     */
+    val distanceAlongRoute: Double,
+
+    /**
+     * Distance in meters from the start of the step to the snapped point, along the step geometry.
+     */
+    val distanceAlongStep: Double,
+
+    /**
+     * Distance in meters from the snapped point to the end of the step, along the step geometry.
+     */
+    val distanceToStepEnd: Double,
+
+    /**
+     * Distance in meters between the raw location and the snapped point (cross-track distance).
+     */
+    val distanceFromRoute: Double,
+
+    /**
+     * Bearing in degrees (-180 to 180) of the matched segment, or null if the segment has no length.
+     */
+    val bearing: Double?,
+) {
+
+    /**
+     * Whether this is the projection of the given location onto the given step.
+     *
+     * @param location  to check
+     * @param legIndex  of the step
+     * @param stepIndex of the step
+     * @return true if the projection can be reused for the location
+     */
+    fun isProjectionOf(location: Location, legIndex: Int, stepIndex: Int): Boolean {
+        return rawLongitude == location.longitude
+                && rawLatitude == location.latitude
+                && this.legIndex == legIndex
+                && this.stepIndex == stepIndex
+    }
+
+    companion object {
+
+        /**
+         * Creates the projection from the result of a segment search on the given step.
+         *
+         * @param location      the raw location that was projected
+         * @param routeGeometry decoded geometry of the route
+         * @param legIndex      leg index of the step
+         * @param stepIndex     step index of the step
+         * @param projection    valid result of the segment search
+         * @return the immutable projection
+         */
+        internal fun create(
+            location: Location,
+            routeGeometry: RouteGeometry,
+            legIndex: Int,
+            stepIndex: Int,
+            projection: SegmentProjection
+        ): LocationProjection {
+            val stepStartVertex = routeGeometry.stepStartVertex(legIndex, stepIndex)
+            return LocationProjection(
+                rawLongitude = location.longitude,
+                rawLatitude = location.latitude,
+                legIndex = legIndex,
+                stepIndex = stepIndex,
+                segmentIndex = projection.segmentIndex,
+                longitude = projection.longitude,
+                latitude = projection.latitude,
+                distanceAlongRoute = projection.distanceAlongRoute,
+                distanceAlongStep = projection.distanceAlongRoute - routeGeometry.distanceAlongRoute(stepStartVertex),
+                distanceToStepEnd = routeGeometry.stepDistanceRemaining(legIndex, stepIndex, projection),
+                distanceFromRoute = projection.distance,
+                bearing = routeGeometry.segmentBearing(projection.segmentIndex)
+            )
+        }
+    }
+}
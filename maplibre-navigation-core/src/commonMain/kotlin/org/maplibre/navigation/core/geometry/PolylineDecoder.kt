@@ -0,0 +1,141 @@
+package org.maplibre.navigation.core.geometry
+
+import org.maplibre.geojson.model.Point
+import kotlin.jvm.JvmOverloads
+import kotlin.jvm.JvmStatic
+import kotlin.math.pow
+
+/**
+ * Decodes encoded polylines into primitive coordinate arrays, without creating a [Point] per
+ * coordinate like [org.maplibre.geojson.utils.PolylineUtils.decode].
+ *
+ * Coordinates are written as longitude and latitude pairs into a [DoubleArray], coordinate `i`
+ * at the indices `2 * i` and `2 * i + 1`, the same layout as used by [RouteGeometry]. The decoded
+ * values are identical to the ones of [org.maplibre.geojson.utils.PolylineUtils.decode].
+ */
+object PolylineDecoder {
+
+    private const val CHAR_OFFSET = 63
+    private const val CHUNK_BITS = 5
+    private const val CHUNK_MASK = 0x1f
+    private const val CONTINUATION_BIT = 0x20
+
+    /**
+     * Counts the coordinates of the encoded polyline, without decoding them. Can be used to size
+     * the array passed to [decode].
+     *
+     * @param encoded the encoded polyline
+     * @return number of coordinates
+     */
+    @JvmStatic
+    fun coordinateCount(encoded: String): Int {
+        var values = 0
+        for (char in encoded) {
+            if (((char.code - CHAR_OFFSET) and CONTINUATION_BIT) == 0) {
+                values++
+            }
+        }
+        return values / 2
+    }
+
+    /**
+     * Decodes all coordinates of the encoded polyline into a new array.
+     *
+     * @param encoded   the encoded polyline
+     * @param precision precision of the encoded polyline, 5 or 6
+     * @return longitude and latitude pairs of all coordinates
+     */
+    @JvmStatic
+    fun decode(encoded: String, precision: Int): DoubleArray {
+        val coordinates = DoubleArray(coordinateCount(encoded) * 2)
+        decode(encoded, precision, coordinates)
+        return coordinates
+    }
+
+    /**
+     * Decodes the coordinates in the range [fromCoordinate] until [toCoordinate] into the given
+     * array, starting at coordinate [offset] of the array. As every coordinate is encoded relative
+     * to the previous one, the coordinates before the range are still read, but not written. The
+     * decoding stops at the end of the range.
+     *
+     * @param encoded        the encoded polyline
+     * @param precision      precision of the encoded polyline, 5 or 6
+     * @param coordinates    array to write the longitude and latitude pairs into
+     * @param offset         index of the first coordinate to write in [coordinates]
+     * @param fromCoordinate first coordinate of the polyline to decode, inclusive
+     * @param toCoordinate   last coordinate of the polyline to decode, exclusive
+     * @return number of coordinates written, less than the range if the polyline is shorter
+     * @throws IllegalArgumentException if the array is too small or the polyline is truncated
+     */
+    @JvmStatic
+    @JvmOverloads
+    fun decode(
+        encoded: String,
+        precision: Int,
+        coordinates: DoubleArray,
+        offset: Int = 0,
+        fromCoordinate: Int = 0,
+        toCoordinate: Int = Int.MAX_VALUE
+    ): Int {
+        val factor = 10.0.pow(precision)
+        val length = encoded.length
+        var index = 0
+        var coordinate = 0
+        var written = 0
+        var latitude = 0L
+        var longitude = 0L
+
+        while (index < length && coordinate < toCoordinate) {
+            var result = 0L
+            var shift = 0
+            var chunk: Int
+            do {
+                require(index < length) { "Encoded polyline is truncated." }
+                chunk = encoded[index++].code - CHAR_OFFSET
+                result = result or ((chunk and CHUNK_MASK).toLong() shl shift)
+                shift += CHUNK_BITS
+            } while ((chunk and CONTINUATION_BIT) != 0)
+            latitude += decodeDelta(result)
+
+            result = 0L
+            shift = 0
+            do {
+                require(index < length) { "Encoded polyline is truncated." }
+                chunk = encoded[index++].code - CHAR_OFFSET
+                result = result or ((chunk and CHUNK_MASK).toLong() shl shift)
+                shift += CHUNK_BITS
+            } while ((chunk and CONTINUATION_BIT) != 0)
+            longitude += decodeDelta(result)
+
+            if (coordinate >= fromCoordinate) {
+                val target = (offset + written) * 2
+                require(target + 1 < coordinates.size) { "Coordinate array is too small for the polyline." }
+                coordinates[target] = longitude / factor
+                coordinates[target + 1] = latitude / factor
+                written++
+            }
+            coordinate++
+        }
+        return written
+    }
+
+    /**
+     * Decodes all coordinates of the encoded polyline into a list of [Point], for APIs working
+     * with points. The list is created with its final size.
+     *
+     * @param encoded   the encoded polyline
+     * @param precision precision of the encoded polyline, 5 or 6
+     * @return the decoded points
+     */
+    @JvmStatic
+    fun decodePoints(encoded: String, precision: Int): List<Point> {
+        val coordinates = decode(encoded, precision)
+        return List(coordinates.size / 2) { index ->
+            Point(longitude = coordinates[index * 2], latitude = coordinates[index * 2 + 1])
+        }
+    }
+
+    private fun decodeDelta(result: Long): Long {
+        return if ((result and 1L) != 0L) (result shr 1).inv() else result shr 1
+    }
+}
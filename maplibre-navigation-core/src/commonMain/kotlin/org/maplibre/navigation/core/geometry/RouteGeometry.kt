@@ -0,0 +1,575 @@
+package org.maplibre.navigation.core.geometry
+
+import org.maplibre.geojson.model.Point
+import org.maplibre.navigation.core.models.DirectionsRoute
+import org.maplibre.navigation.core.models.LegStep
+import org.maplibre.navigation.core.models.RouteLeg
+import org.maplibre.navigation.core.utils.Constants
+import kotlin.jvm.JvmOverloads
+import kotlin.jvm.JvmStatic
+
+/**
+ * Decoded geometry of all steps of a [DirectionsRoute].
+ *
+ * Every step polyline is decoded exactly once, when the route is set, into a single packed array
+ * of coordinates (`[longitude0, latitude0, longitude1, latitude1, ...]`). Next to every vertex,
+ * the cumulative distance in meters from the start of the route is stored. Steps are addressed by
+ * their vertex range, so the route processor, the snap engine and the off-route engine can work on
+ * a step without decoding its polyline again for every location update.
+ * The coordinates and distances are kept in the [GeometryStorage] passed to [fromRoute], on the
+ * heap by default.
+ *
+ * Additionally, the remaining [LegStep.distance] and [RouteLeg.distance] values after every step
+ * and leg are summed up once, so the leg and route distance remaining can be looked up in
+ * constant time instead of iterating over all following steps and legs.
+ *
+ * Instances are immutable and can be shared by all components using the same route, also between
+ * threads. Lazily created data, like [stepPoints], is safely published.
+ */
+class RouteGeometry private constructor(
+    /**
+     * The route this geometry was decoded from.
+     */
+    val route: DirectionsRoute,
+
+    /**
+     * Packed coordinates of all vertices, longitude followed by latitude.
+     */
+    private val coordinates: GeometryBuffer,
+
+    /**
+     * Distance in meters from the first vertex of the route, for every vertex.
+     */
+    private val distances: GeometryBuffer,
+
+    /**
+     * Index of the first vertex for every step of the route. Contains one additional entry with
+     * the total vertex count, so the vertex range of step `i` is `stepOffsets[i] until stepOffsets[i + 1]`.
+     */
+    private val stepOffsets: IntArray,
+
+    /**
+     * Index of the first step for every leg, in the route wide step numbering used by [stepOffsets].
+     * Contains one additional entry with the total step count.
+     */
+    private val legOffsets: IntArray,
+
+    /**
+     * Sum of [LegStep.distance] of all following steps in the same leg, for every step of the route.
+     */
+    private val legDistancesAfterStep: DoubleArray,
+
+    /**
+     * Sum of [RouteLeg.distance] of all following legs, for every leg of the route.
+     */
+    private val routeDistancesAfterLeg: DoubleArray,
+
+    /**
+     * Whether the created [stepPoints] are cached, see [GeometryStorage.cachesStepPoints].
+     */
+    private val cachesStepPoints: Boolean,
+) {
+
+    private val stepPointsCache = arrayOfNulls<List<Point>>(if (cachesStepPoints) stepOffsets.size - 1 else 0)
+
+    /**
+     * Spatial index over all segments of the route. Created together with the geometry, so the
+     * first off-route check of a route doesn't have to build it.
+     */
+    val segmentIndex: RouteSegmentIndex = RouteSegmentIndex.create(this)
+
+    /**
+     * Number of vertices over all steps of the route.
+     */
+    val vertexCount: Int
+        get() = distances.size
+
+    /**
+     * Number of legs of the route.
+     */
+    val legCount: Int
+        get() = legOffsets.size - 1
+
+    /**
+     * Length of the decoded route geometry in meters.
+     */
+    val length: Double
+        get() = if (distances.size > 0) distances[distances.size - 1] else 0.0
+
+    /**
+     * Number of steps of the given leg.
+     */
+    fun stepCount(legIndex: Int): Int = legOffsets[legIndex + 1] - legOffsets[legIndex]
+
+    /**
+     * Whether the route contains a step with the given leg and step index.
+     */
+    fun hasStep(legIndex: Int, stepIndex: Int): Boolean =
+        legIndex in 0 until legCount && stepIndex in 0 until stepCount(legIndex)
+
+    fun longitude(vertexIndex: Int): Double = coordinates[vertexIndex * 2]
+
+    fun latitude(vertexIndex: Int): Double = coordinates[vertexIndex * 2 + 1]
+
+    /**
+     * Distance in meters from the start of the route to the given vertex, measured along the
+     * route geometry.
+     */
+    fun distanceAlongRoute(vertexIndex: Int): Double = distances[vertexIndex]
+
+    /**
+     * Index of the last vertex with a [distanceAlongRoute] of at most the given distance, or -1 if
+     * the distance lies before the first vertex.
+     */
+    fun lastVertexAtDistance(distanceAlongRoute: Double): Int {
+        var low = 0
+        var high = distances.size - 1
+        while (low <= high) {
+            val middle = (low + high) ushr 1
+            if (distances[middle] <= distanceAlongRoute) {
+                low = middle + 1
+            } else {
+                high = middle - 1
+            }
+        }
+        return high
+    }
+
+    /**
+     * Bearing in degrees (-180 to 180) of the segment starting at the given vertex, or null if the
+     * segment has no length. See [LocalGeometry.bearing] for the accuracy.
+     */
+    fun segmentBearing(segment: Int): Double? = LocalGeometry.bearing(
+        coordinates[segment * 2],
+        coordinates[segment * 2 + 1],
+        coordinates[segment * 2 + 2],
+        coordinates[segment * 2 + 3]
+    )
+
+    /**
+     * Index of the first vertex of the given step.
+     */
+    fun stepStartVertex(legIndex: Int, stepIndex: Int): Int =
+        stepOffsets[routeStepIndex(legIndex, stepIndex)]
+
+    /**
+     * Index after the last vertex of the given step (exclusive).
+     */
+    fun stepEndVertex(legIndex: Int, stepIndex: Int): Int =
+        stepOffsets[routeStepIndex(legIndex, stepIndex) + 1]
+
+    fun stepVertexCount(legIndex: Int, stepIndex: Int): Int =
+        stepEndVertex(legIndex, stepIndex) - stepStartVertex(legIndex, stepIndex)
+
+    /**
+     * Length of the given step geometry in meters.
+     */
+    fun stepLength(legIndex: Int, stepIndex: Int): Double {
+        val start = stepStartVertex(legIndex, stepIndex)
+        val end = stepEndVertex(legIndex, stepIndex)
+        return if (end - start < 2) 0.0 else distances[end - 1] - distances[start]
+    }
+
+    /**
+     * Points of the given step geometry. The list is created on first access and cached, so
+     * every step is materialized at most once per route.
+     */
+    fun stepPoints(legIndex: Int, stepIndex: Int): List<Point> {
+        val routeStepIndex = routeStepIndex(legIndex, stepIndex)
+        if (!cachesStepPoints) {
+            return createPoints(stepOffsets[routeStepIndex], stepOffsets[routeStepIndex + 1])
+        }
+        return stepPointsCache[routeStepIndex]
+            ?: createPoints(stepOffsets[routeStepIndex], stepOffsets[routeStepIndex + 1])
+                .also { points -> stepPointsCache[routeStepIndex] = points }
+    }
+
+
+    /**
+     * Leg index of the step the given vertex belongs to.
+     */
+    fun legIndexOf(vertexIndex: Int): Int =
+        lastOffsetAtMost(legOffsets, routeStepIndexOf(vertexIndex))
+
+    /**
+     * Step index, within its leg, of the step the given vertex belongs to.
+     */
+    fun stepIndexOf(vertexIndex: Int): Int {
+        val routeStepIndex = routeStepIndexOf(vertexIndex)
+        return routeStepIndex - legOffsets[lastOffsetAtMost(legOffsets, routeStepIndex)]
+    }
+
+    /**
+     * Takes in the already calculated step distance remaining and adds the distance of all following
+     * steps of the leg.
+     *
+     * @param stepDistanceRemaining distance remaining of the current step in meters
+     * @param legIndex              current leg index
+     * @param stepIndex             current step index
+     * @return distance remaining of the current leg in meters
+     */
+    fun legDistanceRemaining(stepDistanceRemaining: Double, legIndex: Int, stepIndex: Int): Double =
+        stepDistanceRemaining + legDistancesAfterStep[routeStepIndex(legIndex, stepIndex)]
+
+    /**
+     * Takes in the already calculated leg distance remaining and adds the distance of all following
+     * legs of the route.
+     *
+     * @param legDistanceRemaining distance remaining of the current leg in meters
+     * @param legIndex             current leg index
+     * @return distance remaining of the route in meters
+     */
+    fun routeDistanceRemaining(legDistanceRemaining: Double, legIndex: Int): Double =
+        legDistanceRemaining + routeDistancesAfterLeg[legIndex]
+
+    /**
+     * Distance in meters from the projected point to the end of the given step, measured along the
+     * step geometry.
+     *
+     * @param legIndex   leg index of the step
+     * @param stepIndex  step index of the step
+     * @param projection valid projection onto the given step
+     * @return distance remaining of the step in meters
+     */
+    fun stepDistanceRemaining(legIndex: Int, stepIndex: Int, projection: SegmentProjection): Double {
+        val stepEnd = stepEndVertex(legIndex, stepIndex)
+        return (distances[stepEnd - 1] - projection.distanceAlongRoute).coerceAtLeast(0.0)
+    }
+
+    /**
+     * Projects the given position onto the closest segment of the given step.
+     *
+     * @param legIndex   leg index of the step
+     * @param stepIndex  step index of the step
+     * @param longitude  of the position to project
+     * @param latitude   of the position to project
+     * @param projection result instance that gets updated
+     * @return the updated projection, invalid if the step has no geometry
+     */
+    fun projectOnStep(
+        legIndex: Int,
+        stepIndex: Int,
+        longitude: Double,
+        latitude: Double,
+        projection: SegmentProjection
+    ): SegmentProjection = project(
+        stepStartVertex(legIndex, stepIndex),
+        stepEndVertex(legIndex, stepIndex),
+        longitude,
+        latitude,
+        projection
+    )
+
+    /**
+     * Projects the given position onto the closest segment between the given vertices.
+     *
+     * Segments are compared in a plane that is flattened around the projected position, which is
+     * precise enough to pick the closest segment. The distance to the projected point is measured
+     * in the same local frame with [LocalGeometry.distance], not with the haversine formula. For
+     * distances up to 10 km at latitudes between -70 and 70 degrees, its relative error is below
+     * 1e-6 (1 cm on 10 km).
+     *
+     * @param fromVertex first vertex of the range
+     * @param toVertex   vertex after the last vertex of the range (exclusive)
+     * @param longitude  of the position to project
+     * @param latitude   of the position to project
+     * @param projection result instance that gets updated
+     * @return the updated projection, invalid if the range is empty
+     */
+    fun project(
+        fromVertex: Int,
+        toVertex: Int,
+        longitude: Double,
+        latitude: Double,
+        projection: SegmentProjection
+    ): SegmentProjection {
+        projection.reset()
+        if (toVertex <= fromVertex) {
+            return projection
+        }
+
+        if (toVertex - fromVertex == 1) {
+            return setProjection(projection, fromVertex, 0.0, longitude, latitude)
+        }
+
+        val longitudeScale = LocalGeometry.longitudeScale(latitude)
+        var closestSegment = fromVertex
+        var closestFraction = 0.0
+        var closestDistanceSquared = Double.MAX_VALUE
+        for (segment in fromVertex until toVertex - 1) {
+            val fraction = segmentFraction(segment, longitude, latitude, longitudeScale)
+            val distanceSquared = segmentDistanceSquared(segment, fraction, longitude, latitude, longitudeScale)
+            if (distanceSquared < closestDistanceSquared) {
+                closestDistanceSquared = distanceSquared
+                closestSegment = segment
+                closestFraction = fraction
+            }
+        }
+
+        return setProjection(projection, closestSegment, closestFraction, longitude, latitude)
+    }
+
+    /**
+     * Position of the point closest to the given position on the segment starting at the given
+     * vertex, 0 at the segment start and 1 at the segment end. Calculated in the local frame of
+     * [LocalGeometry], where longitudes are scaled by [longitudeScale].
+     */
+    internal fun segmentFraction(
+        segment: Int,
+        longitude: Double,
+        latitude: Double,
+        longitudeScale: Double
+    ): Double = LocalGeometry.segmentFraction(
+        longitude,
+        latitude,
+        coordinates[segment * 2],
+        coordinates[segment * 2 + 1],
+        coordinates[segment * 2 + 2],
+        coordinates[segment * 2 + 3],
+        longitudeScale
+    )
+
+    /**
+     * Squared distance in the local frame of [segmentFraction] between the given position and
+     * the point at the given fraction of the segment. Only meant for comparing segments.
+     */
+    internal fun segmentDistanceSquared(
+        segment: Int,
+        fraction: Double,
+        longitude: Double,
+        latitude: Double,
+        longitudeScale: Double
+    ): Double = LocalGeometry.segmentDistanceSquared(
+        longitude,
+        latitude,
+        coordinates[segment * 2],
+        coordinates[segment * 2 + 1],
+        coordinates[segment * 2 + 2],
+        coordinates[segment * 2 + 3],
+        fraction,
+        longitudeScale
+    )
+
+    /**
+     * Sets the point at the given fraction of the segment as the projected point of the projection.
+     */
+    internal fun setProjection(
+        projection: SegmentProjection,
+        segment: Int,
+        fraction: Double,
+        longitude: Double,
+        latitude: Double
+    ): SegmentProjection {
+        projection.segmentIndex = segment
+        projection.fraction = fraction
+        when {
+            fraction <= 0.0 -> {
+                projection.longitude = coordinates[segment * 2]
+                projection.latitude = coordinates[segment * 2 + 1]
+                projection.distanceAlongRoute = distances[segment]
+            }
+
+            fraction >= 1.0 -> {
+                projection.longitude = coordinates[segment * 2 + 2]
+                projection.latitude = coordinates[segment * 2 + 3]
+                projection.distanceAlongRoute = distances[segment + 1]
+            }
+
+            else -> {
+                projection.longitude = interpolate(coordinates[segment * 2], coordinates[segment * 2 + 2], fraction)
+                projection.latitude = interpolate(coordinates[segment * 2 + 1], coordinates[segment * 2 + 3], fraction)
+                projection.distanceAlongRoute = interpolate(distances[segment], distances[segment + 1], fraction)
+            }
+        }
+        projection.distance = LocalGeometry.distance(longitude, latitude, projection.longitude, projection.latitude)
+        return projection
+    }
+
+    private fun routeStepIndex(legIndex: Int, stepIndex: Int): Int = legOffsets[legIndex] + stepIndex
+
+    private fun routeStepIndexOf(vertexIndex: Int): Int = lastOffsetAtMost(stepOffsets, vertexIndex)
+
+    private fun createPoints(fromVertex: Int, toVertex: Int): List<Point> {
+        return PointList(Array(toVertex - fromVertex) { index ->
+            Point(longitude = longitude(fromVertex + index), latitude = latitude(fromVertex + index))
+        })
+    }
+
+    /**
+     * Read-only list backed by an array that is never modified after construction. It can be
+     * safely handed out to other threads, in contrast to a lazily filled [ArrayList].
+     */
+    private class PointList(private val points: Array<Point>) : AbstractList<Point>() {
+        override val size: Int
+            get() = points.size
+
+        override fun get(index: Int): Point = points[index]
+    }
+
+    companion object {
+
+        private const val NO_STEP = -1
+
+        /**
+         * Decodes all step geometries of the given route.
+         *
+         * If the geometry of a previous route is given, for example the route before a reroute,
+         * steps with the same polyline as a step of the previous route are not decoded again.
+         * Their coordinates, segment lengths and cached [stepPoints] are taken from the previous
+         * geometry, so only the changed steps are decoded.
+         *
+         * @param route    to decode
+         * @param storage  to keep the decoded coordinates and distances in
+         * @param previous geometry of a previous route to reuse unchanged steps from
+         * @return decoded geometry of the route
+         */
+        @JvmStatic
+        @JvmOverloads
+        fun fromRoute(
+            route: DirectionsRoute,
+            storage: GeometryStorage = HeapGeometryStorage,
+            previous: RouteGeometry? = null
+        ): RouteGeometry {
+            val steps = route.legs.flatMap { leg -> leg.steps }
+            val previousStepIndices = previous?.let { geometry -> matchingStepIndices(geometry, steps) }
+
+            val legOffsets = IntArray(route.legs.size + 1)
+            route.legs.forEachIndexed { legIndex, leg ->
+                legOffsets[legIndex + 1] = legOffsets[legIndex] + leg.steps.size
+            }
+
+            val stepOffsets = IntArray(steps.size + 1)
+            steps.forEachIndexed { stepIndex, step ->
+                val previousStepIndex = previousStepIndices?.get(stepIndex) ?: NO_STEP
+                val stepVertexCount = if (previous != null && previousStepIndex != NO_STEP) {
+                    previous.stepOffsets[previousStepIndex + 1] - previous.stepOffsets[previousStepIndex]
+                } else {
+                    PolylineDecoder.coordinateCount(step.geometry)
+                }
+                stepOffsets[stepIndex + 1] = stepOffsets[stepIndex] + stepVertexCount
+            }
+
+            val vertexCount = stepOffsets.last()
+            val coordinates = storage.createBuffer(vertexCount * 2)
+            val distances = storage.createBuffer(vertexCount)
+            val maxStepVertexCount = (0 until steps.size).maxOfOrNull { stepIndex ->
+                stepOffsets[stepIndex + 1] - stepOffsets[stepIndex]
+            } ?: 0
+            val stepCoordinates = DoubleArray(maxStepVertexCount * 2)
+            var previousLongitude = 0.0
+            var previousLatitude = 0.0
+            var distance = 0.0
+            steps.forEachIndexed { stepIndex, step ->
+                val stepStart = stepOffsets[stepIndex]
+                val stepVertexCount = stepOffsets[stepIndex + 1] - stepStart
+                val previousStepIndex = previousStepIndices?.get(stepIndex) ?: NO_STEP
+                val reused = previous?.takeIf { previousStepIndex != NO_STEP }
+                val reusedStart = reused?.stepOffsets?.get(previousStepIndex) ?: 0
+                if (reused == null) {
+                    PolylineDecoder.decode(step.geometry, Constants.PRECISION_6, stepCoordinates)
+                }
+
+                for (stepVertex in 0 until stepVertexCount) {
+                    val vertexIndex = stepStart + stepVertex
+                    val longitude: Double
+                    val latitude: Double
+                    if (reused != null) {
+                        longitude = reused.longitude(reusedStart + stepVertex)
+                        latitude = reused.latitude(reusedStart + stepVertex)
+                    } else {
+                        longitude = stepCoordinates[stepVertex * 2]
+                        latitude = stepCoordinates[stepVertex * 2 + 1]
+                    }
+                    coordinates[vertexIndex * 2] = longitude
+                    coordinates[vertexIndex * 2 + 1] = latitude
+                    if (reused != null && stepVertex > 0) {
+                        distance += reused.distanceAlongRoute(reusedStart + stepVertex) -
+                                reused.distanceAlongRoute(reusedStart + stepVertex - 1)
+                    } else if (vertexIndex > 0) {
+                        distance += LocalGeometry.haversineDistance(
+                            previousLongitude,
+                            previousLatitude,
+                            longitude,
+                            latitude
+                        )
+                    }
+                    distances[vertexIndex] = distance
+                    previousLongitude = longitude
+                    previousLatitude = latitude
+                }
+            }
+
+            val legDistancesAfterStep = DoubleArray(steps.size)
+            route.legs.forEachIndexed { legIndex, leg ->
+                val firstStep = legOffsets[legIndex]
+                for (stepIndex in leg.steps.size - 2 downTo 0) {
+                    legDistancesAfterStep[firstStep + stepIndex] =
+                        legDistancesAfterStep[firstStep + stepIndex + 1] + leg.steps[stepIndex + 1].distance
+                }
+            }
+
+            val routeDistancesAfterLeg = DoubleArray(route.legs.size)
+            for (legIndex in route.legs.size - 2 downTo 0) {
+                routeDistancesAfterLeg[legIndex] =
+                    routeDistancesAfterLeg[legIndex + 1] + route.legs[legIndex + 1].distance
+            }
+
+            val routeGeometry = RouteGeometry(
+                route = route,
+                coordinates = coordinates,
+                distances = distances,
+                stepOffsets = stepOffsets,
+                legOffsets = legOffsets,
+                legDistancesAfterStep = legDistancesAfterStep,
+                routeDistancesAfterLeg = routeDistancesAfterLeg,
+                cachesStepPoints = storage.cachesStepPoints
+            )
+            if (previous != null && previousStepIndices != null && routeGeometry.cachesStepPoints && previous.cachesStepPoints) {
+                previousStepIndices.forEachIndexed { stepIndex, previousStepIndex ->
+                    if (previousStepIndex != NO_STEP) {
+                        routeGeometry.stepPointsCache[stepIndex] = previous.stepPointsCache[previousStepIndex]
+                    }
+                }
+            }
+            return routeGeometry
+        }
+
+        /**
+         * For every step, the route wide index of the first step of the previous geometry with the
+         * same polyline, or [NO_STEP]. Steps without geometry are never matched.
+         */
+        private fun matchingStepIndices(previous: RouteGeometry, steps: List<LegStep>): IntArray {
+            val previousSteps = HashMap<String, Int>()
+            previous.route.legs
+                .flatMap { leg -> leg.steps }
+                .forEachIndexed { stepIndex, step ->
+                    if (step.geometry.isNotEmpty() && step.geometry !in previousSteps) {
+                        previousSteps[step.geometry] = stepIndex
+                    }
+                }
+
+            return IntArray(steps.size) { stepIndex -> previousSteps[steps[stepIndex].geometry] ?: NO_STEP }
+        }
+
+        /**
+         * Index of the last entry in the ascending offsets, that is smaller or equal to the given
+         * value. The last entry of the offsets is the total count and never returned.
+         */
+        private fun lastOffsetAtMost(offsets: IntArray, value: Int): Int {
+            var low = 0
+            var high = offsets.size - 2
+            while (low < high) {
+                val middle = (low + high + 1) ushr 1
+                if (offsets[middle] <= value) {
+                    low = middle
+                } else {
+                    high = middle - 1
+                }
+            }
+            return low
+        }
+
+        private fun interpolate(start: Double, end: Double, fraction: Double): Double =
+            start + fraction * (end - start)
+    }
+}
@@ -0,0 +1,263 @@
+package org.maplibre.navigation.core.geometry
+
+import kotlin.math.abs
+import kotlin.math.ceil
+import kotlin.math.floor
+import kotlin.math.max
+import kotlin.math.min
+import kotlin.math.sqrt
+
+/**
+ * Spatial index over all segments of all legs of a [RouteGeometry], used to find the part of the
+ * route closest to a position, independent of the current leg and step.
+ *
+ * Segments are registered in a uniform grid of [cellSize] degrees. Occupied cells are stored
+ * sorted by their key in primitive arrays, so a lookup is a binary search over the occupied
+ * cells around the position, followed by a projection onto the few segments registered there.
+ * The index is created once per route, see [RouteGeometry.segmentIndex].
+ */
+class RouteSegmentIndex private constructor(
+    private val routeGeometry: RouteGeometry,
+    private val cellSize: Double,
+    private val cellKeys: LongArray,
+    private val cellOffsets: IntArray,
+    private val cellSegments: IntArray
+) {
+
+    /**
+     * Finds the closest segment of the route to the given position.
+     *
+     * @param longitude   of the position
+     * @param latitude    of the position
+     * @param maxDistance maximum distance in meters between the position and the segment
+     * @param projection  result instance that gets updated
+     * @return the updated projection, invalid if no segment is within [maxDistance]
+     */
+    fun nearest(
+        longitude: Double,
+        latitude: Double,
+        maxDistance: Double,
+        projection: SegmentProjection
+    ): SegmentProjection = nearest(longitude, latitude, maxDistance, 0, Int.MAX_VALUE, projection)
+
+    /**
+     * Finds the closest segment of the route to the given position, only considering the segments
+     * in the given range. Segment `i` connects the vertices `i` and `i + 1`.
+     *
+     * @param longitude   of the position
+     * @param latitude    of the position
+     * @param maxDistance maximum distance in meters between the position and the segment
+     * @param fromSegment first segment to consider
+     * @param toSegment   segment after the last segment to consider (exclusive)
+     * @param projection  result instance that gets updated
+     * @return the updated projection, invalid if no segment of the range is within [maxDistance]
+     */
+    fun nearest(
+        longitude: Double,
+        latitude: Double,
+        maxDistance: Double,
+        fromSegment: Int,
+        toSegment: Int,
+        projection: SegmentProjection
+    ): SegmentProjection {
+        projection.reset()
+        if (cellKeys.isEmpty()) {
+            return projection
+        }
+
+        val longitudeScale = LocalGeometry.longitudeScale(latitude)
+        val cellMeters = cellSize * LocalGeometry.METERS_PER_DEGREE * min(1.0, longitudeScale)
+        val maxRing = min(ceil(maxDistance / cellMeters).toInt(), MAX_RINGS)
+        val centerX = cellCoordinate(longitude)
+        val centerY = cellCoordinate(latitude)
+
+        var closestSegment = SegmentProjection.NO_SEGMENT
+        var closestFraction = 0.0
+        var closestDistanceSquared = Double.MAX_VALUE
+        for (ring in 0..maxRing) {
+            for (x in centerX - ring..centerX + ring) {
+                for (y in centerY - ring..centerY + ring) {
+                    if (max(abs(x - centerX), abs(y - centerY)) != ring) {
+                        continue
+                    }
+
+                    val cell = findCell(cellKey(x, y))
+                    if (cell < 0) {
+                        continue
+                    }
+
+                    for (entry in cellOffsets[cell] until cellOffsets[cell + 1]) {
+                        val segment = cellSegments[entry]
+                        if (segment < fromSegment || segment >= toSegment) {
+                            continue
+                        }
+
+                        val fraction = routeGeometry.segmentFraction(segment, longitude, latitude, longitudeScale)
+                        val distanceSquared = routeGeometry.segmentDistanceSquared(
+                            segment, fraction, longitude, latitude, longitudeScale
+                        )
+                        if (distanceSquared < closestDistanceSquared) {
+                            closestDistanceSquared = distanceSquared
+                            closestSegment = segment
+                            closestFraction = fraction
+                        }
+                    }
+                }
+            }
+
+            // All segments that were not visited yet are at least `ring` cells away
+            if (closestSegment != SegmentProjection.NO_SEGMENT
+                && sqrt(closestDistanceSquared) * LocalGeometry.METERS_PER_DEGREE <= ring * cellMeters
+            ) {
+                break
+            }
+        }
+
+        if (closestSegment == SegmentProjection.NO_SEGMENT) {
+            return projection
+        }
+
+        routeGeometry.setProjection(projection, closestSegment, closestFraction, longitude, latitude)
+        if (projection.distance > maxDistance) {
+            projection.reset()
+        }
+        return projection
+    }
+
+    private fun cellCoordinate(degrees: Double): Int = floor(degrees / cellSize).toInt()
+
+    private fun findCell(key: Long): Int = binarySearch(cellKeys, key)
+
+    companion object {
+
+        /**
+         * Default grid cell size in degrees, roughly 500 meters.
+         */
+        const val DEFAULT_CELL_SIZE = 0.005
+
+        private const val MAX_RINGS = 16
+
+        /**
+         * Registers all segments of the given route geometry in a grid.
+         *
+         * @param routeGeometry to index
+         * @param cellSize      grid cell size in degrees
+         * @return the created index
+         */
+        internal fun create(
+            routeGeometry: RouteGeometry,
+            cellSize: Double = DEFAULT_CELL_SIZE
+        ): RouteSegmentIndex {
+            val segmentCount = max(0, routeGeometry.vertexCount - 1)
+
+            // First pass: count segments per occupied cell
+            val counts = HashMap<Long, Int>()
+            for (segment in 0 until segmentCount) {
+                forEachCell(routeGeometry, segment, cellSize) { key ->
+                    counts[key] = (counts[key] ?: 0) + 1
+                }
+            }
+
+            val cellKeys = counts.keys.toLongArray().apply { sort() }
+            val cellOffsets = IntArray(cellKeys.size + 1)
+            cellKeys.forEachIndexed { cell, key ->
+                cellOffsets[cell + 1] = cellOffsets[cell] + counts.getValue(key)
+            }
+
+            // Second pass: register segments in their cells
+            val cellSegments = IntArray(cellOffsets.last())
+            val fillPositions = cellOffsets.copyOf()
+            for (segment in 0 until segmentCount) {
+                forEachCell(routeGeometry, segment, cellSize) { key ->
+                    val cell = binarySearch(cellKeys, key)
+                    cellSegments[fillPositions[cell]++] = segment
+                }
+            }
+
+            return RouteSegmentIndex(routeGeometry, cellSize, cellKeys, cellOffsets, cellSegments)
+        }
+
+        /**
+         * Calls the action for every cell of the bounding box of the segment that the segment passes
+         * close enough to intersect.
+         */
+        private inline fun forEachCell(
+            routeGeometry: RouteGeometry,
+            segment: Int,
+            cellSize: Double,
+            action: (Long) -> Unit
+        ) {
+            val startLongitude = routeGeometry.longitude(segment)
+            val startLatitude = routeGeometry.latitude(segment)
+            val endLongitude = routeGeometry.longitude(segment + 1)
+            val endLatitude = routeGeometry.latitude(segment + 1)
+            val minX = floor(min(startLongitude, endLongitude) / cellSize).toInt()
+            val maxX = floor(max(startLongitude, endLongitude) / cellSize).toInt()
+            val minY = floor(min(startLatitude, endLatitude) / cellSize).toInt()
+            val maxY = floor(max(startLatitude, endLatitude) / cellSize).toInt()
+            if (minX == maxX && minY == maxY) {
+                action(cellKey(minX, minY))
+                return
+            }
+
+            // Skip cells of the bounding box that are not touched by long diagonal segments
+            val cellRadius = cellSize * HALF_CELL_DIAGONAL
+            for (x in minX..maxX) {
+                for (y in minY..maxY) {
+                    val centerLongitude = (x + 0.5) * cellSize
+                    val centerLatitude = (y + 0.5) * cellSize
+                    if (distanceToSegment(
+                            centerLongitude, centerLatitude,
+                            startLongitude, startLatitude, endLongitude, endLatitude
+                        ) <= cellRadius
+                    ) {
+                        action(cellKey(x, y))
+                    }
+                }
+            }
+        }
+
+        /**
+         * Planar distance in degrees between a point and a segment.
+         */
+        private fun distanceToSegment(
+            longitude: Double,
+            latitude: Double,
+            startLongitude: Double,
+            startLatitude: Double,
+            endLongitude: Double,
+            endLatitude: Double
+        ): Double {
+            val fraction = LocalGeometry.segmentFraction(
+                longitude, latitude, startLongitude, startLatitude, endLongitude, endLatitude, 1.0
+            )
+            return sqrt(
+                LocalGeometry.segmentDistanceSquared(
+                    longitude, latitude, startLongitude, startLatitude, endLongitude, endLatitude, fraction, 1.0
+                )
+            )
+        }
+
+        private fun cellKey(x: Int, y: Int): Long = (x.toLong() shl 32) or (y.toLong() and 0xFFFFFFFFL)
+
+        private fun binarySearch(keys: LongArray, key: Long): Int {
+            var low = 0
+            var high = keys.size - 1
+            while (low <= high) {
+                val middle = (low + high) ushr 1
+                val value = keys[middle]
+                when {
+                    value < key -> low = middle + 1
+                    value > key -> high = middle - 1
+                    else -> return middle
+                }
+            }
+            return -1
+        }
+
+        /**
+         * Half of the diagonal of a cell, relative to the cell size, plus a small margin.
+         */
+        private const val HALF_CELL_DIAGONAL = 0.7072
+    }
+}
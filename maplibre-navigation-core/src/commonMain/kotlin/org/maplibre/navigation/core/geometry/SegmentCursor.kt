@@ -0,0 +1,133 @@
+package org.maplibre.navigation.core.geometry
+
+import kotlin.math.max
+import kotlin.math.min
+
+/**
+ * Stateful nearest segment search on a vertex range of a [RouteGeometry], like the geometry of
+ * the current step.
+ *
+ * The cursor remembers the last matched segment and only searches a window of [windowSize]
+ * segments behind and ahead of it. While the user is moving along the route, the match moves
+ * forward by a few segments per location update, so the projection costs the same for a step
+ * with ten vertices as for a motorway step with thousands of them.
+ *
+ * The match is considered lost and a search over the whole range is done, if
+ * - no segment was matched before or the searched range changed,
+ * - the closest point lies on the border of the window, so a closer segment might be outside of it or
+ * - the closest point is more than [maxWindowDistance] meters away from the position.
+ *
+ * @param windowSize number of segments searched behind and ahead of the last matched segment
+ * @param maxWindowDistance maximum distance in meters to accept a match found in the window
+ */
+class SegmentCursor(
+    private val windowSize: Int = DEFAULT_WINDOW_SIZE,
+    private val maxWindowDistance: Double = DEFAULT_MAX_WINDOW_DISTANCE
+) {
+
+    private var routeGeometry: RouteGeometry? = null
+    private var fromVertex = 0
+    private var toVertex = 0
+    private var lastSegment = SegmentProjection.NO_SEGMENT
+
+    init {
+        require(windowSize > 0) { "Window size must be greater than 0." }
+    }
+
+    /**
+     * Projects the given position onto the closest segment of the given step.
+     *
+     * @param routeGeometry decoded geometry of the route
+     * @param legIndex      leg index of the step
+     * @param stepIndex     step index of the step
+     * @param longitude     of the position to project
+     * @param latitude      of the position to project
+     * @param projection    result instance that gets updated
+     * @return the updated projection, invalid if the step has no geometry
+     */
+    fun projectOnStep(
+        routeGeometry: RouteGeometry,
+        legIndex: Int,
+        stepIndex: Int,
+        longitude: Double,
+        latitude: Double,
+        projection: SegmentProjection
+    ): SegmentProjection = project(
+        routeGeometry,
+        routeGeometry.stepStartVertex(legIndex, stepIndex),
+        routeGeometry.stepEndVertex(legIndex, stepIndex),
+        longitude,
+        latitude,
+        projection
+    )
+
+    /**
+     * Projects the given position onto the closest segment between the given vertices.
+     *
+     * @param routeGeometry decoded geometry of the route
+     * @param fromVertex    first vertex of the range
+     * @param toVertex      vertex after the last vertex of the range (exclusive)
+     * @param longitude     of the position to project
+     * @param latitude      of the position to project
+     * @param projection    result instance that gets updated
+     * @return the updated projection, invalid if the range is empty
+     */
+    fun project(
+        routeGeometry: RouteGeometry,
+        fromVertex: Int,
+        toVertex: Int,
+        longitude: Double,
+        latitude: Double,
+        projection: SegmentProjection
+    ): SegmentProjection {
+        if (routeGeometry !== this.routeGeometry || fromVertex != this.fromVertex || toVertex != this.toVertex) {
+            this.routeGeometry = routeGeometry
+            this.fromVertex = fromVertex
+            this.toVertex = toVertex
+            lastSegment = SegmentProjection.NO_SEGMENT
+        }
+
+        if (lastSegment != SegmentProjection.NO_SEGMENT) {
+            val windowStart = max(fromVertex, lastSegment - windowSize)
+            val windowEnd = min(toVertex, lastSegment + windowSize + 2)
+            routeGeometry.project(windowStart, windowEnd, longitude, latitude, projection)
+            if (!isMatchLost(projection, windowStart, windowEnd)) {
+                lastSegment = projection.segmentIndex
+                return projection
+            }
+        }
+
+        routeGeometry.project(fromVertex, toVertex, longitude, latitude, projection)
+        lastSegment = projection.segmentIndex
+        return projection
+    }
+
+    /**
+     * Forgets the last matched segment, so the next projection searches the whole range.
+     */
+    fun reset() {
+        routeGeometry = null
+        fromVertex = 0
+        toVertex = 0
+        lastSegment = SegmentProjection.NO_SEGMENT
+    }
+
+    private fun isMatchLost(projection: SegmentProjection, windowStart: Int, windowEnd: Int): Boolean {
+        if (!projection.isValid || projection.distance > maxWindowDistance) {
+            return true
+        }
+
+        val onWindowStart = windowStart > fromVertex
+                && projection.segmentIndex == windowStart
+                && projection.fraction <= 0.0
+        val onWindowEnd = windowEnd < toVertex
+                && projection.segmentIndex == windowEnd - 2
+                && projection.fraction >= 1.0
+        return onWindowStart || onWindowEnd
+    }
+
+    companion object {
+        const val DEFAULT_WINDOW_SIZE = 16
+        const val DEFAULT_MAX_WINDOW_DISTANCE = 50.0
+    }
+}
@@ -0,0 +1,68 @@
+package org.maplibre.navigation.core.geometry
+
+/**
+ * Result of projecting a position onto the closest segment of a vertex range of a
+ * [RouteGeometry].
+ *
+ * Instances are mutable, so a single instance can be reused for every location update without
+ * allocating a new result object.
+ */
+class SegmentProjection {
+
+    /**
+     * Index of the first vertex of the matched segment, or -1 if nothing was matched.
+     */
+    var segmentIndex: Int = NO_SEGMENT
+        internal set
+
+    /**
+     * Position of the projected point on the matched segment, 0 at the segment start and 1 at
+     * the segment end.
+     */
+    var fraction: Double = 0.0
+        internal set
+
+    /**
+     * Longitude of the projected point.
+     */
+    var longitude: Double = 0.0
+        internal set
+
+    /**
+     * Latitude of the projected point.
+     */
+    var latitude: Double = 0.0
+        internal set
+
+    /**
+     * Distance in meters from the projected position to the projected point.
+     */
+    var distance: Double = 0.0
+        internal set
+
+    /**
+     * Distance in meters from the start of the route to the projected point, measured along the
+     * route geometry.
+     */
+    var distanceAlongRoute: Double = 0.0
+        internal set
+
+    /**
+     * Whether a segment was matched by the last projection.
+     */
+    val isValid: Boolean
+        get() = segmentIndex != NO_SEGMENT
+
+    internal fun reset() {
+        segmentIndex = NO_SEGMENT
+        fraction = 0.0
+        longitude = 0.0
+        latitude = 0.0
+        distance = 0.0
+        distanceAlongRoute = 0.0
+    }
+
+    companion object {
+        const val NO_SEGMENT = -1
+    }
+}
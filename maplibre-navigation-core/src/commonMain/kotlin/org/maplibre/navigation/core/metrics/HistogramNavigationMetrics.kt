@@ -0,0 +1,135 @@
+package org.maplibre.navigation.core.metrics
+
+import kotlin.time.Duration
+import kotlin.time.Duration.Companion.microseconds
+import kotlin.time.Duration.Companion.nanoseconds
+
+/**
+ * [NavigationMetrics] which count the durations of each [NavigationStage] in a histogram.
+ *
+ * Buckets have upper bounds of 1 µs, 2 µs, 4 µs, ... up to about one second, longer durations are
+ * counted in the last bucket. Recording does not allocate.
+ *
+ * Stages are reported from different threads: the processing stages from the background
+ * dispatcher of the navigation engine, [NavigationStage.DISPATCH] from the main thread. Every
+ * stage has its own lock, guarding its counters while recording and while taking a [snapshot], so
+ * a snapshot of a stage is always consistent.
+ */
+class HistogramNavigationMetrics : NavigationMetrics {
+
+    private val stages = NavigationStage.entries
+    private val counts = LongArray(stages.size)
+    private val totalNanoseconds = LongArray(stages.size)
+    private val maxNanoseconds = LongArray(stages.size)
+    private val bucketCounts = Array(stages.size) { LongArray(BUCKET_COUNT) }
+    private val stageLocks = Array(stages.size) { createStageLock() }
+    private val locationsLock = createStageLock()
+    private var droppedLocationCount = 0L
+    private var coalescedLocationCount = 0L
+
+    /**
+     * Number of location updates dropped by the ingestion policy.
+     */
+    val droppedLocations: Long
+        get() = locationsLock.withLock { droppedLocationCount }
+
+    /**
+     * Number of location updates coalesced by the ingestion policy.
+     */
+    val coalescedLocations: Long
+        get() = locationsLock.withLock { coalescedLocationCount }
+
+    override fun onStageCompleted(stage: NavigationStage, duration: Duration) {
+        val index = stage.ordinal
+        val nanoseconds = duration.inWholeNanoseconds
+        val bucket = bucketOf(nanoseconds)
+        stageLocks[index].withLock {
+            counts[index]++
+            totalNanoseconds[index] += nanoseconds
+            if (nanoseconds > maxNanoseconds[index]) {
+                maxNanoseconds[index] = nanoseconds
+            }
+            bucketCounts[index][bucket]++
+        }
+    }
+
+    override fun onLocationsDropped(count: Int) {
+        locationsLock.withLock {
+            droppedLocationCount += count
+        }
+    }
+
+    override fun onLocationsCoalesced(count: Int) {
+        locationsLock.withLock {
+            coalescedLocationCount += count
+        }
+    }
+
+    /**
+     * Snapshot of the durations recorded for the given stage.
+     *
+     * @param stage to get the durations for
+     * @return the histogram of the stage
+     */
+    fun snapshot(stage: NavigationStage): StageHistogram {
+        val index = stage.ordinal
+        return stageLocks[index].withLock {
+            StageHistogram(
+                stage = stage,
+                count = counts[index],
+                total = totalNanoseconds[index].nanoseconds,
+                max = maxNanoseconds[index].nanoseconds,
+                bucketUpperBounds = BUCKET_UPPER_BOUNDS,
+                bucketCounts = bucketCounts[index].toList()
+            )
+        }
+    }
+
+    /**
+     * Snapshots of the durations recorded for all stages.
+     *
+     * @return the histograms, by stage
+     */
+    fun snapshot(): Map<NavigationStage, StageHistogram> {
+        return stages.associateWith(::snapshot)
+    }
+
+    /**
+     * Removes all recorded durations.
+     */
+    fun reset() {
+        for (index in stages.indices) {
+            stageLocks[index].withLock {
+                counts[index] = 0
+                totalNanoseconds[index] = 0
+                maxNanoseconds[index] = 0
+                bucketCounts[index].fill(0)
+            }
+        }
+        locationsLock.withLock {
+            droppedLocationCount = 0
+            coalescedLocationCount = 0
+        }
+    }
+
+    companion object {
+        private const val BUCKET_COUNT = 21
+
+        private val BUCKET_UPPER_BOUNDS: List<Duration> = List(BUCKET_COUNT) { bucket ->
+            (1L shl bucket).microseconds
+        }
+
+        /**
+         * Index of the smallest bucket with an upper bound of at least the given duration.
+         */
+        private fun bucketOf(nanoseconds: Long): Int {
+            val microseconds = (nanoseconds + 999) / 1000
+            if (microseconds <= 1) {
+                return 0
+            }
+
+            val bucket = Long.SIZE_BITS - (microseconds - 1).countLeadingZeroBits()
+            return minOf(bucket, BUCKET_COUNT - 1)
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package org.maplibre.navigation.core.metrics
+
+import org.maplibre.navigation.core.navigation.MapLibreNavigationOptions
+import kotlin.time.Duration
+
+/**
+ * Receives the durations of the [NavigationStage]s run by the navigation engine.
+ *
+ * Durations are reported from the thread running the stage, which is a background thread for
+ * all stages except [NavigationStage.DISPATCH], so implementations must be thread-safe. They are
+ * called for every location update and should return quickly.
+ *
+ * @see HistogramNavigationMetrics
+ */
+interface NavigationMetrics {
+
+    /**
+     * Called when a stage is completed.
+     *
+     * @param stage    the completed stage
+     * @param duration time spent in the stage
+     */
+    fun onStageCompleted(stage: NavigationStage, duration: Duration)
+
+    /**
+     * Called when queued location updates were dropped by
+     * [MapLibreNavigationOptions.LocationIngestionPolicy.LATEST_ONLY].
+     *
+     * @param count number of dropped location updates
+     */
+    fun onLocationsDropped(count: Int) = Unit
+
+    /**
+     * Called when queued location updates were coalesced by
+     * [MapLibreNavigationOptions.LocationIngestionPolicy.TIME_WINDOW].
+     *
+     * @param count number of location updates coalesced into a later one
+     */
+    fun onLocationsCoalesced(count: Int) = Unit
+
+    companion object {
+
+        /**
+         * Metrics which ignore all durations. Used by default.
+         */
+        val NONE: NavigationMetrics = object : NavigationMetrics {
+            override fun onStageCompleted(stage: NavigationStage, duration: Duration) = Unit
+        }
+    }
+}
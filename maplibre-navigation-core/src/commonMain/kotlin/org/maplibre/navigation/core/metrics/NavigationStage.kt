@@ -0,0 +1,51 @@
+package org.maplibre.navigation.core.metrics
+
+/**
+ * Stages the navigation engine runs through for every location update.
+ */
+enum class NavigationStage {
+
+    /**
+     * Validation of the raw location, recorded for every location update including rejected ones.
+     */
+    VALIDATION,
+
+    /**
+     * Building the new [org.maplibre.navigation.core.routeprogress.RouteProgress].
+     */
+    ROUTE_PROGRESS,
+
+    /**
+     * Off-route detection, including the check whether the step index needs to be increased.
+     */
+    OFF_ROUTE,
+
+    /**
+     * Check for triggered milestones.
+     */
+    MILESTONES,
+
+    /**
+     * Snapping the raw location to the route.
+     */
+    SNAP,
+
+    /**
+     * Dispatching progress, milestone and off-route events to the listeners. Includes the time
+     * spent in the listeners of the host app.
+     */
+    DISPATCH,
+
+    /**
+     * Complete processing of a valid location update, from validation until the dispatch is
+     * scheduled. Does not include [DISPATCH], which runs afterwards on the main thread.
+     */
+    LOCATION_UPDATE,
+
+    /**
+     * Preparing the step points and intersections of the upcoming step in the background, started
+     * after the dispatch of a location update is scheduled. Not included in [LOCATION_UPDATE].
+     * Recorded once per step, by the first location update of the step.
+     */
+    PREPARE_UPCOMING_STEP,
+}
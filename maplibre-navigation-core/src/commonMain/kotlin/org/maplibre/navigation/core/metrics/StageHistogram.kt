@@ -0,0 +1,75 @@
+package org.maplibre.navigation.core.metrics
+
+import kotlin.math.ceil
+import kotlin.time.Duration
+
+/**
+ * Snapshot of the durations recorded for a single [NavigationStage].
+ *
+ * Durations are counted in buckets with exponentially growing upper bounds, so percentiles are
+ * only known up to the bucket bound they fall in.
+ */
+data class StageHistogram(
+
+    /**
+     * Stage the durations were recorded for.
+     */
+    val stage: NavigationStage,
+
+    /**
+     * Number of recorded durations.
+     */
+    val count: Long,
+
+    /**
+     * Sum of all recorded durations.
+     */
+    val total: Duration,
+
+    /**
+     * Longest recorded duration.
+     */
+    val max: Duration,
+
+    /**
+     * Inclusive upper bound of each bucket. Durations longer than the last bound are counted in
+     * the last bucket.
+     */
+    val bucketUpperBounds: List<Duration>,
+
+    /**
+     * Number of recorded durations per bucket.
+     */
+    val bucketCounts: List<Long>,
+) {
+
+    /**
+     * Average of all recorded durations, or [Duration.ZERO] if nothing was recorded.
+     */
+    val mean: Duration
+        get() = if (count > 0) total / count.toDouble() else Duration.ZERO
+
+    /**
+     * Upper bound of the bucket containing the given percentile, capped by [max]. Returns [max]
+     * if the percentile falls into the last bucket.
+     *
+     * @param percentile between 0 and 100
+     * @return the percentile duration or [Duration.ZERO] if nothing was recorded
+     */
+    fun percentile(percentile: Double): Duration {
+        require(percentile in 0.0..100.0) { "Percentile must be between 0 and 100." }
+        if (count == 0L) {
+            return Duration.ZERO
+        }
+
+        val rank = maxOf(1L, ceil(count * percentile / 100.0).toLong())
+        var cumulativeCount = 0L
+        for (bucket in bucketCounts.indices) {
+            cumulativeCount += bucketCounts[bucket]
+            if (cumulativeCount >= rank && bucket < bucketCounts.lastIndex) {
+                return minOf(bucketUpperBounds[bucket], max)
+            }
+        }
+        return max
+    }
+}
@@ -0,0 +1,25 @@
+package org.maplibre.navigation.core.metrics
+
+/**
+ * Mutual exclusion lock, guarding the counters of [HistogramNavigationMetrics] which are
+ * recorded from multiple threads.
+ */
+internal interface StageLock {
+    fun lock()
+
+    fun unlock()
+}
+
+/**
+ * Creates a new lock with the implementation of the platform.
+ */
+internal expect fun createStageLock(): StageLock
+
+internal inline fun <T> StageLock.withLock(block: () -> T): T {
+    lock()
+    try {
+        return block()
+    } finally {
+        unlock()
+    }
+}
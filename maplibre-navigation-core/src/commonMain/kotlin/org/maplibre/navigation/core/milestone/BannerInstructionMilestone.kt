@@ -30,14 +30,17 @@ open class BannerInstructionMilestone(
     var bannerInstructions: BannerInstructions? = null
         private set
 
+    private var schedule: InstructionSchedule<BannerInstructions>? = null
+
     override fun isOccurring(
         previousRouteProgress: RouteProgress?,
         routeProgress: RouteProgress
     ): Boolean {
         val stepDistanceRemaining =
             routeProgress.currentLegProgress.currentStepProgress.distanceRemaining
-        val instructions = routeUtils.findCurrentBannerInstructions(
-            routeProgress.currentLegProgress.currentStep,
+        val instructions = scheduleFor(routeProgress).current(
+            routeProgress.legIndex,
+            routeProgress.currentLegProgress.stepIndex,
             stepDistanceRemaining
         )
 
@@ -49,6 +52,14 @@ open class BannerInstructionMilestone(
         }
     }
 
+    private fun scheduleFor(routeProgress: RouteProgress): InstructionSchedule<BannerInstructions> {
+        return schedule?.takeIf { schedule -> schedule.route === routeProgress.directionsRoute }
+            ?: InstructionSchedule(
+                routeProgress.directionsRoute,
+                routeUtils.instructionIndex(routeProgress.directionsRoute).bannerInstructions
+            ).also { schedule = it }
+    }
+
     /**
      * Uses the current step distance remaining to check against banner instructions distance.
      *
@@ -0,0 +1,66 @@
+package org.maplibre.navigation.core.milestone
+
+import org.maplibre.navigation.core.models.DirectionsRoute
+import org.maplibre.navigation.core.utils.StepInstructions
+
+/**
+ * Cursor on the instruction (voice or banner instruction) of a route that is currently due.
+ *
+ * The instructions are sorted once by the [org.maplibre.navigation.core.utils.RouteInstructionIndex]
+ * of the route. For every location update only the instructions next to the cursor are compared
+ * with the step distance remaining, instead of searching the instructions of the current step
+ * again. The cursor follows the progress in both directions, so the result is always the same as
+ * [StepInstructions.current].
+ *
+ * Not thread safe, every milestone owns its own schedule.
+ *
+ * @param route        the route of the instructions
+ * @param instructions sorted instructions of the route
+ */
+internal class InstructionSchedule<T : Any>(
+    val route: DirectionsRoute,
+    private val instructions: StepInstructions<T>
+) {
+
+    private var cursorLegIndex = -1
+    private var cursorStepIndex = -1
+    private var cursor = 0
+
+    /**
+     * Finds the current instruction of the step, which is the first instruction with a distance
+     * along geometry greater or equal to the step distance remaining. If the user did not reach any
+     * instruction yet, the instruction closest to the end of the step is returned.
+     *
+     * @param legIndex              leg index of the current step
+     * @param stepIndex             step index of the current step
+     * @param stepDistanceRemaining distance remaining on the current step
+     * @return the current instruction, or null if the step has no instructions
+     */
+    fun current(legIndex: Int, stepIndex: Int, stepDistanceRemaining: Double): T? {
+        val stepStart = instructions.stepStart(legIndex, stepIndex)
+        if (stepStart == instructions.stepEnd(legIndex, stepIndex)) {
+            return null
+        }
+        val searchEnd = instructions.searchEnd(legIndex, stepIndex)
+
+        if (legIndex != cursorLegIndex || stepIndex != cursorStepIndex) {
+            cursorLegIndex = legIndex
+            cursorStepIndex = stepIndex
+            // A new step is entered at its start, where the instructions with the largest distance are due
+            cursor = searchEnd
+        }
+
+        while (cursor > stepStart && instructions.distance(cursor - 1) >= stepDistanceRemaining) {
+            cursor--
+        }
+        while (cursor < searchEnd && instructions.distance(cursor) < stepDistanceRemaining) {
+            cursor++
+        }
+
+        return if (cursor < searchEnd && instructions.distance(cursor) >= stepDistanceRemaining) {
+            instructions.instruction(cursor)
+        } else {
+            instructions.instruction(stepStart)
+        }
+    }
+}
@@ -26,9 +26,7 @@ open class RouteMilestone(
         }
 
         return trigger?.let { trigger ->
-            this@RouteMilestone.called = trigger.isOccurring(
-                TriggerProperty.getSparseArray(previousRouteProgress, routeProgress)
-            )
+            this@RouteMilestone.called = trigger.isOccurring(previousRouteProgress, routeProgress)
             called
         } ?: false
     }
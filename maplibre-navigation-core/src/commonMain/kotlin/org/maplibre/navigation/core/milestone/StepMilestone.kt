@@ -34,11 +34,7 @@ open class StepMilestone(
                 }
             }
 
-            called = trigger.isOccurring(
-                TriggerProperty.getSparseArray(
-                    previousRouteProgress, routeProgress
-                )
-            )
+            called = trigger.isOccurring(previousRouteProgress, routeProgress)
 
             return@let called
         } ?: false
@@ -1,5 +1,6 @@
 package org.maplibre.navigation.core.milestone
 
+import org.maplibre.navigation.core.routeprogress.RouteProgress
 import kotlin.jvm.JvmStatic
 
 /**
@@ -140,6 +141,18 @@ object Trigger {
          * @since 0.4.0
          */
         abstract fun isOccurring(statementObjects: HashMap<Int, Array<Number>>): Boolean
+
+        /**
+         * Validates whether the statement meets the specified trigger criteria for the given
+         * progress. The statements of this SDK read the primitive [RouteProgress.triggerSnapshot],
+         * statements created outside the SDK are evaluated with [TriggerProperty.getSparseArray].
+         */
+        internal open fun isOccurring(
+            previousRouteProgress: RouteProgress?,
+            routeProgress: RouteProgress
+        ): Boolean {
+            return isOccurring(TriggerProperty.getSparseArray(previousRouteProgress, routeProgress))
+        }
     }
 
     /*
@@ -161,6 +174,19 @@ object Trigger {
             }
             return all
         }
+
+        override fun isOccurring(
+            previousRouteProgress: RouteProgress?,
+            routeProgress: RouteProgress
+        ): Boolean {
+            var all = true
+            for (statement in statements) {
+                if (!statement.isOccurring(previousRouteProgress, routeProgress)) {
+                    all = false
+                }
+            }
+            return all
+        }
     }
 
     /**
@@ -177,6 +203,18 @@ object Trigger {
             }
             return true
         }
+
+        override fun isOccurring(
+            previousRouteProgress: RouteProgress?,
+            routeProgress: RouteProgress
+        ): Boolean {
+            for (statement in statements) {
+                if (statement.isOccurring(previousRouteProgress, routeProgress)) {
+                    return false
+                }
+            }
+            return true
+        }
     }
 
     /**
@@ -193,24 +231,91 @@ object Trigger {
             }
             return false
         }
+
+        override fun isOccurring(
+            previousRouteProgress: RouteProgress?,
+            routeProgress: RouteProgress
+        ): Boolean {
+            for (statement in statements) {
+                if (statement.isOccurring(previousRouteProgress, routeProgress)) {
+                    return true
+                }
+            }
+            return false
+        }
     }
 
     /*
    * Simple statement
    */
+    /**
+     * Base of the statements comparing a single property with a value. The value is converted once
+     * on creation, the property is read from the [TriggerSnapshot] of the route progress. Results
+     * are the same as the [Operation] on the sparse array, including the boxed equality of
+     * [Operation.equal], where an [Int] value never equals a [Double] property.
+     */
+    private abstract class SimpleStatement(protected val key: Int, protected val value: Any?) :
+        Statement() {
+        private val number = value as? Number
+        private val doubleValue = number?.toDouble() ?: 0.0
+        private val isTrueValue = number is Int && number == TriggerProperty.TRUE_VALUE
+
+        /**
+         * Compares both values of a pair property.
+         */
+        abstract fun comparePair(first: Double, second: Double, isTrueValue: Boolean): Boolean
+
+        /**
+         * Compares a single property value with the statement value.
+         */
+        abstract fun compareValue(property: Double, value: Double, isEqual: Boolean): Boolean
+
+        override fun isOccurring(
+            previousRouteProgress: RouteProgress?,
+            routeProgress: RouteProgress
+        ): Boolean {
+            val snapshot = routeProgress.triggerSnapshot
+            val previousSnapshot = previousRouteProgress?.triggerSnapshot
+            if (!snapshot.contains(key, previousSnapshot)) {
+                throw NoSuchElementException("Key $key is missing in the map.")
+            }
+            // Fails the same way as the sparse array evaluation if the value is no number
+            val number = number ?: value as Number
+
+            val first = snapshot.first(key, previousSnapshot)
+            if (snapshot.isPair(key)) {
+                return comparePair(first, snapshot.second(key), isTrueValue)
+            }
+
+            val isEqual = if (snapshot.isInt(key)) {
+                number is Int && first == doubleValue
+            } else {
+                number is Double && first.toBits() == doubleValue.toBits()
+            }
+            return compareValue(first, doubleValue, isEqual)
+        }
+    }
+
     /**
      * Greater than class used to determine that the `RouteProgress` key property is greater than the specified
      * value.
      *
      * @since 0.4.0
      */
-    private class GreaterThanStatement(private val key: Int, private val value: Any?) :
-        Statement() {
+    private class GreaterThanStatement(key: Int, value: Any?) : SimpleStatement(key, value) {
         override fun isOccurring(statementObjects: HashMap<Int, Array<Number>>): Boolean {
              return Operation.greaterThan(
                  statementObjects.getValue(key), value as Number
              )
         }
+
+        override fun comparePair(first: Double, second: Double, isTrueValue: Boolean): Boolean {
+            return if (isTrueValue) first > second else first <= second
+        }
+
+        override fun compareValue(property: Double, value: Double, isEqual: Boolean): Boolean {
+            return property > value
+        }
     }
 
     /**
@@ -219,13 +324,20 @@ object Trigger {
      *
      * @since 0.4.0
      */
-    private class GreaterThanEqualStatement(private val key: Int, private val value: Any?) :
-        Statement() {
+    private class GreaterThanEqualStatement(key: Int, value: Any?) : SimpleStatement(key, value) {
         override fun isOccurring(statementObjects: HashMap<Int, Array<Number>>): Boolean {
             return Operation.greaterThanEqual(
                 statementObjects.getValue(key), value as Number
             )
         }
+
+        override fun comparePair(first: Double, second: Double, isTrueValue: Boolean): Boolean {
+            return if (isTrueValue) first >= second else first < second
+        }
+
+        override fun compareValue(property: Double, value: Double, isEqual: Boolean): Boolean {
+            return property >= value
+        }
     }
 
     /**
@@ -233,12 +345,20 @@ object Trigger {
      *
      * @since 0.4.0
      */
-    private class LessThanStatement(private val key: Int, private val value: Any?) : Statement() {
+    private class LessThanStatement(key: Int, value: Any?) : SimpleStatement(key, value) {
         override fun isOccurring(statementObjects: HashMap<Int, Array<Number>>): Boolean {
             return Operation.lessThan(
                 statementObjects.getValue(key), value as Number
             )
         }
+
+        override fun comparePair(first: Double, second: Double, isTrueValue: Boolean): Boolean {
+            return if (isTrueValue) first < second else first >= second
+        }
+
+        override fun compareValue(property: Double, value: Double, isEqual: Boolean): Boolean {
+            return property < value
+        }
     }
 
     /**
@@ -247,13 +367,20 @@ object Trigger {
      *
      * @since 0.4.0
      */
-    private class LessThanEqualStatement(private val key: Int, private val value: Any?) :
-        Statement() {
+    private class LessThanEqualStatement(key: Int, value: Any?) : SimpleStatement(key, value) {
         override fun isOccurring(statementObjects: HashMap<Int, Array<Number>>): Boolean {
             return Operation.lessThanEqual(
                 statementObjects.getValue(key), value as Number
             )
         }
+
+        override fun comparePair(first: Double, second: Double, isTrueValue: Boolean): Boolean {
+            return if (isTrueValue) first <= second else first > second
+        }
+
+        override fun compareValue(property: Double, value: Double, isEqual: Boolean): Boolean {
+            return property <= value
+        }
     }
 
     /**
@@ -261,12 +388,20 @@ object Trigger {
      *
      * @since 0.4.0
      */
-    private class NotEqualStatement(private val key: Int, private val value: Any) : Statement() {
+    private class NotEqualStatement(key: Int, value: Any) : SimpleStatement(key, value) {
         override fun isOccurring(statementObjects: HashMap<Int, Array<Number>>): Boolean {
             return Operation.notEqual(
                 statementObjects.getValue(key), value as Number
             )
         }
+
+        override fun comparePair(first: Double, second: Double, isTrueValue: Boolean): Boolean {
+            return if (isTrueValue) first != second else first == second
+        }
+
+        override fun compareValue(property: Double, value: Double, isEqual: Boolean): Boolean {
+            return !isEqual
+        }
     }
 
     /**
@@ -274,11 +409,19 @@ object Trigger {
      *
      * @since 0.4.0
      */
-    private class EqualStatement(private val key: Int, private val value: Any) : Statement() {
+    private class EqualStatement(key: Int, value: Any) : SimpleStatement(key, value) {
         override fun isOccurring(statementObjects: HashMap<Int, Array<Number>>): Boolean {
             return Operation.equal(
                 statementObjects.getValue(key), value as Number
             )
         }
+
+        override fun comparePair(first: Double, second: Double, isTrueValue: Boolean): Boolean {
+            return if (isTrueValue) first == second else first != second
+        }
+
+        override fun compareValue(property: Double, value: Double, isEqual: Boolean): Boolean {
+            return isEqual
+        }
     }
 }
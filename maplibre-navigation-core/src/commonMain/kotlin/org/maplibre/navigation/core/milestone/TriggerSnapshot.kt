@@ -0,0 +1,115 @@
+package org.maplibre.navigation.core.milestone
+
+import org.maplibre.navigation.core.routeprogress.RouteProgress
+
+/**
+ * Primitive copy of the [TriggerProperty] values of a single [RouteProgress].
+ *
+ * It holds the same values as [TriggerProperty.getSparseArray], without boxing them into a map.
+ * A snapshot is created once per route progress (see [RouteProgress.triggerSnapshot]) and shared
+ * by all milestones evaluated for this progress. [TriggerProperty.NEW_STEP] is the only property
+ * depending on the previous route progress, it is resolved on evaluation from the previous snapshot.
+ */
+internal class TriggerSnapshot(routeProgress: RouteProgress) {
+
+    private val firstValues = DoubleArray(KEY_COUNT)
+    private val secondValues = DoubleArray(KEY_COUNT)
+    private val flags = IntArray(KEY_COUNT)
+
+    /**
+     * Step index of the route progress, used as the second value of [TriggerProperty.NEW_STEP].
+     */
+    val stepIndex: Int
+
+    init {
+        val currentLegProgress = routeProgress.currentLegProgress
+        val currentStep = currentLegProgress.currentStep
+        val currentStepProgress = currentLegProgress.currentStepProgress
+        stepIndex = currentLegProgress.stepIndex
+
+        putDouble(TriggerProperty.STEP_DISTANCE_TOTAL_METERS, currentStep.distance)
+        putDouble(TriggerProperty.STEP_DURATION_TOTAL_SECONDS, currentStep.duration)
+        putDouble(TriggerProperty.STEP_DISTANCE_REMAINING_METERS, currentStepProgress.distanceRemaining)
+        putDouble(TriggerProperty.STEP_DURATION_REMAINING_SECONDS, currentStepProgress.durationRemaining)
+        putInt(TriggerProperty.STEP_INDEX, stepIndex)
+        putPair(TriggerProperty.LAST_STEP, stepIndex, routeProgress.currentLeg.steps.size - 2)
+        putPair(TriggerProperty.FIRST_STEP, stepIndex, 0)
+        currentLegProgress.upComingStep?.let { upComingStep ->
+            putDouble(TriggerProperty.NEXT_STEP_DURATION_SECONDS, upComingStep.duration)
+            putDouble(TriggerProperty.NEXT_STEP_DISTANCE_METERS, upComingStep.distance)
+        }
+        // STEP_DISTANCE_TRAVELED_METERS shares its key with FIRST_LEG. The sparse array puts
+        // FIRST_LEG last, so the leg pair is the value triggers see for this key.
+        putPair(TriggerProperty.FIRST_LEG, routeProgress.legIndex, 0)
+        putPair(
+            TriggerProperty.LAST_LEG,
+            routeProgress.legIndex,
+            routeProgress.directionsRoute.legs.size - 1
+        )
+    }
+
+    /**
+     * Whether the property is available, the same as the key being present in the sparse array.
+     */
+    fun contains(key: Int, previous: TriggerSnapshot?): Boolean {
+        if (key == TriggerProperty.NEW_STEP) {
+            return previous != null
+        }
+        return key in 0 until KEY_COUNT && flags[key] and FLAG_PRESENT != 0
+    }
+
+    /**
+     * Whether the property consists of two values, which are compared with each other.
+     */
+    fun isPair(key: Int): Boolean {
+        return key == TriggerProperty.NEW_STEP || flags[key] and FLAG_PAIR != 0
+    }
+
+    /**
+     * Whether the (single) property value is boxed as [Int] in the sparse array, otherwise as [Double].
+     */
+    fun isInt(key: Int): Boolean {
+        return flags[key] and FLAG_INT != 0
+    }
+
+    fun first(key: Int, previous: TriggerSnapshot?): Double {
+        if (key == TriggerProperty.NEW_STEP) {
+            return previous!!.stepIndex.toDouble()
+        }
+        return firstValues[key]
+    }
+
+    fun second(key: Int): Double {
+        if (key == TriggerProperty.NEW_STEP) {
+            return stepIndex.toDouble()
+        }
+        return secondValues[key]
+    }
+
+    private fun putDouble(key: Int, value: Double) {
+        firstValues[key] = value
+        flags[key] = FLAG_PRESENT
+    }
+
+    private fun putInt(key: Int, value: Int) {
+        firstValues[key] = value.toDouble()
+        flags[key] = FLAG_PRESENT or FLAG_INT
+    }
+
+    private fun putPair(key: Int, first: Int, second: Int) {
+        firstValues[key] = first.toDouble()
+        secondValues[key] = second.toDouble()
+        flags[key] = FLAG_PRESENT or FLAG_INT or FLAG_PAIR
+    }
+
+    private companion object {
+        /**
+         * Highest [TriggerProperty] key plus one.
+         */
+        const val KEY_COUNT = TriggerProperty.NEXT_STEP_DURATION_SECONDS + 1
+
+        const val FLAG_PRESENT = 1
+        const val FLAG_INT = 2
+        const val FLAG_PAIR = 4
+    }
+}
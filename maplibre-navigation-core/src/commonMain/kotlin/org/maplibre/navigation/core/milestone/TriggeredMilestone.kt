@@ -0,0 +1,13 @@
+package org.maplibre.navigation.core.milestone
+
+/**
+ * A milestone that was triggered by a location update, together with its instruction.
+ *
+ * @param milestone   the triggered milestone
+ * @param instruction built from [Milestone.getInstruction] for the route progress of the location
+ *  update, or null if the milestone has no instruction
+ */
+data class TriggeredMilestone(
+    val milestone: Milestone,
+    val instruction: String?,
+)
@@ -21,6 +21,8 @@ open class VoiceInstructionMilestone(
 
     private var instructions: VoiceInstructions? = null
 
+    private var schedule: InstructionSchedule<VoiceInstructions>? = null
+
     override fun isOccurring(
         previousRouteProgress: RouteProgress?,
         routeProgress: RouteProgress
@@ -28,8 +30,9 @@ open class VoiceInstructionMilestone(
         val stepDistanceRemaining = routeProgress.currentLegProgress
             .currentStepProgress
             .distanceRemaining
-        val instructions = routeUtils.findCurrentVoiceInstructions(
-            routeProgress.currentLegProgress.currentStep,
+        val instructions = scheduleFor(routeProgress).current(
+            routeProgress.legIndex,
+            routeProgress.currentLegProgress.stepIndex,
             stepDistanceRemaining
         )
 
@@ -83,6 +86,14 @@ open class VoiceInstructionMilestone(
             return instructions!!.announcement
         }
 
+    private fun scheduleFor(routeProgress: RouteProgress): InstructionSchedule<VoiceInstructions> {
+        return schedule?.takeIf { schedule -> schedule.route === routeProgress.directionsRoute }
+            ?: InstructionSchedule(
+                routeProgress.directionsRoute,
+                routeUtils.instructionIndex(routeProgress.directionsRoute).voiceInstructions
+            ).also { schedule = it }
+    }
+
     /**
      * Checks if the current instructions are different from the instructions
      * determined by the step distance remaining.
@@ -4,6 +4,7 @@ import kotlinx.serialization.SerialName
 import kotlinx.serialization.Serializable
 import kotlinx.serialization.encodeToString
 import org.maplibre.navigation.core.json
+import org.maplibre.navigation.core.utils.RouteFingerprint
 import kotlin.jvm.JvmStatic
 
 /**
@@ -91,6 +92,17 @@ data class DirectionsRoute(
     val voiceLanguage: String? = null,
 ) {
 
+    /**
+     * Stable geometry fingerprint of this route: a 64 bit FNV-1a hash over the route, leg and step
+     * geometries. A refreshed route with the same geometry, but for example an updated duration,
+     * has the same fingerprint. Computed once on first access and not serialized.
+     *
+     * Routes with the same fingerprint are treated as the same route, e.g. by
+     * [org.maplibre.navigation.core.utils.RouteUtils.isNewRoute], so comparing routes does not
+     * compare their full geometry strings.
+     */
+    val fingerprint: Long by lazy(LazyThreadSafetyMode.PUBLICATION) { RouteFingerprint.of(this) }
+
     fun toJson(): String = json.encodeToString(this)
 
     /**
@@ -5,6 +5,8 @@ import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.Job
 import org.maplibre.navigation.core.location.engine.LocationEngine
+import org.maplibre.navigation.core.metrics.HistogramNavigationMetrics
+import org.maplibre.navigation.core.metrics.NavigationMetrics
 import org.maplibre.navigation.core.milestone.BannerInstructionMilestone
 import org.maplibre.navigation.core.milestone.Milestone
 import org.maplibre.navigation.core.milestone.MilestoneEventListener
@@ -54,6 +56,9 @@ import kotlin.jvm.JvmOverloads
  *  detection logic, A default faster-route detection engine is attached when this class is first
  *  initialized; setting a custom one will replace it with your own implementation.
  * @param routeUtils            core utility class for route related calculations
+ * @param metrics               receives the duration of each stage the navigation engine runs for
+ *  a location update. By default, durations are ignored. Use [HistogramNavigationMetrics] to
+ *  collect them in histograms.
  *
  * @see MapLibreNavigationOptions
  */
@@ -89,6 +94,7 @@ open class MapLibreNavigation @JvmOverloads constructor(
     var offRouteEngine: OffRoute = OffRouteDetector(),
     var fasterRouteEngine: FasterRoute = FasterRouteDetector(options),
     val routeUtils: RouteUtils = RouteUtils(),
+    var metrics: NavigationMetrics = NavigationMetrics.NONE,
 ) {
 
     private val navigationRunnerJob = Job()
@@ -146,6 +152,12 @@ open class MapLibreNavigation @JvmOverloads constructor(
 
     val eventDispatcher: NavigationEventDispatcher = NavigationEventDispatcher()
 
+    /**
+     * Latest navigation state and triggered milestones as flows, as an alternative to the listeners.
+     * Collect them on the dispatcher of your choice.
+     */
+    val stateHolder: NavigationStateHolder = NavigationStateHolder()
+
     val milestones: Set<Milestone>
         get() = mutableMilestones
 
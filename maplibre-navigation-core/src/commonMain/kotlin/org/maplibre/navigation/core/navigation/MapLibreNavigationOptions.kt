@@ -1,5 +1,7 @@
 package org.maplibre.navigation.core.navigation
 
+import org.maplibre.navigation.core.geometry.GeometryStorage
+import org.maplibre.navigation.core.geometry.HeapGeometryStorage
 import org.maplibre.navigation.core.milestone.BannerInstructionMilestone
 import org.maplibre.navigation.core.milestone.VoiceInstructionMilestone
 import org.maplibre.navigation.core.route.FasterRouteDetector
@@ -114,7 +116,37 @@ data class MapLibreNavigationOptions(
      * will tell [RouteProcessorBackgroundThread] to check
      * for a faster [org.maplibre.navigation.core.models.DirectionsRoute].
      */
-    val fasterRouteCheckIntervalSeconds: Int = Defaults.FASTER_ROUTE_CHECK_INTERVAL_SECONDS
+    val fasterRouteCheckIntervalSeconds: Int = Defaults.FASTER_ROUTE_CHECK_INTERVAL_SECONDS,
+
+    /**
+     * How location updates are handled, which are received while the navigation engine is still
+     * processing a previous location update. See [LocationIngestionPolicy].
+     */
+    val locationIngestionPolicy: LocationIngestionPolicy = Defaults.locationIngestionPolicy,
+
+    /**
+     * Length of the time windows in milliseconds, in which queued location updates are coalesced
+     * with [LocationIngestionPolicy.TIME_WINDOW].
+     */
+    val locationCoalescingWindowMilliseconds: Long = Defaults.LOCATION_COALESCING_WINDOW_MILLISECONDS,
+
+    /**
+     * If enabled, the navigation engine reuses the buffers of the location updates queued for the
+     * dispatch on the main thread, including their lists of triggered milestones. A buffer is
+     * handed back once its update was dispatched, so apart from the route progress, the snapped
+     * location and the navigation state, processing a location update allocates a bounded number
+     * of objects after the route was set up. The buffers are kept until navigation is stopped.
+     */
+    val lowAllocationMode: Boolean = Defaults.LOW_ALLOCATION_MODE,
+
+    /**
+     * Storage for the decoded geometry of the route. Keeps the geometry on the heap by default.
+     * For very long routes, a storage outside of the heap can be used. The Android target provides
+     * the memory-mapped `MappedFileGeometryStorage` and the direct buffer based
+     * `DirectGeometryStorage`. Both are only available on Android; other targets can implement
+     * [GeometryStorage] themselves.
+     */
+    val geometryStorage: GeometryStorage = Defaults.geometryStorage
 ) {
     fun toBuilder(): Builder {
         return Builder()
@@ -139,6 +171,10 @@ data class MapLibreNavigationOptions(
             .withTimeFormatType(timeFormatType)
             .withLocationAcceptableAccuracyInMetersThreshold(locationAcceptableAccuracyInMetersThreshold)
             .withFasterRouteCheckIntervalSeconds(fasterRouteCheckIntervalSeconds)
+            .withLocationIngestionPolicy(locationIngestionPolicy)
+            .withLocationCoalescingWindowMilliseconds(locationCoalescingWindowMilliseconds)
+            .withLowAllocationMode(lowAllocationMode)
+            .withGeometryStorage(geometryStorage)
     }
 
     enum class TimeFormat(val id: Int) {
@@ -155,6 +191,32 @@ data class MapLibreNavigationOptions(
         ROUNDING_INCREMENT_ONE_HUNDRED(100)
     }
 
+    /**
+     * Policy for location updates, which are received while the navigation engine is still
+     * processing a previous location update. Skipped location updates are reported to
+     * [org.maplibre.navigation.core.metrics.NavigationMetrics].
+     */
+    enum class LocationIngestionPolicy {
+
+        /**
+         * Every location update is processed, in the order they are received.
+         */
+        PROCESS_ALL,
+
+        /**
+         * Only the latest of all queued location updates is processed, all others are dropped.
+         */
+        LATEST_ONLY,
+
+        /**
+         * Queued location updates are grouped into time windows of
+         * [locationCoalescingWindowMilliseconds], based on [org.maplibre.navigation.core.location.Location.time].
+         * Only the latest location update of every window is processed, all others are coalesced
+         * into it. Location updates without time are always processed.
+         */
+        TIME_WINDOW
+    }
+
     object Defaults {
         const val MAX_TURN_COMPLETION_OFFSET = 30.0
         const val MANEUVER_ZONE_RADIUS = 40.0
@@ -175,7 +237,11 @@ data class MapLibreNavigationOptions(
         const val IS_DEBUG_LOGGING_ENABLED = false
         const val LOCATION_ACCEPTABLE_ACCURACY_IN_METERS_THRESHOLD = 100
         const val FASTER_ROUTE_CHECK_INTERVAL_SECONDS = 120
+        const val LOCATION_COALESCING_WINDOW_MILLISECONDS = 1000L
+        const val LOW_ALLOCATION_MODE = false
         val roundingIncrement = RoundingIncrement.ROUNDING_INCREMENT_FIFTY
+        val locationIngestionPolicy = LocationIngestionPolicy.PROCESS_ALL
+        val geometryStorage: GeometryStorage = HeapGeometryStorage
     }
 
     class Builder {
@@ -207,6 +273,12 @@ data class MapLibreNavigationOptions(
             Defaults.LOCATION_ACCEPTABLE_ACCURACY_IN_METERS_THRESHOLD
         private var fasterRouteCheckIntervalSeconds: Int =
             Defaults.FASTER_ROUTE_CHECK_INTERVAL_SECONDS
+        private var locationIngestionPolicy: LocationIngestionPolicy =
+            Defaults.locationIngestionPolicy
+        private var locationCoalescingWindowMilliseconds: Long =
+            Defaults.LOCATION_COALESCING_WINDOW_MILLISECONDS
+        private var lowAllocationMode: Boolean = Defaults.LOW_ALLOCATION_MODE
+        private var geometryStorage: GeometryStorage = Defaults.geometryStorage
 
         fun withMaxTurnCompletionOffset(maxTurnCompletionOffset: Double) = apply { this.maxTurnCompletionOffset = maxTurnCompletionOffset }
         fun withManeuverZoneRadius(maneuverZoneRadius: Double) = apply { this.maneuverZoneRadius = maneuverZoneRadius }
@@ -229,6 +301,10 @@ data class MapLibreNavigationOptions(
         fun withTimeFormatType(timeFormatType: TimeFormat) = apply { this.timeFormatType = timeFormatType }
         fun withLocationAcceptableAccuracyInMetersThreshold(locationAcceptableAccuracyInMetersThreshold: Int) = apply { this.locationAcceptableAccuracyInMetersThreshold = locationAcceptableAccuracyInMetersThreshold }
         fun withFasterRouteCheckIntervalSeconds(fasterRouteCheckIntervalSeconds: Int) = apply { this.fasterRouteCheckIntervalSeconds = fasterRouteCheckIntervalSeconds }
+        fun withLocationIngestionPolicy(locationIngestionPolicy: LocationIngestionPolicy) = apply { this.locationIngestionPolicy = locationIngestionPolicy }
+        fun withLocationCoalescingWindowMilliseconds(locationCoalescingWindowMilliseconds: Long) = apply { this.locationCoalescingWindowMilliseconds = locationCoalescingWindowMilliseconds }
+        fun withLowAllocationMode(lowAllocationMode: Boolean) = apply { this.lowAllocationMode = lowAllocationMode }
+        fun withGeometryStorage(geometryStorage: GeometryStorage) = apply { this.geometryStorage = geometryStorage }
 
         fun build(): MapLibreNavigationOptions {
             return MapLibreNavigationOptions(
@@ -252,7 +328,11 @@ data class MapLibreNavigationOptions(
                 roundingIncrement,
                 timeFormatType,
                 locationAcceptableAccuracyInMetersThreshold,
-                fasterRouteCheckIntervalSeconds
+                fasterRouteCheckIntervalSeconds,
+                locationIngestionPolicy,
+                locationCoalescingWindowMilliseconds,
+                lowAllocationMode,
+                geometryStorage
             )
         }
     }
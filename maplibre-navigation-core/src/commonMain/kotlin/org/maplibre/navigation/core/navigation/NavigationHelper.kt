@@ -3,6 +3,11 @@ package org.maplibre.navigation.core.navigation
 import co.touchlab.kermit.Logger
 import org.maplibre.geojson.model.LineString
 import org.maplibre.geojson.model.Point
+import org.maplibre.navigation.core.geometry.LocalGeometry
+import org.maplibre.navigation.core.geometry.PolylineDecoder
+import org.maplibre.navigation.core.geometry.RouteGeometry
+import org.maplibre.navigation.core.geometry.SegmentCursor
+import org.maplibre.navigation.core.geometry.SegmentProjection
 import org.maplibre.navigation.core.location.Location
 import org.maplibre.navigation.core.milestone.Milestone
 import org.maplibre.navigation.core.models.DirectionsRoute
@@ -10,16 +15,17 @@ import org.maplibre.navigation.core.models.LegAnnotation
 import org.maplibre.navigation.core.models.LegStep
 import org.maplibre.navigation.core.models.RouteLeg
 import org.maplibre.navigation.core.models.StepIntersection
+import org.maplibre.navigation.core.offroute.OffRoute
 import org.maplibre.navigation.core.offroute.OffRouteCallback
 import org.maplibre.navigation.core.offroute.OffRouteDetector
 import org.maplibre.navigation.core.routeprogress.CurrentLegAnnotation
 import org.maplibre.navigation.core.routeprogress.RouteProgress
+import org.maplibre.navigation.core.snap.Snap
 import org.maplibre.navigation.core.utils.Constants
 import org.maplibre.navigation.core.utils.MathUtils
 import org.maplibre.geojson.turf.TurfMeasurement
 import org.maplibre.geojson.turf.TurfMisc
 import org.maplibre.geojson.turf.TurfUnit
-import org.maplibre.geojson.utils.PolylineUtils
 import kotlin.jvm.JvmStatic
 
 /**
@@ -30,6 +36,11 @@ object NavigationHelper {
     private const val FIRST_INTERSECTION = 0
     private const val ZERO_METERS = 0.0
     private const val TWO_POINTS = 2
+    private const val MAX_SNAP_DISTANCE_METERS = 1000.0
+    private const val INTERSECTION_MATCH_TOLERANCE_METERS = 1.0
+    private const val INTERSECTION_MATCH_TOLERANCE_SQUARED =
+        (INTERSECTION_MATCH_TOLERANCE_METERS / LocalGeometry.METERS_PER_DEGREE) *
+                (INTERSECTION_MATCH_TOLERANCE_METERS / LocalGeometry.METERS_PER_DEGREE)
 
     @JvmStatic
     fun buildSnappedLocation(
@@ -38,9 +49,26 @@ object NavigationHelper {
         rawLocation: Location,
         routeProgress: RouteProgress,
         userOffRoute: Boolean
+    ): Location {
+        return buildSnappedLocation(
+            mapLibreNavigation.snapEngine,
+            snapToRouteEnabled,
+            rawLocation,
+            routeProgress,
+            userOffRoute
+        )
+    }
+
+    @JvmStatic
+    fun buildSnappedLocation(
+        snapEngine: Snap,
+        snapToRouteEnabled: Boolean,
+        rawLocation: Location,
+        routeProgress: RouteProgress,
+        userOffRoute: Boolean
     ): Location {
         val location = if (!userOffRoute && snapToRouteEnabled) {
-            mapLibreNavigation.snapEngine.getSnappedLocation(rawLocation, routeProgress)
+            snapEngine.getSnappedLocation(rawLocation, routeProgress)
         } else {
             rawLocation
         }
@@ -103,6 +131,52 @@ object NavigationHelper {
         return TurfMeasurement.length(slicedLine, TurfUnit.METERS)
     }
 
+    /**
+     * Calculates the distance remaining in the step from the current users snapped position, to the
+     * end of the step, using the decoded [RouteGeometry] and its cumulative distances.
+     *
+     * If the user is more than 1km away from the route, we are returning the total step distance.
+     *
+     * @param location      for current coordinates
+     * @param legIndex      current leg index
+     * @param stepIndex     current step index
+     * @param routeGeometry decoded geometry of the current route
+     * @param cursor        to search the closest segment of the step
+     * @param projection    result instance for the projection of the location onto the step
+     * @return distance remaining in meters
+     */
+    @JvmStatic
+    fun stepDistanceRemaining(
+        location: Location,
+        legIndex: Int,
+        stepIndex: Int,
+        routeGeometry: RouteGeometry,
+        cursor: SegmentCursor,
+        projection: SegmentProjection
+    ): Double {
+        // If the linestring coordinate size is less than 2,the distance remaining is zero.
+        if (routeGeometry.stepVertexCount(legIndex, stepIndex) < 2) {
+            return 0.0
+        }
+
+        cursor.projectOnStep(
+            routeGeometry,
+            legIndex,
+            stepIndex,
+            location.longitude,
+            location.latitude,
+            projection
+        )
+
+        // Check distance to route line, if it's too high, it makes no sense to snap and we assume the step distance is the whole distance of the step
+        if (projection.distance > MAX_SNAP_DISTANCE_METERS) {
+            Logger.d { "Distance to step is larger than 1km, so we won't advance the step, distance: ${projection.distance} m" }
+            return routeGeometry.stepLength(legIndex, stepIndex)
+        }
+
+        return routeGeometry.stepDistanceRemaining(legIndex, stepIndex, projection)
+    }
+
     /**
      * Takes in the already calculated step distance and iterates through the step list from the
      * step index value plus one till the end of the leg.
@@ -230,7 +304,7 @@ object NavigationHelper {
      * return a list of [Point] representing the current step.
      *
      *
-     * This method is only used on a per-step basis as [PolylineUtils.decode]
+     * This method is only used on a per-step basis as [PolylineDecoder.decodePoints]
      * can be a heavy operation based on the length of the step.
      *
      *
@@ -251,11 +325,44 @@ object NavigationHelper {
             ?.steps
             ?.getOrNull(stepIndex)
             ?.let { step ->
-                PolylineUtils.decode(step.geometry, Constants.PRECISION_6)
+                PolylineDecoder.decodePoints(step.geometry, Constants.PRECISION_6)
             }
             ?: currentPoints
     }
 
+    /**
+     * Given the current [DirectionsRoute] and leg / step index,
+     * return a list of [Point] representing the current step.
+     *
+     *
+     * If a [RouteGeometry] of the same route is given, the already decoded step is used.
+     * Otherwise, the step geometry gets decoded with [decodeStepPoints].
+     *
+     *
+     * Returns the current points if index is invalid.
+     *
+     * @param directionsRoute for list of steps
+     * @param routeGeometry   decoded geometry of the route, if available
+     * @param legIndex        to get current step list
+     * @param stepIndex       to get current step
+     * @return list of [Point] representing the current step
+     */
+    @JvmStatic
+    fun decodeStepPoints(
+        directionsRoute: DirectionsRoute, routeGeometry: RouteGeometry?,
+        currentPoints: List<Point>, legIndex: Int, stepIndex: Int
+    ): List<Point> {
+        if (routeGeometry == null || routeGeometry.route !== directionsRoute) {
+            return decodeStepPoints(directionsRoute, currentPoints, legIndex, stepIndex)
+        }
+
+        return if (routeGeometry.hasStep(legIndex, stepIndex)) {
+            routeGeometry.stepPoints(legIndex, stepIndex)
+        } else {
+            currentPoints
+        }
+    }
+
     /**
      * Given a current and upcoming step, this method assembles a list of [StepIntersection]
      * consisting of all of the current step intersections, as well as the first intersection of
@@ -322,6 +429,74 @@ object NavigationHelper {
         return distancesToIntersections
     }
 
+    /**
+     * Creates the distances of the intersections along a step of the decoded route geometry, the
+     * same as [createDistancesToIntersections] on the step points.
+     *
+     *
+     * The intersections are matched in a single forward pass over the segments of the step,
+     * starting at the segment of the previous intersection. Each intersection is matched where the
+     * step first comes within 1 meter of it, to the closest of the following segments that get
+     * closer to it, and measured with the cumulative distances of the [RouteGeometry]. An
+     * intersection off the step geometry is measured at its closest point after the previous
+     * intersection.
+     *
+     * @param routeGeometry decoded geometry of the route
+     * @param legIndex      leg index of the step
+     * @param stepIndex     step index of the step
+     * @param intersections along the step to be measured, in their order along the step
+     * @return distance along the step of each intersection, in the order of [intersections], or
+     * an empty array if the step has less than two points
+     */
+    @JvmStatic
+    fun createDistancesToIntersections(
+        routeGeometry: RouteGeometry,
+        legIndex: Int,
+        stepIndex: Int,
+        intersections: List<StepIntersection>
+    ): DoubleArray {
+        val stepStart = routeGeometry.stepStartVertex(legIndex, stepIndex)
+        val stepEnd = routeGeometry.stepEndVertex(legIndex, stepIndex)
+        // Require at minimum two points
+        if (stepEnd - stepStart < TWO_POINTS) {
+            return DoubleArray(0)
+        }
+
+        val stepStartDistance = routeGeometry.distanceAlongRoute(stepStart)
+        val lastSegment = stepEnd - TWO_POINTS
+        val projection = SegmentProjection()
+        val distancesToIntersections = DoubleArray(intersections.size)
+        var segment = stepStart
+        for ((index, intersection) in intersections.withIndex()) {
+            val longitude = intersection.location.longitude
+            val latitude = intersection.location.latitude
+            val longitudeScale = LocalGeometry.longitudeScale(latitude)
+            var closestSegment = segment
+            var closestFraction = 0.0
+            var closestDistanceSquared = Double.MAX_VALUE
+            for (candidate in segment..lastSegment) {
+                val fraction = routeGeometry.segmentFraction(candidate, longitude, latitude, longitudeScale)
+                val distanceSquared =
+                    routeGeometry.segmentDistanceSquared(candidate, fraction, longitude, latitude, longitudeScale)
+                if (closestDistanceSquared <= INTERSECTION_MATCH_TOLERANCE_SQUARED
+                    && distanceSquared >= closestDistanceSquared
+                ) {
+                    break
+                }
+                if (distanceSquared < closestDistanceSquared) {
+                    closestDistanceSquared = distanceSquared
+                    closestSegment = candidate
+                    closestFraction = fraction
+                }
+            }
+
+            segment = closestSegment
+            routeGeometry.setProjection(projection, closestSegment, closestFraction, longitude, latitude)
+            distancesToIntersections[index] = projection.distanceAlongRoute - stepStartDistance
+        }
+        return distancesToIntersections
+    }
+
     /**
      * Based on the list of measured intersections and the step distance traveled, finds
      * the current intersection a user is traveling along.
@@ -446,10 +621,55 @@ object NavigationHelper {
         routeProgress: RouteProgress,
         mapLibreNavigation: MapLibreNavigation
     ): List<Milestone> {
-        return mapLibreNavigation.milestones
+        return checkMilestones(previousRouteProgress, routeProgress, mapLibreNavigation.milestones)
+    }
+
+    /**
+     * This method runs through the given list of milestones and returns a list of occurring
+     * milestones (if any), based on their individual criteria.
+     *
+     * @param previousRouteProgress for checking if milestone is occurring
+     * @param routeProgress         for checking if milestone is occurring
+     * @param milestones            to check
+     * @return list of occurring milestones
+     */
+    @JvmStatic
+    fun checkMilestones(
+        previousRouteProgress: RouteProgress?,
+        routeProgress: RouteProgress,
+        milestones: Collection<Milestone>
+    ): List<Milestone> {
+        return milestones
             .filter { m -> m.isOccurring(previousRouteProgress, routeProgress) }
     }
 
+    /**
+     * This method runs through the given list of milestones and collects the occurring
+     * milestones (if any) into the given list, which is cleared first. Other than
+     * [checkMilestones], no new list is created.
+     *
+     * @param previousRouteProgress for checking if milestone is occurring
+     * @param routeProgress         for checking if milestone is occurring
+     * @param milestones            to check
+     * @param triggeredMilestones   list to collect the occurring milestones into
+     * @return the given list of occurring milestones
+     */
+    @JvmStatic
+    fun checkMilestones(
+        previousRouteProgress: RouteProgress?,
+        routeProgress: RouteProgress,
+        milestones: Collection<Milestone>,
+        triggeredMilestones: MutableList<Milestone>
+    ): List<Milestone> {
+        triggeredMilestones.clear()
+        for (milestone in milestones) {
+            if (milestone.isOccurring(previousRouteProgress, routeProgress)) {
+                triggeredMilestones.add(milestone)
+            }
+        }
+        return triggeredMilestones
+    }
+
     /**
      * This method checks if off route detection is enabled or disabled.
      *
@@ -471,12 +691,40 @@ object NavigationHelper {
         routeProgress: RouteProgress,
         callback: OffRouteCallback
     ): Boolean {
-        val options = mapLibreNavigation.options
+        return isUserOffRoute(
+            mapLibreNavigation.options,
+            mapLibreNavigation.offRouteEngine,
+            location,
+            routeProgress,
+            callback
+        )
+    }
+
+    /**
+     * This method checks if off route detection is enabled or disabled.
+     *
+     * If enabled, [OffRoute.isUserOffRoute] of the given off route engine is called
+     * to determine if the location is on or off route.
+     *
+     * @param options        to check if off route detection is enabled
+     * @param offRouteEngine to check the location with
+     * @param location       new location
+     * @param routeProgress  to be used in off route check
+     * @param callback       only used if using our default [OffRouteDetector]
+     * @return true if on route, false otherwise
+     */
+    @JvmStatic
+    fun isUserOffRoute(
+        options: MapLibreNavigationOptions,
+        offRouteEngine: OffRoute,
+        location: Location,
+        routeProgress: RouteProgress,
+        callback: OffRouteCallback
+    ): Boolean {
         if (!options.enableOffRouteDetection) {
             return false
         }
 
-        val offRouteEngine = mapLibreNavigation.offRouteEngine
         (offRouteEngine as? OffRouteDetector)?.callback = callback
 
         return offRouteEngine.isUserOffRoute(
@@ -516,7 +764,7 @@ object NavigationHelper {
         legDistanceRemaining: Double,
         distanceAnnotationList: List<Double>
     ): AnnotationResult? {
-        val legDistances: List<Double> = ArrayList(distanceAnnotationList)
+        val legDistances = distanceAnnotationList
         val distanceTraveled = leg.distance - legDistanceRemaining
         val distanceIndex = currentLegAnnotation?.index ?: 0
 
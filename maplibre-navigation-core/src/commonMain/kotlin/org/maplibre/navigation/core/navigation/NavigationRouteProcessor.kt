@@ -1,17 +1,19 @@
 package org.maplibre.navigation.core.navigation
 
 import org.maplibre.geojson.model.Point
+import org.maplibre.navigation.core.geometry.LocationProjection
+import org.maplibre.navigation.core.geometry.RouteGeometry
+import org.maplibre.navigation.core.geometry.SegmentCursor
+import org.maplibre.navigation.core.geometry.SegmentProjection
 import org.maplibre.navigation.core.location.Location
 import org.maplibre.navigation.core.models.DirectionsRoute
 import org.maplibre.navigation.core.models.LegStep
 import org.maplibre.navigation.core.models.RouteLeg
 import org.maplibre.navigation.core.models.StepIntersection
 import org.maplibre.navigation.core.navigation.NavigationHelper.checkBearingForStepCompletion
-import org.maplibre.navigation.core.navigation.NavigationHelper.createCurrentAnnotation
 import org.maplibre.navigation.core.navigation.NavigationHelper.createDistancesToIntersections
 import org.maplibre.navigation.core.navigation.NavigationHelper.createIntersectionsList
 import org.maplibre.navigation.core.navigation.NavigationHelper.decodeStepPoints
-import org.maplibre.navigation.core.navigation.NavigationHelper.findCurrentIntersection
 import org.maplibre.navigation.core.navigation.NavigationHelper.findUpcomingIntersection
 import org.maplibre.navigation.core.navigation.NavigationHelper.increaseIndex
 import org.maplibre.navigation.core.navigation.NavigationHelper.legDistanceRemaining
@@ -21,29 +23,46 @@ import org.maplibre.navigation.core.offroute.OffRoute
 import org.maplibre.navigation.core.offroute.OffRouteCallback
 import org.maplibre.navigation.core.offroute.OffRouteDetector
 import org.maplibre.navigation.core.routeprogress.CurrentLegAnnotation
+import org.maplibre.navigation.core.routeprogress.LegAnnotationIndex
 import org.maplibre.navigation.core.routeprogress.RouteProgress
 import org.maplibre.navigation.core.utils.RouteUtils
 import kotlin.jvm.JvmField
 
+/**
+ * Builds the [RouteProgress] for every location update and keeps the current leg and step.
+ *
+ * @param routeUtils          core utility class for route related calculations
+ * @param sharedRouteGeometry already decoded geometry, used instead of decoding the route again
+ *  when its [RouteGeometry.route] is processed. Allows processors of the same route to share
+ *  the decoded geometry.
+ */
 open class NavigationRouteProcessor(
-    private val routeUtils: RouteUtils
+    private val routeUtils: RouteUtils,
+    private val sharedRouteGeometry: RouteGeometry? = null,
 ) : OffRouteCallback {
 
     @JvmField
     var routeProgress: RouteProgress? = null
+    private var routeGeometry: RouteGeometry? = null
+    private val stepCursor = SegmentCursor()
+    private val stepProjection = SegmentProjection()
+    private var locationProjection: LocationProjection? = null
     private var currentStepPoints: List<Point>? = null
     private var upcomingStepPoints: List<Point>? = null
     private var currentIntersections: List<StepIntersection>? = null
-    private var currentIntersectionDistances: Map<StepIntersection, Double>? = null
+    private var currentIntersectionDistances: StepIntersectionDistances? = null
     private var currentLeg: RouteLeg? = null
     private var currentStep: LegStep? = null
     private var upcomingStep: LegStep? = null
     private var currentLegAnnotation: CurrentLegAnnotation? = null
+    private var legAnnotationIndex: LegAnnotationIndex? = null
     private var indices: NavigationIndices =
         NavigationIndices(legIndex = FIRST_LEG_INDEX, stepIndex = FIRST_STEP_INDEX)
     private var stepDistanceRemaining = 0.0
     private var shouldIncreaseIndex = false
     private var shouldUpdateToIndex: NavigationIndices? = null
+    private var preparedStep: PreparedStep? = null
+    private var upcomingStepPrepared = false
 
     override fun onShouldIncreaseIndex() {
         shouldIncreaseIndex = true
@@ -68,17 +87,42 @@ open class NavigationRouteProcessor(
      * @return new route progress along the route
      */
     fun buildNewRouteProgress(navigation: MapLibreNavigation, location: Location): RouteProgress {
-        val directionsRoute = navigation.route!!
-        val options = navigation.options
+        return buildNewRouteProgress(
+            navigation.route!!,
+            navigation.options,
+            navigation.offRouteEngine,
+            location
+        )
+    }
+
+    /**
+     * Will take a given location update and create a new [RouteProgress]
+     * based on our calculations of the distances remaining.
+     *
+     * Same as [buildNewRouteProgress] with a [MapLibreNavigation], for processing location
+     * updates without a navigation session.
+     *
+     * @param directionsRoute the current route
+     * @param options         the navigation options
+     * @param offRouteEngine  to clear the distances to the maneuver, once the step changes
+     * @param location        for step / leg / route distance remaining
+     * @return new route progress along the route
+     */
+    fun buildNewRouteProgress(
+        directionsRoute: DirectionsRoute,
+        options: MapLibreNavigationOptions,
+        offRouteEngine: OffRoute,
+        location: Location
+    ): RouteProgress {
         val completionOffset = options.maxTurnCompletionOffset
         val maneuverZoneRadius = options.maneuverZoneRadius
-        val newRoute = checkNewRoute(navigation)
+        val newRoute = checkNewRoute(directionsRoute, options, offRouteEngine)
         stepDistanceRemaining = calculateStepDistanceRemaining(location, directionsRoute)
         if (!newRoute && routeProgress != null) {
             checkManeuverCompletion(
-                navigation,
-                location,
                 directionsRoute,
+                offRouteEngine,
+                location,
                 completionOffset,
                 maneuverZoneRadius
             )
@@ -96,33 +140,123 @@ open class NavigationRouteProcessor(
      */
     fun checkIncreaseIndex(navigation: MapLibreNavigation) {
         if (shouldIncreaseIndex) {
-            advanceIndices(navigation)
+            checkIncreaseIndex(navigation.route!!, navigation.offRouteEngine)
+        }
+    }
+
+    /**
+     * If the [OffRouteCallback.onShouldIncreaseIndex] has been called by the
+     * [OffRouteDetector], shouldIncreaseIndex
+     * will be true and the [NavigationIndices] index needs to be increased by one.
+     *
+     * @param directionsRoute to get the next [LegStep.geometry]
+     * @param offRouteEngine  to clear the distances to the maneuver
+     */
+    fun checkIncreaseIndex(directionsRoute: DirectionsRoute, offRouteEngine: OffRoute) {
+        if (shouldIncreaseIndex) {
+            advanceIndices(directionsRoute, offRouteEngine)
             shouldIncreaseIndex = false
             shouldUpdateToIndex = null
         }
     }
 
+    /**
+     * Prepares the step following the current step, so its data doesn't need to be created when the
+     * step index is increased with the next location updates. Only data not kept by the current
+     * step is created: the intersections and their distances, and the points of the step after
+     * the next one. The points of the next step are already decoded as upcoming step points.
+     *
+     * The step is prepared synchronously, on the same thread as [buildNewRouteProgress], after the
+     * current location update has been processed. The next step is prepared once per step, further
+     * calls return immediately until the step index changes. To prepare the step on another
+     * thread, use [upcomingStepPreparation] instead.
+     */
+    fun prepareUpcomingStep() {
+        val preparation = upcomingStepPreparation() ?: return
+        preparedStep = preparation()
+    }
+
+    /**
+     * Captures the step following the current step for its preparation on another thread, like
+     * [prepareUpcomingStep]. Must be called on the same thread as [buildNewRouteProgress].
+     *
+     * The returned preparation only reads the route and its decoded geometry, which are not
+     * modified anymore, and can run on any thread. Its result is handed back with
+     * [usePreparedStep], on the thread of [buildNewRouteProgress]. If the step is entered before,
+     * it is prepared again on entering.
+     *
+     * @return the preparation, or null if the next step is already prepared or there is none
+     */
+    internal fun upcomingStepPreparation(): (() -> PreparedStep)? {
+        if (upcomingStepPrepared) {
+            return null
+        }
+        val route = routeProgress?.directionsRoute ?: return null
+        upcomingStepPrepared = true
+        val steps = route.legs.getOrNull(indices.legIndex)?.steps ?: return null
+        val nextIndices = when {
+            indices.stepIndex < steps.size - ONE_INDEX ->
+                NavigationIndices(legIndex = indices.legIndex, stepIndex = indices.stepIndex + ONE_INDEX)
+
+            indices.legIndex < route.legs.size - ONE_INDEX ->
+                NavigationIndices(legIndex = indices.legIndex + ONE_INDEX, stepIndex = FIRST_STEP_INDEX)
+
+            else -> return null
+        }
+        if (route.legs[nextIndices.legIndex].steps.size <= nextIndices.stepIndex) {
+            return null
+        }
+
+        val routeGeometry = routeGeometry
+        val stepPoints = upcomingStepPoints.takeIf { nextIndices.legIndex == indices.legIndex }
+        return { prepareStep(route, routeGeometry, nextIndices.legIndex, nextIndices.stepIndex, stepPoints) }
+    }
+
+    /**
+     * Keeps a step prepared by an [upcomingStepPreparation], to be used once the step is entered.
+     * Must be called on the same thread as [buildNewRouteProgress]. A step prepared for another
+     * route or step is ignored when the step changes.
+     */
+    internal fun usePreparedStep(step: PreparedStep) {
+        preparedStep = step
+    }
+
     /**
      * Checks if the route provided is a new route. If it is, all [RouteProgress]
-     * data and [NavigationIndices] needs to be reset.
+     * data and [NavigationIndices] needs to be reset. The [RouteGeometry] is decoded
+     * once for every route set, unless the shared geometry belongs to the route. Steps
+     * unchanged from the previous route, like after a reroute, are reused and not decoded again.
      *
-     * @param mapLibreNavigation to get the current route and off-route engine
+     * @param directionsRoute the current route
+     * @param options         for the storage of the decoded route geometry
+     * @param offRouteEngine  to clear the distances to the maneuver
      * @return Whether or not a route progress is already set and [RouteUtils] determines this is a new route
      */
-    private fun checkNewRoute(mapLibreNavigation: MapLibreNavigation): Boolean {
-        return mapLibreNavigation.route?.let { directionsRoute ->
-            val newRoute = routeUtils.isNewRoute(routeProgress, directionsRoute)
-            if (newRoute) {
-                createFirstIndices(mapLibreNavigation)
-                currentLegAnnotation = null
-            }
-            newRoute
-        } ?: false
+    private fun checkNewRoute(
+        directionsRoute: DirectionsRoute,
+        options: MapLibreNavigationOptions,
+        offRouteEngine: OffRoute
+    ): Boolean {
+        val newRoute = routeUtils.isNewRoute(routeProgress, directionsRoute)
+        if (routeGeometry?.route !== directionsRoute) {
+            upcomingStepPrepared = false
+            routeGeometry = sharedRouteGeometry
+                ?.takeIf { geometry -> geometry.route === directionsRoute }
+                ?: RouteGeometry.fromRoute(directionsRoute, options.geometryStorage, routeGeometry)
+        }
+        if (newRoute) {
+            createFirstIndices(directionsRoute, offRouteEngine)
+            currentLegAnnotation = null
+        }
+        return newRoute
     }
 
     /**
      * Given a location update, calculate the current step distance remaining.
      *
+     * The projection of the location onto the step is kept as [LocationProjection], so it can be
+     * shared with the other engines through the [RouteProgress].
+     *
      * @param location        for current coordinates
      * @param directionsRoute for current [LegStep]
      * @return distance remaining in meters
@@ -131,13 +265,42 @@ open class NavigationRouteProcessor(
         location: Location,
         directionsRoute: DirectionsRoute
     ): Double {
+        locationProjection = null
+        val routeGeometry = routeGeometryOf(directionsRoute)
+        if (routeGeometry != null && routeGeometry.hasStep(indices.legIndex, indices.stepIndex)) {
+            val distanceRemaining = stepDistanceRemaining(
+                location, indices.legIndex, indices.stepIndex, routeGeometry, stepCursor, stepProjection
+            )
+            if (routeGeometry.stepVertexCount(indices.legIndex, indices.stepIndex) > 1 && stepProjection.isValid) {
+                locationProjection = LocationProjection.create(
+                    location, routeGeometry, indices.legIndex, indices.stepIndex, stepProjection
+                )
+            }
+            return distanceRemaining
+        }
+
         return stepDistanceRemaining(
             location, indices.legIndex, indices.stepIndex, directionsRoute, currentStepPoints!!
         )
     }
 
+    /**
+     * The [LegAnnotationIndex] of the given leg, created once when the leg is entered.
+     */
+    private fun legAnnotationIndexOf(leg: RouteLeg): LegAnnotationIndex {
+        return legAnnotationIndex?.takeIf { index -> index.leg === leg }
+            ?: LegAnnotationIndex(leg).also { index -> legAnnotationIndex = index }
+    }
+
+    /**
+     * The decoded [RouteGeometry], if it belongs to the given route.
+     */
+    private fun routeGeometryOf(directionsRoute: DirectionsRoute): RouteGeometry? {
+        return routeGeometry?.takeIf { geometry -> geometry.route === directionsRoute }
+    }
+
     private fun checkManeuverCompletion(
-        navigation: MapLibreNavigation, location: Location, directionsRoute: DirectionsRoute,
+        directionsRoute: DirectionsRoute, offRouteEngine: OffRoute, location: Location,
         completionOffset: Double, maneuverZoneRadius: Double
     ) {
         val withinManeuverRadius = stepDistanceRemaining < maneuverZoneRadius
@@ -147,7 +310,7 @@ open class NavigationRouteProcessor(
         val forceIncreaseIndices = stepDistanceRemaining == 0.0 && !bearingMatchesManeuver
 
         if ((bearingMatchesManeuver && withinManeuverRadius) || forceIncreaseIndices) {
-            advanceIndices(navigation)
+            advanceIndices(directionsRoute, offRouteEngine)
             stepDistanceRemaining = calculateStepDistanceRemaining(location, directionsRoute)
         }
     }
@@ -159,9 +322,10 @@ open class NavigationRouteProcessor(
      * Decodes the step points for the new step and clears the distances from
      * maneuver stack, as the maneuver has now changed.
      *
-     * @param mapLibreNavigation to get the next [LegStep.geometry] and [OffRoute]
+     * @param directionsRoute to get the next [LegStep.geometry]
+     * @param offRouteEngine  to clear the distances to the maneuver
      */
-    private fun advanceIndices(mapLibreNavigation: MapLibreNavigation) {
+    private fun advanceIndices(directionsRoute: DirectionsRoute, offRouteEngine: OffRoute) {
         val newIndices: NavigationIndices =
             shouldUpdateToIndex ?: increaseIndex(routeProgress!!, indices)
 
@@ -169,17 +333,18 @@ open class NavigationRouteProcessor(
             currentLegAnnotation = null
         }
         indices = newIndices
-        processNewIndex(mapLibreNavigation)
+        processNewIndex(directionsRoute, offRouteEngine)
     }
 
     /**
      * Initializes or resets the [NavigationIndices] for a new route received.
      *
-     * @param mapLibreNavigation to get the next [LegStep.geometry] and [OffRoute]
+     * @param directionsRoute to get the first [LegStep.geometry]
+     * @param offRouteEngine  to clear the distances to the maneuver
      */
-    private fun createFirstIndices(mapLibreNavigation: MapLibreNavigation) {
+    private fun createFirstIndices(directionsRoute: DirectionsRoute, offRouteEngine: OffRoute) {
         indices = NavigationIndices(FIRST_LEG_INDEX, FIRST_STEP_INDEX)
-        processNewIndex(mapLibreNavigation)
+        processNewIndex(directionsRoute, offRouteEngine)
     }
 
     /**
@@ -189,42 +354,54 @@ open class NavigationRouteProcessor(
      * Processes all new index-based data that is
      * needed for [NavigationRouteProcessor.assembleRouteProgress].
      *
-     * @param mapLibreNavigation for the current route
+     * @param route          the current route
+     * @param offRouteEngine to clear the distances to the maneuver
      */
-    private fun processNewIndex(mapLibreNavigation: MapLibreNavigation) {
-        val route = mapLibreNavigation.route!!
+    private fun processNewIndex(route: DirectionsRoute, offRouteEngine: OffRoute) {
         val legIndex = indices.legIndex
         val stepIndex = indices.stepIndex
-        val upcomingStepIndex = stepIndex + ONE_INDEX
         if (route.legs.size <= legIndex || route.legs[legIndex].steps.size <= stepIndex) {
             // This catches a potential race condition when the route is changed, before the new index is processed
-            createFirstIndices(mapLibreNavigation)
+            createFirstIndices(route, offRouteEngine)
             return
         }
-        updateSteps(route, legIndex, stepIndex, upcomingStepIndex)
-        updateStepPoints(route, legIndex, stepIndex, upcomingStepIndex)
-        updateIntersections()
-        clearManeuverDistances(mapLibreNavigation.offRouteEngine)
+        val step = preparedStep?.takeIf { step -> step.isFor(route, routeGeometry, indices) }
+            ?: prepareStep(route, routeGeometry, legIndex, stepIndex)
+        preparedStep = null
+        upcomingStepPrepared = false
+
+        currentLeg = step.leg
+        currentStep = step.step
+        upcomingStep = step.upcomingStep
+        currentStepPoints = step.stepPoints
+        upcomingStepPoints = step.upcomingStepPoints
+        currentIntersections = step.intersections
+        currentIntersectionDistances = step.intersectionDistances
+        clearManeuverDistances(offRouteEngine)
     }
 
     private fun assembleRouteProgress(route: DirectionsRoute): RouteProgress {
         val legIndex = indices.legIndex
         val stepIndex = indices.stepIndex
 
-        val legDistanceRemaining =
-            legDistanceRemaining(stepDistanceRemaining, legIndex, stepIndex, route)
-        val routeDistanceRemaining = routeDistanceRemaining(legDistanceRemaining, legIndex, route)
-        currentLegAnnotation = createCurrentAnnotation(
-            currentLegAnnotation,
-            currentLeg!!, legDistanceRemaining
-        )
+        val routeGeometry = routeGeometryOf(route)
+        val legDistanceRemaining = routeGeometry
+            ?.takeIf { geometry -> geometry.hasStep(legIndex, stepIndex) }
+            ?.legDistanceRemaining(stepDistanceRemaining, legIndex, stepIndex)
+            ?: legDistanceRemaining(stepDistanceRemaining, legIndex, stepIndex, route)
+        val routeDistanceRemaining = routeGeometry
+            ?.takeIf { geometry -> geometry.hasStep(legIndex, stepIndex) }
+            ?.routeDistanceRemaining(legDistanceRemaining, legIndex)
+            ?: routeDistanceRemaining(legDistanceRemaining, legIndex, route)
+        currentLegAnnotation = legAnnotationIndexOf(currentLeg!!)
+            .current(currentLegAnnotation, legDistanceRemaining)
         val stepDistanceTraveled = currentStep!!.distance - stepDistanceRemaining
 
-        val currentIntersection = findCurrentIntersection(
-            currentIntersections!!, currentIntersectionDistances!!, stepDistanceTraveled
+        val currentIntersection = currentIntersectionDistances!!.findCurrentIntersection(
+            currentIntersections!!, stepDistanceTraveled
         )
         val upcomingIntersection = findUpcomingIntersection(
-            currentIntersections!!, upcomingStep, currentIntersection!!
+            currentIntersections!!, upcomingStep, currentIntersection
         )
 
         return RouteProgress(
@@ -239,45 +416,84 @@ open class NavigationRouteProcessor(
             intersections = currentIntersections,
             currentIntersection = currentIntersection,
             upcomingIntersection = upcomingIntersection,
-            intersectionDistancesAlongStep = currentIntersectionDistances,
+            intersectionDistancesAlongStep = currentIntersectionDistances?.distancesToIntersections,
             currentLegAnnotation = currentLegAnnotation,
+            routeGeometry = routeGeometry,
+            locationProjection = locationProjection,
         )
     }
 
-    private fun updateSteps(
+    /**
+     * Creates all step-based data for the given step, which must exist in the route. Only reads
+     * the given route and geometry, so it can run on any thread.
+     *
+     * @param routeGeometry decoded geometry, used if it belongs to the route
+     * @param stepPoints    already decoded points of the step, or null to decode them
+     */
+    private fun prepareStep(
         route: DirectionsRoute,
+        routeGeometry: RouteGeometry?,
         legIndex: Int,
         stepIndex: Int,
-        upcomingStepIndex: Int
-    ) {
-        currentLeg = route.legs[legIndex]
-        val steps = currentLeg?.steps
-        currentStep = steps!![stepIndex]
-        upcomingStep =
-            if (upcomingStepIndex < steps.size - ONE_INDEX) steps[upcomingStepIndex] else null
-    }
+        stepPoints: List<Point>? = null
+    ): PreparedStep {
+        val upcomingStepIndex = stepIndex + ONE_INDEX
+        val leg = route.legs[legIndex]
+        val steps = leg.steps
+        val step = steps[stepIndex]
+        val upcomingStep = if (upcomingStepIndex < steps.size - ONE_INDEX) steps[upcomingStepIndex] else null
 
-    private fun updateStepPoints(
-        route: DirectionsRoute,
-        legIndex: Int,
-        stepIndex: Int,
-        upcomingStepIndex: Int
-    ) {
-        currentStepPoints =
-            decodeStepPoints(route, currentStepPoints ?: emptyList(), legIndex, stepIndex)
-        upcomingStepPoints = decodeStepPoints(route, emptyList(), legIndex, upcomingStepIndex)
-    }
+        val stepPoints = stepPoints ?: decodeStepPoints(route, routeGeometry, emptyList(), legIndex, stepIndex)
+        val upcomingStepPoints = decodeStepPoints(route, routeGeometry, emptyList(), legIndex, upcomingStepIndex)
+
+        val intersections = createIntersectionsList(step, upcomingStep)
+        val stepGeometry = routeGeometry
+            ?.takeIf { geometry -> geometry.route === route && geometry.hasStep(legIndex, stepIndex) }
+        val intersectionDistances = stepGeometry
+            ?.let { geometry ->
+                val distances = createDistancesToIntersections(geometry, legIndex, stepIndex, intersections)
+                StepIntersectionDistances(if (distances.isEmpty()) emptyList() else intersections, distances)
+            }
+            ?: StepIntersectionDistances(createDistancesToIntersections(stepPoints, intersections))
 
-    private fun updateIntersections() {
-        currentIntersections = createIntersectionsList(currentStep!!, upcomingStep)
-        currentIntersectionDistances =
-            createDistancesToIntersections(currentStepPoints!!, currentIntersections!!)
+        return PreparedStep(
+            route = route,
+            routeGeometry = routeGeometry,
+            indices = NavigationIndices(legIndex = legIndex, stepIndex = stepIndex),
+            leg = leg,
+            step = step,
+            upcomingStep = upcomingStep,
+            stepPoints = stepPoints,
+            upcomingStepPoints = upcomingStepPoints,
+            intersections = intersections,
+            intersectionDistances = intersectionDistances
+        )
     }
 
     private fun clearManeuverDistances(offRoute: OffRoute) {
         (offRoute as? OffRouteDetector)?.clearDistancesAwayFromManeuver()
     }
 
+    /**
+     * Step-based data, created when a step is entered or prepared ahead of time with
+     * [prepareUpcomingStep] or [upcomingStepPreparation].
+     */
+    internal class PreparedStep(
+        val route: DirectionsRoute,
+        val routeGeometry: RouteGeometry?,
+        val indices: NavigationIndices,
+        val leg: RouteLeg,
+        val step: LegStep,
+        val upcomingStep: LegStep?,
+        val stepPoints: List<Point>,
+        val upcomingStepPoints: List<Point>,
+        val intersections: List<StepIntersection>,
+        val intersectionDistances: StepIntersectionDistances
+    ) {
+        fun isFor(route: DirectionsRoute, routeGeometry: RouteGeometry?, indices: NavigationIndices): Boolean =
+            this.route === route && this.routeGeometry === routeGeometry && this.indices == indices
+    }
+
     companion object {
         private const val FIRST_LEG_INDEX = 0
         private const val FIRST_STEP_INDEX = 0
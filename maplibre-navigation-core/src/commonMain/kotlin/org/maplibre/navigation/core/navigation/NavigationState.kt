@@ -0,0 +1,17 @@
+package org.maplibre.navigation.core.navigation
+
+import org.maplibre.navigation.core.location.Location
+import org.maplibre.navigation.core.routeprogress.RouteProgress
+
+/**
+ * Navigation state after processing a location update.
+ *
+ * @param location      the location, snapped to the route if enabled and the user is on route
+ * @param routeProgress the route progress for the location update
+ * @param userOffRoute  whether the user is off-route
+ */
+data class NavigationState(
+    val location: Location,
+    val routeProgress: RouteProgress,
+    val userOffRoute: Boolean,
+)
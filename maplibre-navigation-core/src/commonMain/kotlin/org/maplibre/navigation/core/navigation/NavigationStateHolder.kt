@@ -0,0 +1,56 @@
+package org.maplibre.navigation.core.navigation
+
+import kotlinx.coroutines.channels.BufferOverflow
+import kotlinx.coroutines.flow.MutableSharedFlow
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.SharedFlow
+import kotlinx.coroutines.flow.StateFlow
+import kotlinx.coroutines.flow.asSharedFlow
+import kotlinx.coroutines.flow.asStateFlow
+import org.maplibre.navigation.core.milestone.TriggeredMilestone
+
+/**
+ * Holds the latest [NavigationState] of a navigation session, as an alternative to the listeners of
+ * [NavigationEventDispatcher].
+ *
+ * The state is conflated: a consumer collecting [state] on a busy thread only receives the latest
+ * state, instead of a backlog of outdated ones. Triggered milestones are not conflated, they are
+ * buffered for slow consumers. Consumers choose the dispatcher to collect on.
+ */
+class NavigationStateHolder {
+
+    private val mutableState = MutableStateFlow<NavigationState?>(null)
+    private val mutableTriggeredMilestones = MutableSharedFlow<TriggeredMilestone>(
+        extraBufferCapacity = TRIGGERED_MILESTONE_BUFFER_CAPACITY,
+        onBufferOverflow = BufferOverflow.DROP_OLDEST
+    )
+
+    /**
+     * Latest navigation state, or null if no location update was processed since navigation was
+     * started.
+     */
+    val state: StateFlow<NavigationState?> = mutableState.asStateFlow()
+
+    /**
+     * Triggered milestones, emitted on the main thread right before the milestone listeners are
+     * called. Milestones are only delivered to active collectors. If a collector falls behind more
+     * than [TRIGGERED_MILESTONE_BUFFER_CAPACITY] milestones, the oldest are dropped.
+     */
+    val triggeredMilestones: SharedFlow<TriggeredMilestone> = mutableTriggeredMilestones.asSharedFlow()
+
+    internal fun publishState(state: NavigationState) {
+        mutableState.value = state
+    }
+
+    internal fun publishTriggeredMilestone(triggeredMilestone: TriggeredMilestone) {
+        mutableTriggeredMilestones.tryEmit(triggeredMilestone)
+    }
+
+    internal fun reset() {
+        mutableState.value = null
+    }
+
+    companion object {
+        const val TRIGGERED_MILESTONE_BUFFER_CAPACITY = 64
+    }
+}
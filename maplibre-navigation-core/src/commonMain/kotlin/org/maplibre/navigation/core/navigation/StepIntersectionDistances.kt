@@ -0,0 +1,108 @@
+package org.maplibre.navigation.core.navigation
+
+import org.maplibre.navigation.core.models.StepIntersection
+
+/**
+ * Measured intersections of the current step in primitive form, created once per step.
+ *
+ * Finds the current intersection with a binary search over the distances, with the same result
+ * as [NavigationHelper.findCurrentIntersection] on the map of measured intersections. If the
+ * distances are not ascending, the measured intersections are scanned in order instead.
+ *
+ * @param intersections measured intersections, in their order along the step
+ * @param distances     distance along the step of each intersection, see [NavigationHelper.createDistancesToIntersections]
+ */
+internal class StepIntersectionDistances(
+    private val intersections: List<StepIntersection>,
+    private val distances: DoubleArray
+) {
+
+    /**
+     * @param distancesToIntersections measured intersections with their distance along the step
+     */
+    constructor(distancesToIntersections: Map<StepIntersection, Double>) : this(
+        distancesToIntersections.keys.toList(),
+        distancesToIntersections.values.toDoubleArray()
+    )
+
+    init {
+        require(intersections.size == distances.size) { "Every intersection needs a distance." }
+    }
+
+    /**
+     * Measured intersections with their distance along the step, as exposed by
+     * [org.maplibre.navigation.core.routeprogress.RouteProgress.intersectionDistancesAlongStep].
+     */
+    val distancesToIntersections: Map<StepIntersection, Double> =
+        intersections.indices.associate { index -> intersections[index] to distances[index] }
+
+    private val isAscending: Boolean =
+        distances.none { distance -> distance.isNaN() }
+                && (1 until distances.size).all { index -> distances[index - 1] <= distances[index] }
+
+    /**
+     * Finds the intersection the user is traveling along.
+     *
+     * @param stepIntersections    intersections of the step, used if none are measured
+     * @param stepDistanceTraveled how far the user has traveled along the step
+     * @return the current step intersection
+     */
+    fun findCurrentIntersection(
+        stepIntersections: List<StepIntersection>,
+        stepDistanceTraveled: Double
+    ): StepIntersection {
+        if (intersections.isEmpty()) {
+            return stepIntersections[FIRST_INTERSECTION]
+        }
+
+        val index = if (isAscending) {
+            lastIndexBefore(stepDistanceTraveled)
+        } else {
+            firstIndexBetween(stepDistanceTraveled)
+        }
+        return intersections[if (index < 0) FIRST_INTERSECTION else index]
+    }
+
+    /**
+     * Index of the last intersection measured before the distance, if the distance is before the
+     * next intersection. Otherwise -1.
+     */
+    private fun lastIndexBefore(stepDistanceTraveled: Double): Int {
+        var low = 0
+        var high = distances.size
+        while (low < high) {
+            val middle = (low + high) ushr 1
+            if (distances[middle] < stepDistanceTraveled) {
+                low = middle + 1
+            } else {
+                high = middle
+            }
+        }
+
+        val index = low - 1
+        return when {
+            index < 0 -> -1
+            index == distances.size - 1 -> index
+            stepDistanceTraveled < distances[index + 1] -> index
+            else -> -1
+        }
+    }
+
+    /**
+     * Index of the first intersection with the distance between its own and the next distance,
+     * or of the last intersection if the distance is past it. Otherwise -1.
+     */
+    private fun firstIndexBetween(stepDistanceTraveled: Double): Int {
+        val lastIndex = distances.size - 1
+        for (index in 0 until lastIndex) {
+            if (stepDistanceTraveled > distances[index] && stepDistanceTraveled < distances[index + 1]) {
+                return index
+            }
+        }
+        return if (stepDistanceTraveled > distances[lastIndex]) lastIndex else -1
+    }
+
+    private companion object {
+        const val FIRST_INTERSECTION = 0
+    }
+}
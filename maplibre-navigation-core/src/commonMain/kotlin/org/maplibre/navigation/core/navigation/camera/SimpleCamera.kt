@@ -1,7 +1,7 @@
 package org.maplibre.navigation.core.navigation.camera
 
-import org.maplibre.geojson.model.LineString
 import org.maplibre.geojson.model.Point
+import org.maplibre.navigation.core.geometry.PolylineDecoder
 import org.maplibre.navigation.core.models.DirectionsRoute
 import org.maplibre.navigation.core.utils.Constants
 import org.maplibre.geojson.turf.TurfMeasurement
@@ -92,8 +92,7 @@ open class SimpleCamera : Camera {
 
     private fun generateRouteCoordinates(route: DirectionsRoute?): List<Point> {
         return route?.let { rte ->
-            val lineString = LineString(rte.geometry, Constants.PRECISION_6)
-            lineString.coordinates
+            PolylineDecoder.decodePoints(rte.geometry, Constants.PRECISION_6)
         } ?: emptyList()
     }
 
@@ -0,0 +1,56 @@
+package org.maplibre.navigation.core.navigation.engine
+
+import org.maplibre.navigation.core.location.Location
+import org.maplibre.navigation.core.navigation.MapLibreNavigationOptions.LocationIngestionPolicy
+
+/**
+ * Selects which of the queued location updates are processed, according to the
+ * [LocationIngestionPolicy].
+ */
+internal object LocationIngestion {
+
+    /**
+     * Selects the location updates to process.
+     *
+     * @param queued                       location updates received while processing, oldest first
+     * @param policy                       the ingestion policy
+     * @param coalescingWindowMilliseconds length of the windows for [LocationIngestionPolicy.TIME_WINDOW]
+     * @return the location updates to process, oldest first
+     */
+    fun select(
+        queued: List<Location>,
+        policy: LocationIngestionPolicy,
+        coalescingWindowMilliseconds: Long
+    ): List<Location> {
+        return when (policy) {
+            LocationIngestionPolicy.PROCESS_ALL -> queued
+            LocationIngestionPolicy.LATEST_ONLY -> queued.takeLast(1)
+            LocationIngestionPolicy.TIME_WINDOW -> coalesce(queued, coalescingWindowMilliseconds)
+        }
+    }
+
+    /**
+     * Keeps the latest location update of every time window. A window starts with the first
+     * location update not part of the previous window.
+     */
+    private fun coalesce(queued: List<Location>, windowMilliseconds: Long): List<Location> {
+        val selected = mutableListOf<Location>()
+        var windowStart: Long? = null
+        var windowLatest: Location? = null
+
+        for (location in queued) {
+            val time = location.time
+            val start = windowStart
+            if (time != null && start != null && time - start < windowMilliseconds) {
+                windowLatest = location
+                continue
+            }
+
+            windowLatest?.let(selected::add)
+            windowStart = time
+            windowLatest = location
+        }
+        windowLatest?.let(selected::add)
+        return selected
+    }
+}
@@ -3,20 +3,32 @@ package org.maplibre.navigation.core.navigation.engine
 import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.Job
+import kotlinx.coroutines.channels.Channel
+import kotlinx.coroutines.coroutineScope
+import kotlinx.coroutines.flow.Flow
 import kotlinx.coroutines.launch
 import org.maplibre.navigation.core.location.Location
 import org.maplibre.navigation.core.location.LocationValidator
 import org.maplibre.navigation.core.location.engine.LocationEngine
+import org.maplibre.navigation.core.metrics.NavigationMetrics
+import org.maplibre.navigation.core.metrics.NavigationStage
 import org.maplibre.navigation.core.milestone.Milestone
+import org.maplibre.navigation.core.milestone.TriggeredMilestone
 import org.maplibre.navigation.core.models.DirectionsRoute
 import org.maplibre.navigation.core.navigation.MapLibreNavigation
+import org.maplibre.navigation.core.navigation.MapLibreNavigationOptions
+import org.maplibre.navigation.core.navigation.MapLibreNavigationOptions.LocationIngestionPolicy
 import org.maplibre.navigation.core.navigation.NavigationEventDispatcher
+import org.maplibre.navigation.core.navigation.NavigationState
+import org.maplibre.navigation.core.navigation.NavigationStateHolder
 import org.maplibre.navigation.core.navigation.NavigationHelper.buildSnappedLocation
 import org.maplibre.navigation.core.navigation.NavigationHelper.checkMilestones
 import org.maplibre.navigation.core.navigation.NavigationHelper.isUserOffRoute
 import org.maplibre.navigation.core.navigation.NavigationRouteProcessor
+import org.maplibre.navigation.core.navigation.NavigationRouteProcessor.PreparedStep
 import org.maplibre.navigation.core.routeprogress.RouteProgress
 import org.maplibre.navigation.core.utils.RouteUtils
+import kotlin.time.TimeSource
 
 /**
  * Default implementation for [NavigationEngine] which is responsible for fetching location updates
@@ -35,9 +47,24 @@ open class MapLibreNavigationEngine(
     private val eventDispatcher: NavigationEventDispatcher
         get() = mapLibreNavigation.eventDispatcher
 
+    private val metrics: NavigationMetrics
+        get() = mapLibreNavigation.metrics
+
     private val navigationRouteProcessor = NavigationRouteProcessor(routeUtils)
 
     private var collectLocationJob: Job? = null
+    private var dispatchJob: Job? = null
+    private var pendingUpdates: Channel<PendingUpdate>? = null
+    private val preparedSteps = Channel<PreparedStep>(Channel.CONFLATED)
+
+    /**
+     * Updates handed back by the dispatch, reused for the next location updates if
+     * [MapLibreNavigationOptions.lowAllocationMode] is enabled.
+     */
+    private val recycledUpdates = Channel<PendingUpdate>(Channel.UNLIMITED)
+
+    private val stateHolder: NavigationStateHolder
+        get() = mapLibreNavigation.stateHolder
 
     /**
      * Start navigation for the given route.
@@ -46,30 +73,100 @@ open class MapLibreNavigationEngine(
      * This will run until the [stopNavigation] is called.
      */
     override fun startNavigation(route: DirectionsRoute) {
-        collectLocationJob?.cancel() // Cancel previous started run
+        stopNavigation() // Cancel previous started run
+        stateHolder.reset()
 
+        val pendingUpdates = Channel<PendingUpdate>(Channel.UNLIMITED)
+        this.pendingUpdates = pendingUpdates
+        dispatchJob = startDispatching(pendingUpdates)
         collectLocationJob = backgroundScope.launch {
-            processLocationUpdate(
+            val processLocation = { location: Location ->
+                processLocationUpdate(location, pendingUpdates)
+            }
+            processLocation(
                 locationEngine.getLastLocation() ?: routeUtils.createFirstLocationFromRoute(route)
             )
 
-            locationEngine.listenToLocation(
+            val locations = locationEngine.listenToLocation(
                 LocationEngine.Request(
                     minIntervalMilliseconds = LOCATION_ENGINE_INTERVAL,
                     maxIntervalMilliseconds = LOCATION_ENGINE_INTERVAL,
                 )
-            ).collect(::processLocationUpdate)
+            )
+            when (mapLibreNavigation.options.locationIngestionPolicy) {
+                LocationIngestionPolicy.PROCESS_ALL -> locations.collect(processLocation)
+                LocationIngestionPolicy.LATEST_ONLY,
+                LocationIngestionPolicy.TIME_WINDOW -> collectQueuedLocations(locations, processLocation)
+            }
+        }
+    }
+
+    /**
+     * Collects the location updates into a queue, while the previous location update is processed.
+     * Once processed, the queued location updates are reduced by the
+     * [MapLibreNavigationOptions.locationIngestionPolicy], so the next processed location update is
+     * always the freshest position.
+     */
+    private suspend fun collectQueuedLocations(
+        locations: Flow<Location>,
+        processLocation: (Location) -> Unit
+    ) = coroutineScope {
+        val options = mapLibreNavigation.options
+        val queue = Channel<Location>(Channel.UNLIMITED)
+        launch {
+            try {
+                locations.collect { location -> queue.send(location) }
+            } finally {
+                queue.close()
+            }
+        }
+
+        for (location in queue) {
+            val queued = mutableListOf(location)
+            while (true) {
+                queued.add(queue.tryReceive().getOrNull() ?: break)
+            }
+
+            val selected = LocationIngestion.select(
+                queued,
+                options.locationIngestionPolicy,
+                options.locationCoalescingWindowMilliseconds
+            )
+            reportSkippedLocations(options.locationIngestionPolicy, queued.size - selected.size)
+            selected.forEach(processLocation)
+        }
+    }
+
+    private fun reportSkippedLocations(policy: LocationIngestionPolicy, count: Int) {
+        if (count == 0) {
+            return
+        }
+
+        when (policy) {
+            LocationIngestionPolicy.PROCESS_ALL -> Unit
+            LocationIngestionPolicy.LATEST_ONLY -> metrics.onLocationsDropped(count)
+            LocationIngestionPolicy.TIME_WINDOW -> metrics.onLocationsCoalesced(count)
         }
     }
 
     /**
      * Stop and cancel the current running navigation.
      *
-     * This means listening to the location updates are stopped and not consumed anymore.
+     * This means listening to the location updates are stopped and not consumed anymore. Location
+     * updates which are not dispatched yet are dropped, also the ones still being processed.
      */
     override fun stopNavigation() {
         collectLocationJob?.cancel()
         collectLocationJob = null
+        dispatchJob?.cancel()
+        dispatchJob = null
+        pendingUpdates?.cancel()
+        pendingUpdates = null
+
+        // Reused updates of the stopped run would keep its route in memory
+        while (recycledUpdates.tryReceive().isSuccess) {
+            // Drop them
+        }
     }
 
     /**
@@ -90,24 +187,93 @@ open class MapLibreNavigationEngine(
      * @param rawLocation hold location, navigation (with options), and distances away from maneuver
      */
     protected fun processLocationUpdate(rawLocation: Location) {
-        if (!locationValidator.isValidUpdate(rawLocation)) {
+        pendingUpdates?.let { updates -> processLocationUpdate(rawLocation, updates) }
+    }
+
+    /**
+     * Processes a location update of the run with the given queue, which is drained by the
+     * dispatch on the main thread.
+     */
+    private fun processLocationUpdate(rawLocation: Location, pendingUpdates: Channel<PendingUpdate>) {
+        val updateStart = TimeSource.Monotonic.markNow()
+        val validUpdate = measure(NavigationStage.VALIDATION) {
+            locationValidator.isValidUpdate(rawLocation)
+        }
+        if (!validUpdate) {
             return
         }
 
-        val routeProgress = navigationRouteProcessor
-            .buildNewRouteProgress(mapLibreNavigation, rawLocation)
+        val update = nextPendingUpdate()
+        preparedSteps.tryReceive().getOrNull()?.let(navigationRouteProcessor::usePreparedStep)
+        val routeProgress = measure(NavigationStage.ROUTE_PROGRESS) {
+            navigationRouteProcessor.buildNewRouteProgress(mapLibreNavigation, rawLocation)
+        }
 
-        val userOffRoute = determineUserOffRoute(mapLibreNavigation, rawLocation, routeProgress)
-        val milestones = findTriggeredMilestones(mapLibreNavigation, routeProgress)
-        val location = findSnappedLocation(
-            mapLibreNavigation,
-            rawLocation,
-            routeProgress,
-            userOffRoute
-        )
+        val userOffRoute = measure(NavigationStage.OFF_ROUTE) {
+            determineUserOffRoute(mapLibreNavigation, rawLocation, routeProgress)
+        }
+        val milestones = measure(NavigationStage.MILESTONES) {
+            update.triggeredMilestones
+                ?.let { triggeredMilestones -> collectTriggeredMilestones(routeProgress, triggeredMilestones) }
+                ?: findTriggeredMilestones(mapLibreNavigation, routeProgress)
+        }
+        val location = measure(NavigationStage.SNAP) {
+            findSnappedLocation(
+                mapLibreNavigation,
+                rawLocation,
+                routeProgress,
+                userOffRoute
+            )
+        }
 
         val finalRouteProgress = updateRouteProcessorWith(routeProgress)
-        dispatchUpdate(userOffRoute, milestones, location, finalRouteProgress)
+        dispatchUpdate(pendingUpdates, update, userOffRoute, milestones, location, finalRouteProgress)
+        metrics.onStageCompleted(NavigationStage.LOCATION_UPDATE, updateStart.elapsedNow())
+        prepareUpcomingStep()
+    }
+
+    /**
+     * Prepares the upcoming step in the background, once per step, so neither the current nor
+     * the next location update waits for it. The prepared step is handed back to the route
+     * processor at the start of the next location update. If the step is entered before its
+     * preparation has finished, the route processor prepares it on entering.
+     */
+    private fun prepareUpcomingStep() {
+        val preparation = navigationRouteProcessor.upcomingStepPreparation() ?: return
+        backgroundScope.launch {
+            val preparedStep = measure(NavigationStage.PREPARE_UPCOMING_STEP) { preparation() }
+            preparedSteps.trySend(preparedStep)
+        }
+    }
+
+    /**
+     * Gives the update to fill with the result of the next location update. In low allocation
+     * mode, an update handed back by the dispatch is reused.
+     */
+    private fun nextPendingUpdate(): PendingUpdate {
+        if (!mapLibreNavigation.options.lowAllocationMode) {
+            return PendingUpdate()
+        }
+
+        return recycledUpdates.tryReceive().getOrNull()
+            ?: PendingUpdate(triggeredMilestones = ArrayList())
+    }
+
+    /**
+     * Collects the triggered milestones into the given list of a reused update, instead of
+     * creating a new list like [findTriggeredMilestones].
+     */
+    private fun collectTriggeredMilestones(
+        routeProgress: RouteProgress,
+        triggeredMilestones: MutableList<Milestone>
+    ): List<Milestone> {
+        val previousRouteProgress = navigationRouteProcessor.routeProgress
+        return checkMilestones(
+            previousRouteProgress,
+            routeProgress,
+            mapLibreNavigation.milestones,
+            triggeredMilestones
+        )
     }
 
     protected fun findTriggeredMilestones(
@@ -154,16 +320,81 @@ open class MapLibreNavigationEngine(
         return routeProgress
     }
 
+    /**
+     * Queues a location update for the dispatch to the listeners on the main thread and publishes
+     * its state to the [NavigationStateHolder]. Nothing is queued or published if navigation is
+     * not running.
+     */
     protected fun dispatchUpdate(
         userOffRoute: Boolean,
         milestones: List<Milestone>,
         location: Location,
         routeProgress: RouteProgress
     ) {
-        mainScope.launch {
-            dispatchRouteProgress(location, routeProgress)
-            dispatchTriggeredMilestones(milestones, routeProgress)
-            dispatchOffRoute(location, userOffRoute)
+        pendingUpdates?.let { updates ->
+            dispatchUpdate(updates, PendingUpdate(), userOffRoute, milestones, location, routeProgress)
+        }
+    }
+
+    /**
+     * Queues a location update of the run with the given queue, in the given update. Nothing is
+     * queued or published if the run was stopped in the meantime.
+     */
+    private fun dispatchUpdate(
+        pendingUpdates: Channel<PendingUpdate>,
+        update: PendingUpdate,
+        userOffRoute: Boolean,
+        milestones: List<Milestone>,
+        location: Location,
+        routeProgress: RouteProgress
+    ) {
+        update.location = location
+        update.routeProgress = routeProgress
+        update.milestones = milestones
+        update.userOffRoute = userOffRoute
+        val queued = pendingUpdates.trySend(update)
+        if (queued.isSuccess) {
+            stateHolder.publishState(NavigationState(location, routeProgress, userOffRoute))
+        }
+    }
+
+    /**
+     * Dispatches the queued location updates of a run on the main thread, one update after the
+     * other, in the order they were processed. For every update, the route progress is dispatched
+     * first, followed by the triggered milestones and the off-route event.
+     *
+     * If the main thread is busy, queued updates which only carry a route progress are conflated:
+     * they are skipped as long as a newer update is queued. Updates with milestones or an off-route
+     * event are never skipped.
+     *
+     * Dispatched and skipped updates are handed back for reuse in low allocation mode.
+     *
+     * The dispatch is started once per run, with a new queue. [stopNavigation] cancels both, so
+     * updates of a stopped run can neither be queued nor dispatched anymore.
+     */
+    private fun startDispatching(pendingUpdates: Channel<PendingUpdate>): Job {
+        return mainScope.launch {
+            for (queuedUpdate in pendingUpdates) {
+                var update = queuedUpdate
+                while (update.isProgressOnly) {
+                    val newerUpdate = pendingUpdates.tryReceive().getOrNull() ?: break
+                    recycle(update)
+                    update = newerUpdate
+                }
+
+                measure(NavigationStage.DISPATCH) {
+                    dispatchRouteProgress(update.location, update.routeProgress)
+                    dispatchTriggeredMilestones(update.milestones, update.routeProgress)
+                    dispatchOffRoute(update.location, update.userOffRoute)
+                }
+                recycle(update)
+            }
+        }
+    }
+
+    private fun recycle(update: PendingUpdate) {
+        if (update.isReusable) {
+            recycledUpdates.trySend(update)
         }
     }
 
@@ -177,6 +408,7 @@ open class MapLibreNavigationEngine(
     ) {
         for (milestone in triggeredMilestones) {
             val instruction = milestone.getInstruction()?.buildInstruction(routeProgress)
+            stateHolder.publishTriggeredMilestone(TriggeredMilestone(milestone, instruction))
             eventDispatcher.onMilestoneEvent(routeProgress, instruction, milestone)
         }
     }
@@ -187,6 +419,34 @@ open class MapLibreNavigationEngine(
         }
     }
 
+    private inline fun <T> measure(stage: NavigationStage, block: () -> T): T {
+        val start = TimeSource.Monotonic.markNow()
+        val result = block()
+        metrics.onStageCompleted(stage, start.elapsedNow())
+        return result
+    }
+
+    /**
+     * Result of a location update, queued for the dispatch to the listeners.
+     *
+     * @param triggeredMilestones list to collect the triggered milestones into, only set for
+     *  updates which are reused in low allocation mode
+     */
+    private class PendingUpdate(
+        val triggeredMilestones: MutableList<Milestone>? = null
+    ) {
+        lateinit var location: Location
+        lateinit var routeProgress: RouteProgress
+        var milestones: List<Milestone> = emptyList()
+        var userOffRoute: Boolean = false
+
+        val isReusable: Boolean
+            get() = triggeredMilestones != null
+
+        val isProgressOnly: Boolean
+            get() = milestones.isEmpty() && !userOffRoute
+    }
+
     companion object {
         const val LOCATION_ENGINE_INTERVAL = 1000L
     }
@@ -0,0 +1,207 @@
+package org.maplibre.navigation.core.navigation.engine
+
+import kotlinx.coroutines.CoroutineDispatcher
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.async
+import kotlinx.coroutines.awaitAll
+import kotlinx.coroutines.coroutineScope
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.withLock
+import kotlinx.coroutines.withContext
+import org.maplibre.navigation.core.geometry.RouteGeometry
+import org.maplibre.navigation.core.location.Location
+import org.maplibre.navigation.core.models.DirectionsRoute
+import org.maplibre.navigation.core.navigation.MapLibreNavigationOptions
+import org.maplibre.navigation.core.navigation.trace.NavigationTraceProcessor
+import org.maplibre.navigation.core.navigation.trace.NavigationTraceUpdate
+import org.maplibre.navigation.core.utils.RouteInstructionIndex
+import org.maplibre.navigation.core.utils.RouteUtils
+import org.maplibre.navigation.core.utils.ValidationUtils
+
+/**
+ * Navigation engine hosting many concurrent navigation sessions, e.g. to follow the progress of a
+ * whole fleet on a server with the same logic that runs in the navigation app.
+ *
+ * Routes are registered once by an identifier and decoded into a [RouteGeometry] and a
+ * [RouteInstructionIndex], which are shared by all sessions on that route. Every session only
+ * keeps its own navigation state: the route processor, snap and off-route engine and the
+ * milestones, wrapped in a [NavigationTraceProcessor]. Location fixes of one session are processed in order, fixes of
+ * different sessions are processed in parallel on the given [dispatcher].
+ *
+ * All functions are safe to be called concurrently.
+ *
+ * @param options    navigation options used for all sessions
+ * @param dispatcher to process location fixes on, by default [Dispatchers.Default] to scale
+ *  across all cores
+ * @param routeUtils core utility class for route related calculations, shared by all sessions.
+ *  The instructions are looked up in the index of the registered route instead.
+ */
+class MultiSessionNavigationEngine(
+    val options: MapLibreNavigationOptions = MapLibreNavigationOptions(),
+    private val dispatcher: CoroutineDispatcher = Dispatchers.Default,
+    private val routeUtils: RouteUtils = RouteUtils(),
+) {
+
+    private val registryMutex = Mutex()
+    private val routes = mutableMapOf<String, RegisteredRoute>()
+    private val sessions = mutableMapOf<String, Session>()
+
+    /**
+     * Registers a route, so sessions can be started on it. The route geometry is decoded and the
+     * instructions are indexed once and shared by all sessions on the route. If a route with the
+     * same identifier is replaced, its unchanged steps are reused.
+     *
+     * @param routeId identifier of the route
+     * @param route   the route to register, replaces a route with the same identifier
+     */
+    suspend fun registerRoute(routeId: String, route: DirectionsRoute) {
+        ValidationUtils.validDirectionsRoute(route, options.defaultMilestonesEnabled)
+        val previousRouteGeometry = registryMutex.withLock { routes[routeId]?.routeGeometry }
+        val registeredRoute = withContext(dispatcher) {
+            RegisteredRoute(
+                routeGeometry = RouteGeometry.fromRoute(
+                    route,
+                    options.geometryStorage,
+                    previousRouteGeometry
+                ),
+                instructionIndex = RouteInstructionIndex(route)
+            )
+        }
+        registryMutex.withLock {
+            routes[routeId] = registeredRoute
+        }
+    }
+
+    /**
+     * Removes a registered route. Running sessions on the route are not affected.
+     *
+     * @param routeId identifier of the route
+     */
+    suspend fun unregisterRoute(routeId: String) {
+        registryMutex.withLock {
+            routes.remove(routeId)
+        }
+    }
+
+    /**
+     * Starts a navigation session on a registered route. Starting a session with the identifier of
+     * a running session replaces it, e.g. after the driver was rerouted.
+     *
+     * @param sessionId identifier of the session
+     * @param routeId   identifier of the registered route
+     * @throws IllegalArgumentException if the route is not registered
+     */
+    suspend fun startSession(sessionId: String, routeId: String) {
+        registryMutex.withLock {
+            val registeredRoute = requireNotNull(routes[routeId]) {
+                "Route $routeId is not registered."
+            }
+            sessions[sessionId] = Session(
+                NavigationTraceProcessor(
+                    route = registeredRoute.routeGeometry.route,
+                    options = options,
+                    milestones = NavigationTraceProcessor.defaultMilestones(
+                        options,
+                        RouteUtils(registeredRoute.instructionIndex)
+                    ),
+                    routeUtils = routeUtils,
+                    routeGeometry = registeredRoute.routeGeometry
+                )
+            )
+        }
+    }
+
+    /**
+     * Stops a navigation session. Fixes of the session still processed are not affected.
+     *
+     * @param sessionId identifier of the session
+     */
+    suspend fun stopSession(sessionId: String) {
+        registryMutex.withLock {
+            sessions.remove(sessionId)
+        }
+    }
+
+    /**
+     * Identifiers of all running sessions.
+     */
+    suspend fun sessionIds(): Set<String> {
+        return registryMutex.withLock { sessions.keys.toSet() }
+    }
+
+    /**
+     * Processes the next location fix of a session.
+     *
+     * @param sessionId identifier of the session
+     * @param location  the location fix
+     * @return the result, or null if the fix was rejected as invalid
+     * @throws IllegalArgumentException if the session is not running
+     */
+    suspend fun process(sessionId: String, location: Location): NavigationTraceUpdate? {
+        val session = sessionOf(sessionId)
+        return withContext(dispatcher) {
+            session.process(location)
+        }
+    }
+
+    /**
+     * Processes location fixes of many sessions. Fixes of the same session are processed in the
+     * given order, different sessions are processed in parallel.
+     *
+     * @param locations the location fixes
+     * @return the results in the order of the given fixes, null for fixes rejected as invalid
+     * @throws IllegalArgumentException if a session is not running
+     */
+    suspend fun process(locations: List<SessionLocation>): List<NavigationTraceUpdate?> {
+        val indicesBySession = locations.indices.groupBy { index -> locations[index].sessionId }
+        val sessionsById = registryMutex.withLock {
+            indicesBySession.keys.associateWith { sessionId -> requireSession(sessionId) }
+        }
+
+        val updates = arrayOfNulls<NavigationTraceUpdate>(locations.size)
+        coroutineScope {
+            indicesBySession.map { (sessionId, indices) ->
+                async(dispatcher) {
+                    val sessionUpdates = sessionsById.getValue(sessionId)
+                        .process(indices.map { index -> locations[index].location })
+                    indices.forEachIndexed { position, index -> updates[index] = sessionUpdates[position] }
+                }
+            }.awaitAll()
+        }
+        return updates.asList()
+    }
+
+    private suspend fun sessionOf(sessionId: String): Session {
+        return registryMutex.withLock { requireSession(sessionId) }
+    }
+
+    private fun requireSession(sessionId: String): Session {
+        return requireNotNull(sessions[sessionId]) { "Session $sessionId is not running." }
+    }
+
+    /**
+     * Decoded geometry and instruction index of a registered route, shared by all its sessions.
+     */
+    private class RegisteredRoute(
+        val routeGeometry: RouteGeometry,
+        val instructionIndex: RouteInstructionIndex,
+    )
+
+    /**
+     * State of a single session. The processor is only accessed while holding the mutex, so the
+     * fixes of a session are processed one after another.
+     */
+    private class Session(private val processor: NavigationTraceProcessor) {
+        private val mutex = Mutex()
+
+        suspend fun process(location: Location): NavigationTraceUpdate? {
+            return mutex.withLock { processor.process(location) }
+        }
+
+        suspend fun process(locations: List<Location>): List<NavigationTraceUpdate?> {
+            return mutex.withLock {
+                locations.map { location -> processor.process(location) }
+            }
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package org.maplibre.navigation.core.navigation.engine
+
+import org.maplibre.navigation.core.location.Location
+
+/**
+ * A location fix of a single session of the [MultiSessionNavigationEngine].
+ *
+ * @param sessionId identifier of the session the fix was recorded for
+ * @param location  the location fix
+ */
+data class SessionLocation(
+    val sessionId: String,
+    val location: Location,
+)
@@ -0,0 +1,170 @@
+package org.maplibre.navigation.core.navigation.trace
+
+import org.maplibre.navigation.core.geometry.RouteGeometry
+import org.maplibre.navigation.core.location.Location
+import org.maplibre.navigation.core.location.LocationValidator
+import org.maplibre.navigation.core.milestone.BannerInstructionMilestone
+import org.maplibre.navigation.core.milestone.Milestone
+import org.maplibre.navigation.core.milestone.TriggeredMilestone
+import org.maplibre.navigation.core.milestone.VoiceInstructionMilestone
+import org.maplibre.navigation.core.models.DirectionsRoute
+import org.maplibre.navigation.core.navigation.MapLibreNavigationOptions
+import org.maplibre.navigation.core.navigation.NavigationConstants.BANNER_INSTRUCTION_MILESTONE_ID
+import org.maplibre.navigation.core.navigation.NavigationConstants.VOICE_INSTRUCTION_MILESTONE_ID
+import org.maplibre.navigation.core.navigation.NavigationHelper.buildSnappedLocation
+import org.maplibre.navigation.core.navigation.NavigationHelper.checkMilestones
+import org.maplibre.navigation.core.navigation.NavigationHelper.isUserOffRoute
+import org.maplibre.navigation.core.navigation.NavigationRouteProcessor
+import org.maplibre.navigation.core.offroute.OffRoute
+import org.maplibre.navigation.core.offroute.OffRouteDetector
+import org.maplibre.navigation.core.snap.Snap
+import org.maplibre.navigation.core.snap.SnapToRoute
+import org.maplibre.navigation.core.utils.RouteUtils
+import org.maplibre.navigation.core.utils.ValidationUtils
+import kotlin.jvm.JvmOverloads
+
+/**
+ * Processes recorded location fixes along a route synchronously, without a
+ * [org.maplibre.navigation.core.navigation.MapLibreNavigation] session, location engine,
+ * coroutines or main thread.
+ *
+ * Each fix runs through the same steps as in
+ * [org.maplibre.navigation.core.navigation.engine.MapLibreNavigationEngine]: validation, route
+ * progress, off-route detection, milestones and snapping. The result is returned instead of being
+ * dispatched to listeners.
+ *
+ * A processor keeps the navigation state of one trace, so fixes must be passed in the order they
+ * were recorded. Use a new processor for every trace. Instances are not thread safe, but separate
+ * instances can be used in parallel.
+ *
+ * @see org.maplibre.navigation.core.navigation.engine.MultiSessionNavigationEngine
+ *
+ * @param route          the route the fixes were recorded on
+ * @param options        navigation options, as used for the navigation session
+ * @param snapEngine     to snap the fixes to the route
+ * @param offRouteEngine to detect if a fix is off-route
+ * @param milestones     milestones to check for every fix. By default, the voice and banner
+ *  instruction milestones if [MapLibreNavigationOptions.defaultMilestonesEnabled] is set.
+ * @param routeUtils     core utility class for route related calculations
+ * @param routeGeometry  already decoded geometry of the route, to share it between processors of
+ *  the same route. Decoded on the first fix if not set.
+ */
+class NavigationTraceProcessor @JvmOverloads constructor(
+    val route: DirectionsRoute,
+    val options: MapLibreNavigationOptions = MapLibreNavigationOptions(),
+    private val snapEngine: Snap = SnapToRoute(),
+    private val offRouteEngine: OffRoute = OffRouteDetector(),
+    private val milestones: List<Milestone> = defaultMilestones(options),
+    routeUtils: RouteUtils = RouteUtils(),
+    routeGeometry: RouteGeometry? = null,
+) {
+
+    private val locationValidator =
+        LocationValidator(options.locationAcceptableAccuracyInMetersThreshold)
+    private val routeProcessor = NavigationRouteProcessor(routeUtils, routeGeometry)
+
+    init {
+        ValidationUtils.validDirectionsRoute(route, options.defaultMilestonesEnabled)
+    }
+
+    /**
+     * Processes the next location fix of the trace.
+     *
+     * @param rawLocation the location fix
+     * @return the result, or null if the fix was rejected as invalid
+     */
+    fun process(rawLocation: Location): NavigationTraceUpdate? {
+        if (!locationValidator.isValidUpdate(rawLocation)) {
+            return null
+        }
+
+        val routeProgress = routeProcessor.buildNewRouteProgress(
+            route,
+            options,
+            offRouteEngine,
+            rawLocation
+        )
+
+        val userOffRoute = isUserOffRoute(
+            options,
+            offRouteEngine,
+            rawLocation,
+            routeProgress,
+            routeProcessor
+        )
+        routeProcessor.checkIncreaseIndex(route, offRouteEngine)
+
+        val triggeredMilestones = checkMilestones(
+            routeProcessor.routeProgress,
+            routeProgress,
+            milestones
+        ).map { milestone ->
+            TriggeredMilestone(
+                milestone = milestone,
+                instruction = milestone.getInstruction()?.buildInstruction(routeProgress)
+            )
+        }
+
+        val location = buildSnappedLocation(
+            snapEngine,
+            options.snapToRoute,
+            rawLocation,
+            routeProgress,
+            userOffRoute
+        )
+        routeProcessor.routeProgress = routeProgress
+        routeProcessor.prepareUpcomingStep()
+
+        return NavigationTraceUpdate(
+            rawLocation = rawLocation,
+            location = location,
+            routeProgress = routeProgress,
+            userOffRoute = userOffRoute,
+            milestones = triggeredMilestones
+        )
+    }
+
+    /**
+     * Processes the given location fixes in order.
+     *
+     * @param rawLocations the location fixes, in the order they were recorded
+     * @return the results of all fixes not rejected as invalid
+     */
+    fun process(rawLocations: Iterable<Location>): List<NavigationTraceUpdate> {
+        return rawLocations.mapNotNull { rawLocation -> process(rawLocation) }
+    }
+
+    /**
+     * Lazily processes the given location fixes in order, while the returned sequence is iterated.
+     * Use this for long traces, to not keep all results in memory.
+     *
+     * @param rawLocations the location fixes, in the order they were recorded
+     * @return the results of all fixes not rejected as invalid
+     */
+    fun process(rawLocations: Sequence<Location>): Sequence<NavigationTraceUpdate> {
+        return rawLocations.mapNotNull { rawLocation -> process(rawLocation) }
+    }
+
+    companion object {
+
+        internal fun defaultMilestones(
+            options: MapLibreNavigationOptions,
+            routeUtils: RouteUtils = RouteUtils()
+        ): List<Milestone> {
+            return if (options.defaultMilestonesEnabled) {
+                listOf(
+                    VoiceInstructionMilestone(
+                        identifier = VOICE_INSTRUCTION_MILESTONE_ID,
+                        routeUtils = routeUtils
+                    ),
+                    BannerInstructionMilestone(
+                        identifier = BANNER_INSTRUCTION_MILESTONE_ID,
+                        routeUtils = routeUtils
+                    )
+                )
+            } else {
+                emptyList()
+            }
+        }
+    }
+}
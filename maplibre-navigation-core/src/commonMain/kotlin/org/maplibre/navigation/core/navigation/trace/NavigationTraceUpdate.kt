@@ -0,0 +1,38 @@
+package org.maplibre.navigation.core.navigation.trace
+
+import org.maplibre.navigation.core.location.Location
+import org.maplibre.navigation.core.milestone.TriggeredMilestone
+import org.maplibre.navigation.core.routeprogress.RouteProgress
+
+/**
+ * Result of processing a single location fix with the [NavigationTraceProcessor]. Contains the
+ * same data the navigation engine dispatches to its listeners for a location update.
+ */
+data class NavigationTraceUpdate(
+
+    /**
+     * The processed location fix.
+     */
+    val rawLocation: Location,
+
+    /**
+     * The location snapped to the route, or the raw location if snapping is disabled or the user
+     * is off-route.
+     */
+    val location: Location,
+
+    /**
+     * The route progress for the location fix.
+     */
+    val routeProgress: RouteProgress,
+
+    /**
+     * Whether the user is off-route.
+     */
+    val userOffRoute: Boolean,
+
+    /**
+     * Milestones triggered by the location fix.
+     */
+    val milestones: List<TriggeredMilestone>,
+)
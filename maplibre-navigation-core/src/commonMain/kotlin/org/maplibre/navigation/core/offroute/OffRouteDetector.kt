@@ -1,8 +1,12 @@
 package org.maplibre.navigation.core.offroute
 
-import org.maplibre.navigation.core.utils.RingBuffer
 import org.maplibre.geojson.model.LineString
 import org.maplibre.geojson.model.Point
+import org.maplibre.navigation.core.geometry.LocalGeometry
+import org.maplibre.navigation.core.geometry.LocationProjection
+import org.maplibre.navigation.core.geometry.RouteGeometry
+import org.maplibre.navigation.core.geometry.SegmentCursor
+import org.maplibre.navigation.core.geometry.SegmentProjection
 import org.maplibre.navigation.core.location.Location
 import org.maplibre.navigation.core.models.LegStep
 import org.maplibre.navigation.core.navigation.MapLibreNavigationOptions
@@ -28,8 +32,15 @@ open class OffRouteDetector(
     var callback: OffRouteCallback? = null
 ) : OffRoute {
 
-    private var lastReroutePoint: Point? = null
-    private val distancesAwayFromManeuver = RingBuffer<Int>(3)
+    private var hasLastReroutePoint = false
+    private var lastRerouteLongitude = 0.0
+    private var lastRerouteLatitude = 0.0
+    private val distancesAwayFromManeuver = IntArray(MAX_DISTANCES_AWAY_FROM_MANEUVER)
+    private var distancesAwayFromManeuverSize = 0
+    private val stepCursor = SegmentCursor()
+    private val stepProjection = SegmentProjection()
+    private val rejoinProjection = SegmentProjection()
+    private val stepDistanceProjection = SegmentProjection()
 
     /**
      * Method in charge of running a series of test based on the device current location
@@ -61,6 +72,13 @@ open class OffRouteDetector(
      * to let the <tt>NavigationEngine</tt> know that the
      * step index should be increased on the next location update.
      *
+     *
+     * Test #5:
+     * Checks if the user rejoined the route on a later step, for example after taking a shortcut.
+     * If the closest segment of the steps ahead, up to 1 km after the current step, lies within
+     * the off-route radius, this method will return false and fire [OffRouteCallback.onShouldUpdateToIndex]
+     * with the leg and step index of that segment.
+     *
      * @return true if the users off-route, else false.
      * @since 0.2.0
      */
@@ -76,25 +94,22 @@ open class OffRouteDetector(
         if (!validOffRoute(location, options)) {
             return false
         }
-        val currentPoint = Point(longitude = location.longitude, latitude = location.latitude, altitude = location.altitude)
-        val isOffRoute = checkOffRouteRadius(location, routeProgress, options, currentPoint)
+        val isOffRoute = checkOffRouteRadius(location, routeProgress, options)
 
         if (!isOffRoute) {
-            return isMovingAwayFromManeuver(
-                location,
-                routeProgress,
-                distancesAwayFromManeuver,
-                currentPoint,
-                options
-            )
+            return isMovingAwayFromManeuver(location, routeProgress, options)
         }
 
         callback?.let { callback ->
             routeProgress.currentLegProgress.upComingStep?.let { upComingStep ->
-                if (closeToUpcomingStep(options, callback, currentPoint, upComingStep)) {
+                if (closeToUpcomingStep(options, callback, location, routeProgress, upComingStep)) {
                     return false
                 }
             }
+
+            if (rejoinsRouteAhead(location, routeProgress, options, callback)) {
+                return false
+            }
         }
 
         // All checks have run, return true
@@ -103,13 +118,13 @@ open class OffRouteDetector(
     }
 
     /**
-     * Clears the [RingBuffer] used for tracking our recent
+     * Clears the history used for tracking our recent
      * distances away from the maneuver that is being driven towards.
      *
      * @since 0.11.0
      */
     fun clearDistancesAwayFromManeuver() {
-        distancesAwayFromManeuver.clear()
+        distancesAwayFromManeuverSize = 0
     }
 
     private fun checkDistanceRemaining(routeProgress: RouteProgress): Boolean {
@@ -127,43 +142,48 @@ open class OffRouteDetector(
      * @return true if valid, false if not
      */
     private fun validOffRoute(location: Location, options: MapLibreNavigationOptions): Boolean {
-        return lastReroutePoint?.let { lastReroutePoint ->
-            val currentPoint = Point(longitude = location.longitude, latitude = location.latitude, location.altitude)
-
-            // Check if minimum amount of distance has been passed since last reroute
-            val distanceFromLastReroute =
-                TurfMeasurement.distance(lastReroutePoint, currentPoint, TurfUnit.METERS)
-            distanceFromLastReroute > options.offRouteMinimumDistanceMetersAfterReroute
-        } ?: run {
+        if (!hasLastReroutePoint) {
             // This is our first update - set the last reroute point to the given location
             updateLastReroutePoint(location)
-            false
+            return false
         }
+
+        // Check if minimum amount of distance has been passed since last reroute
+        val distanceFromLastReroute = LocalGeometry.distance(
+            lastRerouteLongitude,
+            lastRerouteLatitude,
+            location.longitude,
+            location.latitude
+        )
+        return distanceFromLastReroute > options.offRouteMinimumDistanceMetersAfterReroute
     }
 
     private fun checkOffRouteRadius(
         location: Location,
         routeProgress: RouteProgress,
-        options: MapLibreNavigationOptions,
-        currentPoint: Point
+        options: MapLibreNavigationOptions
     ): Boolean {
-        val currentStep = routeProgress.currentLegProgress.currentStep
-        val distanceFromCurrentStep = userTrueDistanceFromStep(
-            currentPoint,
-            currentStep
-        )
+        val distanceFromCurrentStep = locationProjectionOf(location, routeProgress)
+            ?.distanceFromRoute
+            ?: distanceFromStep(
+                location,
+                routeProgress,
+                routeProgress.stepIndex,
+                routeProgress.currentLegProgress.currentStep
+            )
 
-        val offRouteRadius = createOffRouteRadius(location, routeProgress, options, currentPoint)
+        val offRouteRadius = createOffRouteRadius(location, routeProgress, options)
         return distanceFromCurrentStep > offRouteRadius
     }
 
     private fun createOffRouteRadius(
         location: Location,
         routeProgress: RouteProgress,
-        options: MapLibreNavigationOptions,
-        currentPoint: Point
+        options: MapLibreNavigationOptions
     ): Double {
-        val dynamicTolerance = dynamicOffRouteRadiusTolerance(currentPoint, routeProgress, options)
+        val dynamicTolerance = locationProjectionOf(location, routeProgress)
+            ?.let { projection -> dynamicOffRouteRadiusTolerance(projection, routeProgress, options) }
+            ?: dynamicOffRouteRadiusTolerance(location.point, routeProgress, options)
         val accuracyTolerance = (location.accuracyMeters ?: 0f) * options.deadReckoningTimeInterval
         return max(dynamicTolerance, accuracyTolerance)
     }
@@ -171,15 +191,12 @@ open class OffRouteDetector(
     private fun isMovingAwayFromManeuver(
         location: Location,
         routeProgress: RouteProgress,
-        distancesAwayFromManeuver: RingBuffer<Int>,
-        currentPoint: Point,
         options: MapLibreNavigationOptions
     ): Boolean {
         if (movingAwayFromManeuver(
+                location,
                 routeProgress,
-                distancesAwayFromManeuver,
                 routeProgress.currentStepPoints,
-                currentPoint,
                 options
             )
         ) {
@@ -190,7 +207,9 @@ open class OffRouteDetector(
     }
 
     private fun updateLastReroutePoint(location: Location) {
-        lastReroutePoint = Point(longitude = location.longitude, latitude = location.latitude, location.altitude)
+        lastRerouteLongitude = location.longitude
+        lastRerouteLatitude = location.latitude
+        hasLastReroutePoint = true
     }
 
     /**
@@ -203,17 +222,24 @@ open class OffRouteDetector(
      *
      * @param options      for maneuver zone radius
      * @param callback     to increase step index
-     * @param currentPoint for distance from upcoming step
+     * @param location     for distance from upcoming step
+     * @param routeProgress for the decoded route geometry
      * @param upComingStep for distance from current point
      * @return true if close to upcoming step, false if not
      */
     private fun closeToUpcomingStep(
         options: MapLibreNavigationOptions,
         callback: OffRouteCallback,
-        currentPoint: Point,
+        location: Location,
+        routeProgress: RouteProgress,
         upComingStep: LegStep
     ): Boolean {
-        val distanceFromUpcomingStep = userTrueDistanceFromStep(currentPoint, upComingStep)
+        val distanceFromUpcomingStep = distanceFromStep(
+            location,
+            routeProgress,
+            routeProgress.stepIndex + 1,
+            upComingStep
+        )
         val maneuverZoneRadius = options.maneuverZoneRadius
         return if (distanceFromUpcomingStep < maneuverZoneRadius) {
             // Callback to the NavigationEngine to increase the step index
@@ -224,6 +250,74 @@ open class OffRouteDetector(
         }
     }
 
+    /**
+     * Looks up the closest segment in the [RouteGeometry.segmentIndex], only considering the steps
+     * ahead of the current one, up to [MAX_REJOIN_DISTANCE_AHEAD_METERS] along the route after the
+     * end of the current step. If it lies within the off-route radius, fire
+     * [OffRouteCallback.onShouldUpdateToIndex] to move the <tt>NavigationEngine</tt> to that step.
+     *
+     * The window prevents jumping to a part of the route far ahead that passes the same place
+     * again, like the way back of an out-and-back route.
+     *
+     * @return true if the user rejoined the route ahead, false if not or no route geometry is available
+     */
+    private fun rejoinsRouteAhead(
+        location: Location,
+        routeProgress: RouteProgress,
+        options: MapLibreNavigationOptions,
+        callback: OffRouteCallback
+    ): Boolean {
+        val routeGeometry = routeGeometryOf(routeProgress, routeProgress.stepIndex) ?: return false
+        val fromSegment = routeGeometry.stepEndVertex(routeProgress.legIndex, routeProgress.stepIndex)
+        if (fromSegment >= routeGeometry.vertexCount - 1) {
+            return false
+        }
+        val maxDistanceAlongRoute = routeGeometry.distanceAlongRoute(fromSegment) + MAX_REJOIN_DISTANCE_AHEAD_METERS
+        val toSegment = routeGeometry.lastVertexAtDistance(maxDistanceAlongRoute) + 1
+
+        val offRouteRadius = createOffRouteRadius(location, routeProgress, options)
+        routeGeometry.segmentIndex.nearest(
+            location.longitude,
+            location.latitude,
+            offRouteRadius,
+            fromSegment,
+            toSegment,
+            rejoinProjection
+        )
+        if (!rejoinProjection.isValid || rejoinProjection.distanceAlongRoute > maxDistanceAlongRoute) {
+            return false
+        }
+
+        val legIndex = routeGeometry.legIndexOf(rejoinProjection.segmentIndex)
+        val stepIndex = routeGeometry.stepIndexOf(rejoinProjection.segmentIndex)
+        callback.onShouldUpdateToIndex(legIndex, stepIndex)
+        return true
+    }
+
+    /**
+     * Distance from the location to the given step of the current leg. Uses the decoded
+     * [RouteProgress.routeGeometry] if available, otherwise the step geometry gets decoded and
+     * measured with [userTrueDistanceFromStep].
+     */
+    private fun distanceFromStep(
+        location: Location,
+        routeProgress: RouteProgress,
+        stepIndex: Int,
+        step: LegStep
+    ): Double {
+        val routeGeometry = routeGeometryOf(routeProgress, stepIndex)
+            ?: return userTrueDistanceFromStep(location.point, step)
+
+        routeGeometry.project(
+            routeGeometry.stepStartVertex(routeProgress.legIndex, stepIndex),
+            routeGeometry.stepEndVertex(routeProgress.legIndex, stepIndex),
+            location.longitude,
+            location.latitude,
+            stepDistanceProjection
+        )
+        return if (stepDistanceProjection.isValid) stepDistanceProjection.distance else 0.0
+    }
+
     /**
      * Checks to see if the current point is moving away from the maneuver.
      *
@@ -231,17 +325,15 @@ open class OffRouteDetector(
      * Minimum three location updates and minimum of 50 meters away from the maneuver are required
      * to fire an off-route event. This parameters be considered that the user is no longer going in the right direction.
      *
+     * @param location                  current location from engine
      * @param routeProgress             for the upcoming step maneuver
-     * @param distancesAwayFromManeuver current stack of distances away
      * @param stepPoints                current step points being traveled along
-     * @param currentPoint              to determine if moving away or not
      * @return true if moving away from maneuver, false if not
      */
     private fun movingAwayFromManeuver(
+        location: Location,
         routeProgress: RouteProgress,
-        distancesAwayFromManeuver: RingBuffer<Int>,
         stepPoints: List<Point>,
-        currentPoint: Point,
         options: MapLibreNavigationOptions
     ): Boolean {
         val invalidUpcomingStep = routeProgress.currentLegProgress.upComingStep == null
@@ -250,48 +342,117 @@ open class OffRouteDetector(
             return false
         }
 
-        val stepLineString = LineString(stepPoints)
-        val maneuverPoint = stepPoints[stepPoints.size - 1]
-
-        val userPointOnStepFeature = TurfMisc.nearestPointOnLine(currentPoint, stepPoints)
-        val userPointOnStep = userPointOnStepFeature.geometry as Point
-        if (maneuverPoint == userPointOnStep) {
-            return false
-        }
-
-        val remainingStepLineString =
-            TurfMisc.lineSlice(userPointOnStep, maneuverPoint, stepLineString)
-        val userDistanceToManeuver =
-            TurfMeasurement.length(remainingStepLineString, TurfUnit.METERS)
-                .toInt()
+        val userDistanceToManeuver = distanceToManeuver(location, routeProgress, stepPoints)
+            ?: return false
 
-        if (distancesAwayFromManeuver.isEmpty()) {
+        if (distancesAwayFromManeuverSize == 0) {
             // No move-away positions before, add the current one to history stack
-            distancesAwayFromManeuver.addLast(userDistanceToManeuver)
-        } else if (userDistanceToManeuver > distancesAwayFromManeuver.last()) {
+            distancesAwayFromManeuver[distancesAwayFromManeuverSize++] = userDistanceToManeuver
+        } else if (userDistanceToManeuver > lastDistanceAwayFromManeuver()) {
             // If distance to maneuver increased (wrong way), add new position to history stack
 
-            if (distancesAwayFromManeuver.size >= 3) {
+            if (distancesAwayFromManeuverSize >= MAX_DISTANCES_AWAY_FROM_MANEUVER) {
                 // Replace the latest position with newest one, for keeping first position
-                distancesAwayFromManeuver.removeLast()
+                distancesAwayFromManeuverSize--
             }
-            distancesAwayFromManeuver.addLast(userDistanceToManeuver)
-        } else if ((distancesAwayFromManeuver.last() - userDistanceToManeuver) > options.offRouteMinimumDistanceMetersBeforeRightDirection) {
+            distancesAwayFromManeuver[distancesAwayFromManeuverSize++] = userDistanceToManeuver
+        } else if ((lastDistanceAwayFromManeuver() - userDistanceToManeuver) > options.offRouteMinimumDistanceMetersBeforeRightDirection) {
             // If distance to maneuver decreased (right way) clean history
-            distancesAwayFromManeuver.clear()
+            distancesAwayFromManeuverSize = 0
         }
 
         // Minimum 3 position updates in the wrong way are required before an off-route can occur
-        if (distancesAwayFromManeuver.size >= 3) {
+        if (distancesAwayFromManeuverSize >= MAX_DISTANCES_AWAY_FROM_MANEUVER) {
             // Check for minimum distance traveled
-            return (distancesAwayFromManeuver.last() - distancesAwayFromManeuver.first()) > options.offRouteMinimumDistanceMetersBeforeWrongDirection
+            return (lastDistanceAwayFromManeuver() - distancesAwayFromManeuver[0]) > options.offRouteMinimumDistanceMetersBeforeWrongDirection
         }
 
         return false
     }
 
+    private fun lastDistanceAwayFromManeuver(): Int =
+        distancesAwayFromManeuver[distancesAwayFromManeuverSize - 1]
+
+    /**
+     * Distance in meters from the location, snapped to the current step, to the maneuver at the
+     * end of the step. Uses the [RouteProgress.locationProjection] or the decoded
+     * [RouteProgress.routeGeometry] if available.
+     *
+     * @return the distance or null if the snapped point is the maneuver point
+     */
+    private fun distanceToManeuver(
+        location: Location,
+        routeProgress: RouteProgress,
+        stepPoints: List<Point>
+    ): Int? {
+        locationProjectionOf(location, routeProgress)?.let { projection ->
+            return projection.distanceToStepEnd.takeIf { it > 0.0 }?.toInt()
+        }
+
+        routeGeometryOf(routeProgress, routeProgress.stepIndex)?.let { routeGeometry ->
+            stepCursor.projectOnStep(
+                routeGeometry,
+                routeProgress.legIndex,
+                routeProgress.stepIndex,
+                location.longitude,
+                location.latitude,
+                stepProjection
+            )
+            val distance = routeGeometry.stepDistanceRemaining(
+                routeProgress.legIndex,
+                routeProgress.stepIndex,
+                stepProjection
+            )
+            return distance.takeIf { it > 0.0 }?.toInt()
+        }
+
+        val stepLineString = LineString(stepPoints)
+        val maneuverPoint = stepPoints[stepPoints.size - 1]
+
+        val userPointOnStepFeature = TurfMisc.nearestPointOnLine(location.point, stepPoints)
+        val userPointOnStep = userPointOnStepFeature.geometry as Point
+        if (maneuverPoint == userPointOnStep) {
+            return null
+        }
+
+        val remainingStepLineString =
+            TurfMisc.lineSlice(userPointOnStep, maneuverPoint, stepLineString)
+        return TurfMeasurement.length(remainingStepLineString, TurfUnit.METERS)
+            .toInt()
+    }
+
+    /**
+     * The [RouteProgress.locationProjection], if available and created for the given location.
+     */
+    private fun locationProjectionOf(location: Location, routeProgress: RouteProgress): LocationProjection? {
+        return routeProgress.locationProjection
+            ?.takeIf { projection ->
+                projection.isProjectionOf(location, routeProgress.legIndex, routeProgress.stepIndex)
+            }
+    }
+
+    /**
+     * The decoded [RouteProgress.routeGeometry], if available and containing the given step of
+     * the current leg.
+     */
+    private fun routeGeometryOf(routeProgress: RouteProgress, stepIndex: Int): RouteGeometry? {
+        return routeProgress.routeGeometry
+            ?.takeIf { geometry ->
+                geometry.route === routeProgress.directionsRoute
+                        && geometry.hasStep(routeProgress.legIndex, stepIndex)
+            }
+    }
+
     companion object {
         @JvmStatic
         protected val TWO_POINTS = 2
+
+        private const val MAX_DISTANCES_AWAY_FROM_MANEUVER = 3
+
+        /**
+         * Maximum distance along the route after the end of the current step, in which the user
+         * can rejoin the route on a step ahead.
+         */
+        private const val MAX_REJOIN_DISTANCE_AHEAD_METERS = 1000.0
     }
 }
@@ -0,0 +1,109 @@
+package org.maplibre.navigation.core.routeprogress
+
+import org.maplibre.navigation.core.models.MaxSpeed
+import org.maplibre.navigation.core.models.RouteLeg
+
+/**
+ * Annotations of a leg, converted once into primitive arrays.
+ *
+ * The distance annotations are summed up to the distance from the start of the leg to the start of
+ * every annotation segment, so the current segment is found by moving a cursor forward from the
+ * previous segment while the user advances. The values of a segment are read from the arrays
+ * without boxing, a [CurrentLegAnnotation] is only created when the user enters a new segment.
+ *
+ * @param leg the leg holding the annotations
+ */
+internal class LegAnnotationIndex(val leg: RouteLeg) {
+
+    /**
+     * Number of annotation segments, 0 if the leg has no distance annotations.
+     */
+    val size: Int
+
+    private val distances: DoubleArray
+
+    /**
+     * Distance from the start of the leg to the start of every segment, plus the sum of all
+     * segments as last entry.
+     */
+    private val segmentStarts: DoubleArray
+
+    private val durations: DoubleArray?
+    private val speeds: DoubleArray?
+    private val maxSpeeds: List<MaxSpeed>?
+    private val congestions: List<String>?
+
+    init {
+        val annotation = leg.annotation
+        distances = annotation?.distance?.toDoubleArray() ?: DoubleArray(0)
+        size = distances.size
+        segmentStarts = DoubleArray(size + 1)
+        for (index in 0 until size) {
+            segmentStarts[index + 1] = segmentStarts[index] + distances[index]
+        }
+        durations = annotation?.duration?.toDoubleArray()
+        speeds = annotation?.speed?.toDoubleArray()
+        maxSpeeds = annotation?.maxSpeed
+        congestions = annotation?.congestion
+    }
+
+    fun distance(index: Int): Double = distances[index]
+
+    fun distanceToSegment(index: Int): Double = segmentStarts[index]
+
+    fun duration(index: Int): Double? = durations?.get(index)
+
+    fun speed(index: Int): Double? = speeds?.get(index)
+
+    fun maxSpeed(index: Int): MaxSpeed? = maxSpeeds?.get(index)
+
+    fun congestion(index: Int): String? = congestions?.get(index)
+
+    /**
+     * Finds the segment the user is on, searching forward from the given segment. This is the first
+     * segment ending after the distance traveled, or the last segment if the user is past all
+     * segments.
+     *
+     * @param fromIndex        segment to start the search at, segments before are skipped
+     * @param distanceTraveled distance traveled along the leg
+     * @return the segment index, or -1 if there is no segment at or after [fromIndex]
+     */
+    fun segmentIndex(fromIndex: Int, distanceTraveled: Double): Int {
+        if (fromIndex >= size) {
+            return -1
+        }
+
+        var index = fromIndex
+        while (index < size - 1 && segmentStarts[index + 1] <= distanceTraveled) {
+            index++
+        }
+        return index
+    }
+
+    /**
+     * Gives the current annotation for the distance remaining on the leg, the same as
+     * [org.maplibre.navigation.core.navigation.NavigationHelper.createCurrentAnnotation] for the
+     * annotations created by this index. The previous annotation is returned as it is, as long as
+     * the user is still on its segment.
+     *
+     * @param previous             annotation of the previous location update on this leg
+     * @param legDistanceRemaining distance remaining on the leg
+     * @return the current annotation, or null if the leg has no distance annotations
+     */
+    fun current(previous: CurrentLegAnnotation?, legDistanceRemaining: Double): CurrentLegAnnotation? {
+        val index = segmentIndex(previous?.index ?: 0, leg.distance - legDistanceRemaining)
+        return when {
+            index < 0 -> null
+            previous != null && index == previous.index -> previous
+            else -> CurrentLegAnnotation(
+                index = index,
+                distanceToAnnotation = segmentStarts[index],
+                distance = distances[index],
+                duration = duration(index),
+                speed = speed(index),
+                maxSpeed = maxSpeed(index),
+                congestion = congestion(index),
+            )
+        }
+    }
+}
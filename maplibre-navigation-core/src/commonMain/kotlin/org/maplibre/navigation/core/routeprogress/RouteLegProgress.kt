@@ -148,10 +148,12 @@ data class RouteLegProgress(
      * Gives a [RouteStepProgress] object with information about the particular step the user
      * is currently on.
      *
+     * Created once on first access and shared by all readers of this leg progress.
+     *
      * @since 0.1.0
      */
-    val currentStepProgress: RouteStepProgress
-        get() = RouteStepProgress(
+    val currentStepProgress: RouteStepProgress by lazy(LazyThreadSafetyMode.PUBLICATION) {
+        RouteStepProgress(
             step = currentStep,
             nextStep = routeLeg.steps.getOrNull(stepIndex + 1),
             distanceRemaining = stepDistanceRemaining,
@@ -160,4 +162,5 @@ data class RouteLegProgress(
             upcomingIntersection = upcomingIntersection,
             intersectionDistancesAlongStep = intersectionDistancesAlongStep
         )
+    }
 }
@@ -1,11 +1,15 @@
 package org.maplibre.navigation.core.routeprogress
 
 import org.maplibre.geojson.model.Point
+import org.maplibre.navigation.core.geometry.LocationProjection
+import org.maplibre.navigation.core.geometry.RouteGeometry
 import org.maplibre.navigation.core.models.DirectionsRoute
 import org.maplibre.navigation.core.models.RouteLeg
 import org.maplibre.navigation.core.models.StepIntersection
 import org.maplibre.navigation.core.navigation.MapLibreNavigation
 import org.maplibre.navigation.core.milestone.MilestoneEventListener
+import org.maplibre.navigation.core.milestone.TriggerProperty
+import org.maplibre.navigation.core.milestone.TriggerSnapshot
 import kotlin.math.max
 
 /**
@@ -78,6 +82,21 @@ data class RouteProgress(
     val currentLegAnnotation: CurrentLegAnnotation?,
 
     val intersectionDistancesAlongStep: Map<StepIntersection, Double>?,
+
+    /**
+     * Decoded geometry of [directionsRoute], shared by all progress objects of the same route.
+     * Engines use it to access step geometries without decoding the step polylines again.
+     * Might be null if the progress was not created by the route processor.
+     */
+    val routeGeometry: RouteGeometry? = null,
+
+    /**
+     * Projection of the location this progress was created for onto the current step. Calculated
+     * once per location update by the route processor and reused by the snap and off-route engine.
+     * Might be null if the progress was not created by the route processor or the step has no
+     * segments.
+     */
+    val locationProjection: LocationProjection? = null,
 ) {
 
     /**
@@ -129,10 +148,12 @@ data class RouteProgress(
      * Gives a [RouteLegProgress] object with information about the particular leg the user is
      * currently on.
      *
+     * Created once on first access and shared by all readers of this route progress.
+     *
      * @since 0.1.0
      */
-    val currentLegProgress: RouteLegProgress
-        get() = RouteLegProgress(
+    val currentLegProgress: RouteLegProgress by lazy(LazyThreadSafetyMode.PUBLICATION) {
+        RouteLegProgress(
             routeLeg = directionsRoute.legs[legIndex],
             stepIndex = stepIndex,
             distanceRemaining = legDistanceRemaining,
@@ -145,7 +166,15 @@ data class RouteProgress(
             intersectionDistancesAlongStep = intersectionDistancesAlongStep,
             currentLegAnnotation = currentLegAnnotation,
         )
+    }
 
+    /**
+     * Values of the [TriggerProperty] keys for this progress, created once on first access and
+     * shared by all milestones evaluated for this progress.
+     */
+    internal val triggerSnapshot: TriggerSnapshot by lazy(LazyThreadSafetyMode.PUBLICATION) {
+        TriggerSnapshot(this)
+    }
 
 
     fun toBuilder(): Builder {
@@ -164,6 +193,8 @@ data class RouteProgress(
             withUpcomingIntersection(upcomingIntersection)
             withCurrentLegAnnotation(currentLegAnnotation)
             withIntersectionDistancesAlongStep(intersectionDistancesAlongStep)
+            withRouteGeometry(routeGeometry)
+            withLocationProjection(locationProjection)
         }
     }
 
@@ -182,6 +213,8 @@ data class RouteProgress(
         private var upcomingIntersection: StepIntersection? = null
         private var currentLegAnnotation: CurrentLegAnnotation? = null
         private var intersectionDistancesAlongStep: Map<StepIntersection, Double>? = null
+        private var routeGeometry: RouteGeometry? = null
+        private var locationProjection: LocationProjection? = null
 
         fun withUpcomingStepPoints(upcomingStepPoints: List<Point>?) = apply { this.upcomingStepPoints = upcomingStepPoints }
         fun withIntersections(intersections: List<StepIntersection>?) = apply { this.intersections = intersections }
@@ -189,6 +222,8 @@ data class RouteProgress(
         fun withUpcomingIntersection(upcomingIntersection: StepIntersection?) = apply { this.upcomingIntersection = upcomingIntersection }
         fun withCurrentLegAnnotation(currentLegAnnotation: CurrentLegAnnotation?) = apply { this.currentLegAnnotation = currentLegAnnotation }
         fun withIntersectionDistancesAlongStep(intersectionDistancesAlongStep: Map<StepIntersection, Double>?) = apply { this.intersectionDistancesAlongStep = intersectionDistancesAlongStep }
+        fun withRouteGeometry(routeGeometry: RouteGeometry?) = apply { this.routeGeometry = routeGeometry }
+        fun withLocationProjection(locationProjection: LocationProjection?) = apply { this.locationProjection = locationProjection }
 
         fun build(): RouteProgress {
             return RouteProgress(
@@ -204,7 +239,9 @@ data class RouteProgress(
                 currentIntersection = currentIntersection,
                 upcomingIntersection = upcomingIntersection,
                 currentLegAnnotation = currentLegAnnotation,
-                intersectionDistancesAlongStep = intersectionDistancesAlongStep
+                intersectionDistancesAlongStep = intersectionDistancesAlongStep,
+                routeGeometry = routeGeometry,
+                locationProjection = locationProjection
             )
         }
     }
@@ -2,8 +2,11 @@ package org.maplibre.navigation.core.snap
 
 import org.maplibre.geojson.model.LineString
 import org.maplibre.geojson.model.Point
+import org.maplibre.navigation.core.geometry.LocationProjection
+import org.maplibre.navigation.core.geometry.RouteGeometry
+import org.maplibre.navigation.core.geometry.SegmentCursor
+import org.maplibre.navigation.core.geometry.SegmentProjection
 import org.maplibre.navigation.core.location.Location
-import org.maplibre.navigation.core.routeprogress.RouteLegProgress
 import org.maplibre.navigation.core.routeprogress.RouteProgress
 import org.maplibre.navigation.core.utils.Constants
 import org.maplibre.navigation.core.utils.MathUtils.wrap
@@ -27,15 +30,40 @@ open class SnapToRoute : Snap() {
      */
     private var lastSnappedBearing: Float? = null
 
+    /**
+     * Cursor used to find the closest segment of the current step in the decoded route geometry.
+     */
+    private val stepCursor = SegmentCursor()
+    private val stepProjection = SegmentProjection()
+
     /**
      * Calculate a snapped location along the route. Latitude, longitude and bearing are provided.
      *
+     * If the [RouteProgress.locationProjection] was created for the given location, the snapped
+     * point and bearing are taken from it instead of projecting the location again.
+     *
      * @param location Current raw user location
      * @param routeProgress Current route progress
      * @return Snapped location along route
      */
     override fun getSnappedLocation(location: Location, routeProgress: RouteProgress): Location {
-        val snappedLocation = snapLocationLatLng(location, routeProgress.currentStepPoints)
+        routeProgress.locationProjection
+            ?.takeIf { projection ->
+                projection.isProjectionOf(location, routeProgress.legIndex, routeProgress.stepIndex)
+            }
+            ?.let { projection ->
+                return location.copy(
+                    latitude = projection.latitude,
+                    longitude = projection.longitude,
+                    bearing = snapLocationBearing(location, routeProgress, projection)
+                )
+            }
+
+        val snappedLocation = routeGeometryOf(routeProgress, routeProgress.legIndex, routeProgress.stepIndex)
+            ?.let { routeGeometry ->
+                snapLocationLatLng(location, routeGeometry, routeProgress.legIndex, routeProgress.stepIndex)
+            }
+            ?: snapLocationLatLng(location, routeProgress.currentStepPoints)
         return snappedLocation.copy(bearing = snapLocationBearing(location, routeProgress))
     }
 
@@ -67,6 +95,30 @@ open class SnapToRoute : Snap() {
             ?: location.bearing
     }
 
+    /**
+     * Creates a snapped bearing from the bearing of the segment the location was projected onto.
+     *
+     * Close to the end of the leg, the bearing towards the upcoming leg is used, like in
+     * [snapLocationBearing] without projection.
+     *
+     * @param location Current raw user location
+     * @param routeProgress Current route progress
+     * @param projection Projection of the location onto the current step
+     * @return Float bearing snapped to route
+     */
+    private fun snapLocationBearing(
+        location: Location,
+        routeProgress: RouteProgress,
+        projection: LocationProjection
+    ): Float? {
+        val segmentBearing = projection.bearing
+            ?.takeIf { routeProgress.legDistanceRemaining > 1 }
+            ?: return snapLocationBearing(location, routeProgress)
+
+        return wrap(segmentBearing, 0.0, 360.0).toFloat()
+            .also { bearing -> lastSnappedBearing = bearing }
+    }
+
     /**
      * Snap coordinates of user's location to the closest position along the current step.
      *
@@ -90,6 +142,40 @@ open class SnapToRoute : Snap() {
         }
     }
 
+    /**
+     * Snap coordinates of user's location to the closest position along the current step, using
+     * the decoded route geometry.
+     *
+     * @param location      the raw location
+     * @param routeGeometry the decoded geometry of the current route
+     * @param legIndex      the current leg index
+     * @param stepIndex     the current step index
+     * @return the altered user location
+     */
+    private fun snapLocationLatLng(
+        location: Location,
+        routeGeometry: RouteGeometry,
+        legIndex: Int,
+        stepIndex: Int
+    ): Location {
+        return if (routeGeometry.stepVertexCount(legIndex, stepIndex) > 1) {
+            stepCursor.projectOnStep(
+                routeGeometry,
+                legIndex,
+                stepIndex,
+                location.longitude,
+                location.latitude,
+                stepProjection
+            )
+            location.copy(
+                latitude = stepProjection.latitude,
+                longitude = stepProjection.longitude
+            )
+        } else {
+            location.copy()
+        }
+    }
+
     /**
      * Current step point. If no current leg process is available, null is returned.
      *
@@ -97,7 +183,7 @@ open class SnapToRoute : Snap() {
      * @return Current step point or null if no current leg process is available
      */
     private fun getCurrentPoint(routeProgress: RouteProgress): Point? {
-        return getCurrentStepPoint(routeProgress.currentLegProgress, 0.0)
+        return getCurrentStepPoint(routeProgress, 0.0)
     }
 
     /**
@@ -110,7 +196,7 @@ open class SnapToRoute : Snap() {
     private fun getFuturePoint(routeProgress: RouteProgress): Point? {
         return if (routeProgress.currentLegProgress.distanceRemaining > 1) {
             // User has not reaching the end of current leg. Use traveled distance + 1 meter for future point
-            getCurrentStepPoint(routeProgress.currentLegProgress, 1.0)
+            getCurrentStepPoint(routeProgress, 1.0)
         } else {
             // User has reached the end of steps. Use upcoming leg for future point if available.
             getUpcomingLegPoint(routeProgress)
@@ -121,20 +207,21 @@ open class SnapToRoute : Snap() {
      * Current step point plus additional distance value. If no current leg process is available,
      * null is returned.
      *
-     * @param currentLegProgress Current leg process
+     * @param routeProgress Current route progress
      * @param additionalDistance Additional distance to add to current step point
      * @return Current step point + additional distance or null if no current leg process is available
      */
     private fun getCurrentStepPoint(
-        currentLegProgress: RouteLegProgress,
+        routeProgress: RouteProgress,
         additionalDistance: Double
     ): Point? {
-        val currentStepLineString = currentLegProgress.currentStep
-            .geometry
-            .let { geometry ->
-                LineString(geometry, Constants.PRECISION_6)
-            }
-            .coordinates
+        val currentLegProgress = routeProgress.currentLegProgress
+        val currentStepLineString = stepPoints(
+            routeProgress,
+            routeProgress.legIndex,
+            routeProgress.stepIndex,
+            currentLegProgress.currentStep.geometry
+        )
             .takeIf { points -> points.isNotEmpty() }
             ?: return null
 
@@ -163,13 +250,53 @@ open class SnapToRoute : Snap() {
             // While first step is the same point as the last point of the current step, use the second one.
             ?.getOrNull(1)
             ?.let { firstStep ->
-                val currentStepLineString =
-                    LineString(firstStep.geometry, Constants.PRECISION_6)
-                if (currentStepLineString.coordinates.isEmpty()) {
+                val currentStepLineString = stepPoints(
+                    routeProgress,
+                    routeProgress.legIndex + 1,
+                    1,
+                    firstStep.geometry
+                )
+                if (currentStepLineString.isEmpty()) {
                     return@let null
                 }
 
-                TurfMeasurement.along(currentStepLineString.coordinates, 1.0, TurfUnit.METERS)
+                TurfMeasurement.along(currentStepLineString, 1.0, TurfUnit.METERS)
+            }
+    }
+
+    /**
+     * Points of the given step. Uses the decoded [RouteProgress.routeGeometry] if available,
+     * otherwise the step geometry gets decoded.
+     *
+     * @param routeProgress Current route progress
+     * @param legIndex Leg index of the step
+     * @param stepIndex Step index of the step
+     * @param geometry Encoded step geometry, used if no decoded geometry is available
+     * @return Points of the step
+     */
+    private fun stepPoints(
+        routeProgress: RouteProgress,
+        legIndex: Int,
+        stepIndex: Int,
+        geometry: String
+    ): List<Point> {
+        return routeGeometryOf(routeProgress, legIndex, stepIndex)
+            ?.stepPoints(legIndex, stepIndex)
+            ?: LineString(geometry, Constants.PRECISION_6).coordinates
+    }
+
+    /**
+     * The decoded [RouteProgress.routeGeometry], if available and containing the given step.
+     */
+    private fun routeGeometryOf(
+        routeProgress: RouteProgress,
+        legIndex: Int,
+        stepIndex: Int
+    ): RouteGeometry? {
+        return routeProgress.routeGeometry
+            ?.takeIf { routeGeometry ->
+                routeGeometry.route === routeProgress.directionsRoute
+                        && routeGeometry.hasStep(legIndex, stepIndex)
             }
     }
 }
\ No newline at end of file
@@ -29,29 +29,39 @@ object MeasurementUtils {
 
         // Get the lineString from the step geometry.
         val lineString = LineString(step.geometry, Constants.PRECISION_6)
+        return userTrueDistanceFromStep(usersRawLocation, lineString.coordinates)
+    }
 
+    /**
+     * Calculates the distance between the users current raw [android.location.Location] object
+     * to the closest [Point] of the already decoded step geometry.
+     *
+     * @param usersRawLocation [Point] the raw location where the user is currently located
+     * @param stepPoints       decoded geometry of the step to calculate the closest point on
+     * @return double in distance meters
+     */
+    @JvmStatic
+    fun userTrueDistanceFromStep(usersRawLocation: Point, stepPoints: List<Point>): Double {
         // Make sure that the step coordinates isn't less than size 2. If the points equal each other,
         // the distance is obviously zero, so return 0 to avoid executing additional unnecessary code.
-        if (lineString.coordinates.isEmpty() || usersRawLocation == lineString.coordinates
-                .first()
-        ) {
+        if (stepPoints.isEmpty() || usersRawLocation == stepPoints.first()) {
             return 0.0
         }
 
-        if (lineString.coordinates.size == 1) {
+        if (stepPoints.size == 1) {
             return TurfMeasurement.distance(
                 usersRawLocation,
-                lineString.coordinates.first(),
+                stepPoints.first(),
                 TurfUnit.METERS
             )
         }
 
-        val snappedPointFeature = TurfMisc.nearestPointOnLine(usersRawLocation, lineString.coordinates)
+        val snappedPointFeature = TurfMisc.nearestPointOnLine(usersRawLocation, stepPoints)
         val snappedPoint = snappedPointFeature.geometry as Point
         if (snappedPoint.latitude.isInfinite() || snappedPoint.longitude.isInfinite()) {
             return TurfMeasurement.distance(
                 usersRawLocation,
-                lineString.coordinates.first(),
+                stepPoints.first(),
                 TurfUnit.METERS
             )
         }
@@ -61,4 +71,3 @@ object MeasurementUtils {
         return if (!distance.isNaN()) distance else 0.0
     }
 }
-
@@ -0,0 +1,46 @@
+package org.maplibre.navigation.core.utils
+
+import org.maplibre.navigation.core.models.DirectionsRoute
+
+/**
+ * 64 bit FNV-1a hash over the geometry of a [DirectionsRoute], see [DirectionsRoute.fingerprint].
+ */
+internal object RouteFingerprint {
+
+    private const val OFFSET_BASIS = -0x340d631b7bdddcdbL // 0xcbf29ce484222325
+    private const val PRIME = 0x100000001b3L
+
+    /**
+     * Hashes the route geometry and the geometry of every leg and step. Values which change when a
+     * route is refreshed, like the duration or the request UUID, are not hashed.
+     */
+    fun of(route: DirectionsRoute): Long {
+        var hash = OFFSET_BASIS
+        hash = hash(hash, route.geometry)
+        hash = hash(hash, route.legs.size.toLong())
+        for (leg in route.legs) {
+            hash = hash(hash, leg.steps.size.toLong())
+            for (step in leg.steps) {
+                hash = hash(hash, step.geometry)
+            }
+        }
+        return hash
+    }
+
+    private fun hash(hash: Long, value: String): Long {
+        var result = hash(hash, value.length.toLong())
+        for (char in value) {
+            result = (result xor (char.code.toLong() and 0xff)) * PRIME
+            result = (result xor (char.code.toLong() ushr 8)) * PRIME
+        }
+        return result
+    }
+
+    private fun hash(hash: Long, value: Long): Long {
+        var result = hash
+        for (shift in 0 until Long.SIZE_BITS step 8) {
+            result = (result xor ((value ushr shift) and 0xff)) * PRIME
+        }
+        return result
+    }
+}
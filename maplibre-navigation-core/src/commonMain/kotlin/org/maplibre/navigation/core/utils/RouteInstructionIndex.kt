@@ -0,0 +1,166 @@
+package org.maplibre.navigation.core.utils
+
+import org.maplibre.navigation.core.models.BannerInstructions
+import org.maplibre.navigation.core.models.DirectionsRoute
+import org.maplibre.navigation.core.models.LegStep
+import org.maplibre.navigation.core.models.VoiceInstructions
+
+/**
+ * Voice and banner instructions of a route, sorted once by their distance along the step geometry.
+ *
+ * Answers which instructions are current for a distance remaining on a step with a binary search,
+ * with the same results as [RouteUtils.findCurrentVoiceInstructions] and
+ * [RouteUtils.findCurrentBannerInstructions], which scan all instructions of the step on every call.
+ * Instances are immutable and can be shared between threads. Use [RouteUtils.instructionIndex] to
+ * reuse the index of the current route.
+ *
+ * @param route the route to index
+ */
+class RouteInstructionIndex(val route: DirectionsRoute) {
+
+    internal val voiceInstructions = StepInstructions(
+        route,
+        LegStep::voiceInstructions,
+        VoiceInstructions::distanceAlongGeometry
+    )
+
+    internal val bannerInstructions = StepInstructions(
+        route,
+        LegStep::bannerInstructions,
+        BannerInstructions::distanceAlongGeometry
+    )
+
+    /**
+     * Finds the current voice instructions of the given step.
+     *
+     * @param legIndex              leg index of the step
+     * @param stepIndex             step index of the step
+     * @param stepDistanceRemaining distance remaining on the step
+     * @return current voice instructions, or null if the step has no voice instructions
+     */
+    fun findCurrentVoiceInstructions(
+        legIndex: Int,
+        stepIndex: Int,
+        stepDistanceRemaining: Double
+    ): VoiceInstructions? {
+        return voiceInstructions.current(legIndex, stepIndex, stepDistanceRemaining)
+    }
+
+    /**
+     * Finds the current banner instructions of the given step.
+     *
+     * @param legIndex              leg index of the step
+     * @param stepIndex             step index of the step
+     * @param stepDistanceRemaining distance remaining on the step
+     * @return current banner instructions, or null if the step has no banner instructions
+     */
+    fun findCurrentBannerInstructions(
+        legIndex: Int,
+        stepIndex: Int,
+        stepDistanceRemaining: Double
+    ): BannerInstructions? {
+        return bannerInstructions.current(legIndex, stepIndex, stepDistanceRemaining)
+    }
+}
+
+/**
+ * One kind of instructions of all steps of a route, stored in one list. Within a step, the
+ * instructions are sorted ascending by their distance along the step geometry (distance to the end
+ * of the step).
+ *
+ * @param route                 the route to sort the instructions of
+ * @param instructionsOf        instructions of a single step
+ * @param distanceAlongGeometry distance of an instruction to the end of its step
+ */
+internal class StepInstructions<T : Any>(
+    route: DirectionsRoute,
+    instructionsOf: (LegStep) -> List<T>?,
+    distanceAlongGeometry: (T) -> Double
+) {
+
+    /**
+     * Offset of the first instruction of every step, per leg. The last offset of a leg is the end
+     * of its last step.
+     */
+    private val stepOffsets: Array<IntArray>
+
+    /**
+     * End of the instructions of every step that can be reached by a distance, per leg. Only
+     * differs from the next step offset for instructions without a valid distance, which are
+     * sorted last.
+     */
+    private val searchEnds: Array<IntArray>
+
+    private val instructions: List<T>
+
+    private val distances: DoubleArray
+
+    init {
+        val allInstructions = ArrayList<T>()
+        stepOffsets = Array(route.legs.size) { legIndex ->
+            val steps = route.legs[legIndex].steps
+            IntArray(steps.size + 1).also { offsets ->
+                steps.forEachIndexed { stepIndex, step ->
+                    offsets[stepIndex] = allInstructions.size
+                    instructionsOf(step)?.let { stepInstructions ->
+                        allInstructions.addAll(stepInstructions.sortedBy(distanceAlongGeometry))
+                    }
+                }
+                offsets[steps.size] = allInstructions.size
+            }
+        }
+        instructions = allInstructions
+        distances = DoubleArray(allInstructions.size) { index ->
+            distanceAlongGeometry(allInstructions[index])
+        }
+        searchEnds = Array(stepOffsets.size) { legIndex ->
+            val offsets = stepOffsets[legIndex]
+            IntArray(offsets.size - 1) { stepIndex ->
+                var end = offsets[stepIndex + 1]
+                while (end > offsets[stepIndex] && distances[end - 1].isNaN()) {
+                    end--
+                }
+                end
+            }
+        }
+    }
+
+    fun stepStart(legIndex: Int, stepIndex: Int): Int = stepOffsets[legIndex][stepIndex]
+
+    fun stepEnd(legIndex: Int, stepIndex: Int): Int = stepOffsets[legIndex][stepIndex + 1]
+
+    fun searchEnd(legIndex: Int, stepIndex: Int): Int = searchEnds[legIndex][stepIndex]
+
+    fun distance(index: Int): Double = distances[index]
+
+    fun instruction(index: Int): T = instructions[index]
+
+    /**
+     * Finds the current instruction of the step, which is the first instruction with a distance
+     * along geometry greater or equal to the step distance remaining. If the user did not reach any
+     * instruction yet, the instruction closest to the end of the step is returned.
+     */
+    fun current(legIndex: Int, stepIndex: Int, stepDistanceRemaining: Double): T? {
+        val start = stepStart(legIndex, stepIndex)
+        if (start == stepEnd(legIndex, stepIndex)) {
+            return null
+        }
+
+        var low = start
+        var high = searchEnd(legIndex, stepIndex)
+        while (low < high) {
+            val middle = (low + high) ushr 1
+            if (distances[middle] >= stepDistanceRemaining) {
+                high = middle
+            } else {
+                low = middle + 1
+            }
+        }
+
+        return if (low < searchEnd(legIndex, stepIndex) && distances[low] >= stepDistanceRemaining) {
+            instructions[low]
+        } else {
+            instructions[start]
+        }
+    }
+}
@@ -13,8 +13,15 @@ import org.maplibre.navigation.core.models.VoiceInstructions
 import org.maplibre.navigation.core.navigation.NavigationConstants
 import org.maplibre.navigation.core.routeprogress.RouteProgress
 
+/**
+ * Core utility class for route related calculations.
+ *
+ * @param instructionIndex instruction index of the route, to share an already built index between
+ *  instances. Built on the first instruction lookup if not set.
+ */
+open class RouteUtils(instructionIndex: RouteInstructionIndex? = null) {
 
-open class RouteUtils {
+    private var instructionIndex: RouteInstructionIndex? = instructionIndex
 
     /**
      * Compares a new routeProgress geometry to a previousRouteProgress geometry to determine if the
@@ -33,20 +40,24 @@ open class RouteUtils {
     }
 
     /**
-     * Compares a new routeProgress geometry to a previousRouteProgress geometry to determine if the
-     * user is traversing along a new route. If the route geometries do not match, this returns true.
+     * Compares a new route to the route of the previousRouteProgress to determine if the
+     * user is traversing along a new route. If the [DirectionsRoute.fingerprint]s of the routes,
+     * covering their geometries, do not match, this returns true.
      *
      * @param previousRouteProgress the past route progress with the directions route included
      * @param directionsRoute       the current directions route
-     * @return true if the direction route geometries do not match up, otherwise, false
+     * @return true if the direction routes do not match up, otherwise, false
      * @since 0.7.0
      */
     fun isNewRoute(
         previousRouteProgress: RouteProgress?,
         directionsRoute: DirectionsRoute
     ): Boolean {
-        return previousRouteProgress == null || (previousRouteProgress.directionsRoute.geometry
-                != directionsRoute.geometry)
+        if (previousRouteProgress == null) {
+            return true
+        }
+        val previousRoute = previousRouteProgress.directionsRoute
+        return previousRoute !== directionsRoute && previousRoute.fingerprint != directionsRoute.fingerprint
     }
 
     /**
@@ -170,19 +181,11 @@ open class RouteUtils {
         currentStep: LegStep,
         stepDistanceRemaining: Double
     ): BannerInstructions? {
-        return currentStep.bannerInstructions
-            ?.takeIf { instructions -> instructions.isNotEmpty() }
-            ?.let { bannerInstructions ->
-                val instructions =
-                    bannerInstructions.sortedBy(BannerInstructions::distanceAlongGeometry)
-                for (instruction in instructions) {
-                    val distanceAlongGeometry = instruction.distanceAlongGeometry
-                    if (distanceAlongGeometry >= stepDistanceRemaining) {
-                        return@let instruction
-                    }
-                }
-                instructions.firstOrNull()
-            }
+        return findCurrentInstructions(
+            currentStep.bannerInstructions,
+            stepDistanceRemaining,
+            BannerInstructions::distanceAlongGeometry
+        )
     }
 
     /**
@@ -229,19 +232,91 @@ open class RouteUtils {
         currentStep: LegStep,
         stepDistanceRemaining: Double
     ): VoiceInstructions? {
-        return currentStep.voiceInstructions
-            ?.takeIf { instructions -> instructions.isNotEmpty() }
-            ?.let { voiceInstructions ->
-                val instructions =
-                    voiceInstructions.sortedBy(VoiceInstructions::distanceAlongGeometry)
-                for (instruction in instructions) {
-                    val distanceAlongGeometry = instruction.distanceAlongGeometry
-                    if (distanceAlongGeometry >= stepDistanceRemaining) {
-                        return@let instruction
-                    }
-                }
-                instructions.firstOrNull()
+        return findCurrentInstructions(
+            currentStep.voiceInstructions,
+            stepDistanceRemaining,
+            VoiceInstructions::distanceAlongGeometry
+        )
+    }
+
+    /**
+     * Finds the instructions with the smallest distance along geometry that is greater or equal to
+     * the step distance remaining. If the user did not reach any instructions yet, the instructions
+     * closest to the end of the step are returned. Scans the instructions once, without sorting
+     * them, with the same result as taking the first match of the instructions sorted by their
+     * distance along geometry.
+     */
+    private inline fun <T : Any> findCurrentInstructions(
+        stepInstructions: List<T>?,
+        stepDistanceRemaining: Double,
+        distanceAlongGeometry: (T) -> Double
+    ): T? {
+        if (stepInstructions.isNullOrEmpty()) {
+            return null
+        }
+
+        var current: T? = null
+        var currentDistance = 0.0
+        var closestToEnd = stepInstructions[0]
+        var closestToEndDistance = distanceAlongGeometry(closestToEnd)
+        for (index in stepInstructions.indices) {
+            val candidate = stepInstructions[index]
+            val distance = distanceAlongGeometry(candidate)
+            if (distance >= stepDistanceRemaining && (current == null || distance.compareTo(currentDistance) < 0)) {
+                current = candidate
+                currentDistance = distance
+            }
+            if (distance.compareTo(closestToEndDistance) < 0) {
+                closestToEnd = candidate
+                closestToEndDistance = distance
             }
+        }
+        return current ?: closestToEnd
+    }
+
+    /**
+     * Gives the [RouteInstructionIndex] of the given route. The index of the last requested route
+     * is kept, so the instructions are only sorted again when the route changes.
+     *
+     * @param directionsRoute the route to index
+     * @return the instruction index of the route
+     */
+    fun instructionIndex(directionsRoute: DirectionsRoute): RouteInstructionIndex {
+        // Benign race: the index is immutable, concurrent callers at worst build it twice
+        return instructionIndex?.takeIf { index -> index.route === directionsRoute }
+            ?: RouteInstructionIndex(directionsRoute).also { index -> instructionIndex = index }
+    }
+
+    /**
+     * Finds the current [BannerInstructions] for the current step and step distance remaining of
+     * the route progress, with the [RouteInstructionIndex] of the route.
+     *
+     * @param routeProgress the current route progress
+     * @return the current banner instructions, or null if the current step has none
+     */
+    fun findCurrentBannerInstructions(routeProgress: RouteProgress): BannerInstructions? {
+        val legProgress = routeProgress.currentLegProgress
+        return instructionIndex(routeProgress.directionsRoute).findCurrentBannerInstructions(
+            routeProgress.legIndex,
+            legProgress.stepIndex,
+            legProgress.currentStepProgress.distanceRemaining
+        )
+    }
+
+    /**
+     * Finds the current [VoiceInstructions] for the current step and step distance remaining of
+     * the route progress, with the [RouteInstructionIndex] of the route.
+     *
+     * @param routeProgress the current route progress
+     * @return the current voice instructions, or null if the current step has none
+     */
+    fun findCurrentVoiceInstructions(routeProgress: RouteProgress): VoiceInstructions? {
+        val legProgress = routeProgress.currentLegProgress
+        return instructionIndex(routeProgress.directionsRoute).findCurrentVoiceInstructions(
+            routeProgress.legIndex,
+            legProgress.stepIndex,
+            legProgress.currentStepProgress.distanceRemaining
+        )
     }
 
     private fun upcomingStepIsArrivalManeuverType(routeProgress: RouteProgress): Boolean {
@@ -1,6 +1,7 @@
 package org.maplibre.navigation.core.utils
 
 import org.maplibre.geojson.model.Point
+import org.maplibre.navigation.core.geometry.LocationProjection
 import org.maplibre.navigation.core.navigation.MapLibreNavigationOptions
 import org.maplibre.navigation.core.routeprogress.RouteProgress
 import org.maplibre.geojson.turf.TurfMeasurement
@@ -8,6 +9,7 @@ import org.maplibre.geojson.turf.TurfMisc
 import org.maplibre.geojson.turf.TurfUnit
 import org.maplibre.navigation.core.models.StepIntersection
 import kotlin.jvm.JvmStatic
+import kotlin.math.abs
 
 object ToleranceUtils {
 
@@ -46,4 +48,37 @@ object ToleranceUtils {
 
         return navigationOptions.offRouteThresholdRadiusMeters
     }
-}
\ No newline at end of file
+
+    /**
+     * Reduce the offRouteMinimumDistanceMetersBeforeWrongDirection if we are close to an intersection,
+     * measured along the current step from the already projected location.
+     * You can define these values in the navigationOptions
+     */
+    @JvmStatic
+    fun dynamicOffRouteRadiusTolerance(
+        locationProjection: LocationProjection,
+        routeProgress: RouteProgress,
+        navigationOptions: MapLibreNavigationOptions
+    ): Double {
+        val intersectionDistances = routeProgress.intersectionDistancesAlongStep
+        if (intersectionDistances != null && intersectionDistances.size >= 2) {
+            var distanceToNextIntersection = Double.MAX_VALUE
+            for (intersectionDistance in intersectionDistances.values) {
+                distanceToNextIntersection = minOf(
+                    distanceToNextIntersection,
+                    abs(intersectionDistance - locationProjection.distanceAlongStep)
+                )
+            }
+
+            if (distanceToNextIntersection == 0.0) {
+                return navigationOptions.offRouteThresholdRadiusMeters
+            }
+
+            if (distanceToNextIntersection <= navigationOptions.maneuverZoneRadius) {
+                return navigationOptions.offRouteThresholdRadiusMeters / 2
+            }
+        }
+
+        return navigationOptions.offRouteThresholdRadiusMeters
+    }
+}
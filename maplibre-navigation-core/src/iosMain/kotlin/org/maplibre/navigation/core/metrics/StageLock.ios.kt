@@ -0,0 +1,14 @@
+package org.maplibre.navigation.core.metrics
+
+import platform.Foundation.NSLock
+
+/**
+ * Creates a new lock on a [NSLock].
+ */
+internal actual fun createStageLock(): StageLock = object : StageLock {
+    private val lock = NSLock()
+
+    override fun lock() = lock.lock()
+
+    override fun unlock() = lock.unlock()
+}
@@ -18,4 +18,9 @@ rootProject.name = "maplibre-navigation"
 
 include(":maplibre-navigation-core")
 include(":libandroid-navigation-ui")
-include(":app")
\ No newline at end of file
+include(":app")
+
+// Runs on the unpublished JVM target of the core module, see `maplibre-navigation-core`
+if (providers.gradleProperty("benchmark").isPresent) {
+    include(":benchmark")
+}